@@ -34,9 +34,6 @@ idea {
 
 subprojects {
     apply(plugin = "java")
-    apply(plugin = "maven-publish")
-    apply(plugin = "signing")
-    apply(plugin = "tech.yanand.maven-central-publish")
 
     extra["springBootVersion"] = "3.4.3"
     extra["jt400Version"] = "21.0.0"
@@ -53,6 +50,15 @@ subprojects {
         mavenCentral()
     }
 
+    // Benchmarks are not published
+    if (name == "ionspring-benchmarks") {
+        return@subprojects
+    }
+
+    apply(plugin = "maven-publish")
+    apply(plugin = "signing")
+    apply(plugin = "tech.yanand.maven-central-publish")
+
     val sourceJar by tasks.registering(Jar::class) {
         archiveClassifier.set("sources")
         from(sourceSets["main"].allSource)
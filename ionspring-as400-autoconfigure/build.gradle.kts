@@ -39,10 +39,19 @@ dependencies {
 	compileOnly("org.springframework.boot:spring-boot-starter-security:${project.extra["springBootVersion"]}")
 	compileOnly("org.springframework.boot:spring-boot-starter-data-jpa:${project.extra["springBootVersion"]}")
 	compileOnly("net.sf.jt400:jt400:${project.extra["jt400Version"]}")
+	compileOnly("org.springframework.boot:spring-boot-actuator:${project.extra["springBootVersion"]}")
+	compileOnly("io.micrometer:micrometer-core:1.14.4")
+	compileOnly("com.zaxxer:HikariCP:5.1.0")
 	compileOnly("org.jetbrains.kotlin:kotlin-stdlib:2.1.0")
+	compileOnly("org.jetbrains.kotlinx:kotlinx-coroutines-core:1.10.1")
 	testImplementation("net.sf.jt400:jt400:${project.extra["jt400Version"]}")
 	testImplementation("org.springframework.boot:spring-boot-starter-test:${project.extra["springBootVersion"]}")
 	testImplementation("org.springframework.boot:spring-boot-starter-data-jpa:${project.extra["springBootVersion"]}")
+	testImplementation("org.springframework.boot:spring-boot-starter-security:${project.extra["springBootVersion"]}")
+	testImplementation("org.springframework.boot:spring-boot-actuator:${project.extra["springBootVersion"]}")
+	testImplementation("org.springframework.boot:spring-boot-actuator-autoconfigure:${project.extra["springBootVersion"]}")
+	testImplementation("io.micrometer:micrometer-core:1.14.4")
+	testImplementation("com.h2database:h2:2.3.232")
 }
 
 tasks.withType<Test> {
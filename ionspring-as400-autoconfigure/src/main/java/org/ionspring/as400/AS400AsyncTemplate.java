@@ -0,0 +1,199 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400;
+import com.ibm.as400.access.SystemValue;
+
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs blocking jt400 calls on a dedicated executor and returns <code>CompletableFuture</code>s, so that servlet and
+ * Vaadin threads don't wait for IBM i round trips.
+ * <p>Calls run in virtual threads when available (see {@link AS400Executors#newVirtualThreadExecutor(String)}), at
+ * most <code>maxConcurrency</code> at the same time. Calls submitted while all slots are taken are queued, a thread is
+ * only started for a call that got a slot so that platform threads stay bounded on Java 17. Calls submitted while
+ * <code>maxWaiting</code> calls are already queued are rejected with a <code>RejectedExecutionException</code>.</p>
+ * <p>Each call uses a connection borrowed from the {@link AS400Pool} if one is set, the shared <code>AS400</code>
+ * otherwise. <code>maxConcurrency</code> can't exceed the pool size: the calls above it would only wait for a
+ * connection while holding a thread.</p>
+ */
+public class AS400AsyncTemplate implements AutoCloseable {
+    private final AS400 as400;
+    private final AS400Pool pool;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final Queue<Call<?>> waiting = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger waitingCount = new AtomicInteger();
+    private final int maxConcurrency;
+    private final int maxWaiting;
+
+    /**
+     * Creates an asynchronous template whose waiting queue is unbounded.
+     *
+     * @param as400            The shared <code>AS400</code>, used when <code>pool</code> is <code>null</code>.
+     * @param pool             The connection pool, or <code>null</code>.
+     * @param maxConcurrency   The maximum number of calls running at the same time.
+     * @param threadNamePrefix The name prefix of the threads running the calls.
+     */
+    public AS400AsyncTemplate(AS400 as400, AS400Pool pool, int maxConcurrency, String threadNamePrefix) {
+        this(as400, pool, maxConcurrency, Integer.MAX_VALUE, threadNamePrefix);
+    }
+
+    /**
+     * Creates an asynchronous template.
+     *
+     * @param as400            The shared <code>AS400</code>, used when <code>pool</code> is <code>null</code>.
+     * @param pool             The connection pool, or <code>null</code>.
+     * @param maxConcurrency   The maximum number of calls running at the same time, at most the pool size.
+     * @param maxWaiting       The maximum number of calls waiting for a slot.
+     * @param threadNamePrefix The name prefix of the threads running the calls.
+     */
+    public AS400AsyncTemplate(AS400 as400, AS400Pool pool, int maxConcurrency, int maxWaiting, String threadNamePrefix) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        if (pool != null && maxConcurrency > pool.getMaxSize()) {
+            throw new IllegalArgumentException("maxConcurrency (" + maxConcurrency + ") can't exceed the pool size ("
+                    + pool.getMaxSize() + ")");
+        }
+        if (maxWaiting < 0) {
+            throw new IllegalArgumentException("maxWaiting can't be negative");
+        }
+        this.as400 = as400;
+        this.pool = pool;
+        this.maxConcurrency = maxConcurrency;
+        this.maxWaiting = maxWaiting;
+        this.permits = new Semaphore(maxConcurrency);
+        this.executor = AS400Executors.newVirtualThreadExecutor(threadNamePrefix);
+    }
+
+    /**
+     * Runs the callback in the background.
+     *
+     * @param callback The callback, called with a pooled or the shared <code>AS400</code>.
+     * @param <T>      The result type.
+     * @return A future completed with the callback result, or exceptionally with the exception it threw, or with a
+     * <code>RejectedExecutionException</code> if <code>maxWaiting</code> calls are already waiting.
+     */
+    public <T> CompletableFuture<T> submit(AS400Callback<T, ? extends Exception> callback) {
+        // The bound is checked without a lock, concurrent submits can exceed it by a few calls
+        if (permits.availablePermits() == 0 && waitingCount.get() >= maxWaiting) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException(
+                    "AS400AsyncTemplate queue is full (" + maxWaiting + " waiting calls)"));
+        }
+        final Call<T> call = new Call<>(callback);
+        waitingCount.incrementAndGet();
+        waiting.add(call);
+        dispatch();
+        return call.future;
+    }
+
+    /**
+     * Starts waiting calls while slots are free. Called after each submit and each completed call, the queue being
+     * checked after taking or releasing a slot, no call is left waiting with a free slot.
+     */
+    private void dispatch() {
+        while (!waiting.isEmpty() && permits.tryAcquire()) {
+            final Call<?> call = waiting.poll();
+            if (call == null) {
+                permits.release();
+                continue;
+            }
+            waitingCount.decrementAndGet();
+            try {
+                executor.execute(() -> {
+                    try {
+                        call.run();
+                    } finally {
+                        permits.release();
+                        dispatch();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                call.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Reads a system value in the background.
+     *
+     * @param name The system value name.
+     * @return A future completed with the system value.
+     */
+    public CompletableFuture<Object> getSystemValue(String name) {
+        return submit(system -> new SystemValue(system, name.toUpperCase(Locale.ROOT)).getValue());
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public int getMaxWaiting() {
+        return maxWaiting;
+    }
+
+    /**
+     * @return The number of calls currently running.
+     */
+    public int getActiveCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    /**
+     * @return The number of calls waiting for a free slot.
+     */
+    public int getWaitingCount() {
+        return waitingCount.get();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        Call<?> call;
+        while ((call = waiting.poll()) != null) {
+            waitingCount.decrementAndGet();
+            call.future.completeExceptionally(new RejectedExecutionException("AS400AsyncTemplate is closed"));
+        }
+    }
+
+    private final class Call<T> {
+        private final AS400Callback<T, ? extends Exception> callback;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private Call(AS400Callback<T, ? extends Exception> callback) {
+            this.callback = callback;
+        }
+
+        private void run() {
+            try {
+                future.complete(pool != null ? pool.execute(callback) : callback.doWithAS400(as400));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+/**
+ * Receives measurements of the {@link AS400AuthenticationProvider} authentication path.
+ */
+public interface AS400AuthenticationMetrics {
+
+    /**
+     * Authentication outcomes.
+     */
+    enum Outcome {
+        SUCCESS,
+        BAD_CREDENTIALS,
+        NOT_AUTHORIZED,
+        /**
+         * The sign-on was rejected by the {@link AS400LoginBulkhead}, without calling the IBM i.
+         */
+        REJECTED,
+        ERROR
+    }
+
+    /**
+     * Records a sign-on server round trip.
+     *
+     * @param nanos The sign-on duration in nanoseconds.
+     */
+    void recordSignon(long nanos);
+
+    /**
+     * Records the opening of a connection under the user profile.
+     *
+     * @param nanos The connection duration in nanoseconds.
+     */
+    void recordUserConnection(long nanos);
+
+    /**
+     * Records the reading of the user special authorities.
+     *
+     * @param nanos The reading duration in nanoseconds.
+     */
+    void recordSpecialAuthorities(long nanos);
+
+    /**
+     * Records the outcome of an authentication.
+     *
+     * @param outcome The authentication outcome.
+     */
+    void recordOutcome(Outcome outcome);
+
+}
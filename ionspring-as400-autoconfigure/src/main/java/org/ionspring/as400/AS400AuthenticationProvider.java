@@ -34,6 +34,9 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * A Spring Security authentication provider that performs authentication against IBM i user profiles.
@@ -48,10 +51,107 @@ public class AS400AuthenticationProvider implements AuthenticationProvider {
 
     Logger logger = LoggerFactory.getLogger(AS400AuthenticationProvider.class);
 
+    private AS400SignonCache signonCache;
+
+    private AS400SpecialAuthorityCache specialAuthorityCache;
+
+    private boolean singleConnection = false;
+
+    private Executor authorityExecutor;
+
+    private AS400LoginBulkhead loginBulkhead;
+
+    private AS400AuthenticationMetrics metrics;
+
     public AS400AuthenticationProvider(AS400 as400) {
         this.as400 = as400;
     }
 
+    /**
+     * Sets the cache of successful sign-ons. When <code>null</code> (the default), every authentication calls the IBM i
+     * sign-on server.
+     *
+     * @param signonCache The sign-on cache, or <code>null</code>.
+     */
+    public void setSignonCache(AS400SignonCache signonCache) {
+        this.signonCache = signonCache;
+    }
+
+    public AS400SignonCache getSignonCache() {
+        return signonCache;
+    }
+
+    /**
+     * Sets the cache of special authorities. When <code>null</code> (the default), special authorities are read from
+     * the IBM i on every login.
+     *
+     * @param specialAuthorityCache The special authority cache, or <code>null</code>.
+     */
+    public void setSpecialAuthorityCache(AS400SpecialAuthorityCache specialAuthorityCache) {
+        this.specialAuthorityCache = specialAuthorityCache;
+    }
+
+    public AS400SpecialAuthorityCache getSpecialAuthorityCache() {
+        return specialAuthorityCache;
+    }
+
+    /**
+     * Sets the login mode. When <code>true</code>, a single connection under the user profile is used both to check the
+     * password and to read the user special authorities, instead of a sign-on validation with the application
+     * <code>AS400</code> followed by a connection under the user profile.
+     *
+     * @param singleConnection <code>true</code> to use a single connection per login.
+     */
+    public void setSingleConnection(boolean singleConnection) {
+        this.singleConnection = singleConnection;
+    }
+
+    public boolean isSingleConnection() {
+        return singleConnection;
+    }
+
+    /**
+     * Sets the executor used to load granted authorities asynchronously. When <code>null</code> (the default),
+     * authorities are loaded before {@link #authenticate} returns. Otherwise, {@link #authenticate} returns an
+     * {@link AS400AuthenticationToken} right after the password check and the authorities are loaded in the background
+     * (see {@link #getGrantedAuthoritiesAsync}).
+     *
+     * @param authorityExecutor The executor, or <code>null</code>.
+     */
+    public void setAuthorityExecutor(Executor authorityExecutor) {
+        this.authorityExecutor = authorityExecutor;
+    }
+
+    public Executor getAuthorityExecutor() {
+        return authorityExecutor;
+    }
+
+    /**
+     * Sets the bulkhead limiting concurrent sign-ons. When <code>null</code> (the default), sign-ons are not limited.
+     *
+     * @param loginBulkhead The login bulkhead, or <code>null</code>.
+     */
+    public void setLoginBulkhead(AS400LoginBulkhead loginBulkhead) {
+        this.loginBulkhead = loginBulkhead;
+    }
+
+    public AS400LoginBulkhead getLoginBulkhead() {
+        return loginBulkhead;
+    }
+
+    /**
+     * Sets the receiver of authentication measurements. When <code>null</code> (the default), nothing is measured.
+     *
+     * @param metrics The authentication metrics, or <code>null</code>.
+     */
+    public void setMetrics(AS400AuthenticationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public AS400AuthenticationMetrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * Performs authentication against IBM i user profiles.
      *
@@ -61,20 +161,164 @@ public class AS400AuthenticationProvider implements AuthenticationProvider {
      */
     @Override
     public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        if (metrics == null) {
+            return doAuthenticate(authentication);
+        }
+        try {
+            final Authentication retVal = doAuthenticate(authentication);
+            metrics.recordOutcome(AS400AuthenticationMetrics.Outcome.SUCCESS);
+            return retVal;
+        } catch (BadCredentialsException e) {
+            metrics.recordOutcome(AS400AuthenticationMetrics.Outcome.BAD_CREDENTIALS);
+            throw e;
+        } catch (NotAuthorizedException e) {
+            metrics.recordOutcome(AS400AuthenticationMetrics.Outcome.NOT_AUTHORIZED);
+            throw e;
+        } catch (LoginRejectedException e) {
+            metrics.recordOutcome(AS400AuthenticationMetrics.Outcome.REJECTED);
+            throw e;
+        } catch (RuntimeException e) {
+            metrics.recordOutcome(AS400AuthenticationMetrics.Outcome.ERROR);
+            throw e;
+        }
+    }
+
+    private Authentication doAuthenticate(Authentication authentication) throws AuthenticationException {
+        final String username = authentication.getPrincipal().toString();
+        final char[] password = authentication.getCredentials().toString().toCharArray();
+        if (singleConnection && (signonCache == null || !signonCache.isValid(username, password))) {
+            return authenticateWithUserConnection(authentication, username, password);
+        }
+        validateSignon(username, password);
+        checkAuthorized(username);
+        final SpecialAuthorityLoader specialAuthorityLoader = () -> getSpecialAuthorities(username, password);
+        if (authorityExecutor != null) {
+            return new AS400AuthenticationToken(authentication.getPrincipal(), authentication.getCredentials(),
+                    loadGrantedAuthoritiesAsync(username, password, specialAuthorityLoader));
+        }
+        return new UsernamePasswordAuthenticationToken(authentication.getPrincipal(), authentication.getCredentials(),
+                getGrantedAuthorities(username, password, specialAuthorityLoader));
+    }
+
+    /**
+     * Performs authentication with a single connection under the user profile: connecting proves the password and the
+     * same connection is used to read the user special authorities.
+     *
+     * @param authentication the authentication request object.
+     * @param username       The username entered by the user
+     * @param password       The password entered by the user
+     * @return the UsernamePasswordAuthenticationToken object if authentication is successful.
+     * @throws AuthenticationException if authentication isn't successful.
+     */
+    protected Authentication authenticateWithUserConnection(Authentication authentication, String username, char[] password)
+            throws AuthenticationException {
+        final AS400 userAs400 = getUserAs400(username, password);
+        boolean closeUserAs400 = true;
+        try {
+            if (loginBulkhead != null) {
+                loginBulkhead.acquire();
+            }
+            final long start = System.nanoTime();
+            try {
+                userAs400.connectService(AS400.COMMAND);
+            } catch (AS400SecurityException e) {
+                if (signonCache != null) {
+                    signonCache.evict(username);
+                }
+                throw new BadCredentialsException("Invalid user/password");
+            } catch (IOException e) {
+                throw new AuthenticationServiceException("Authentication error", e);
+            } finally {
+                if (loginBulkhead != null) {
+                    loginBulkhead.release();
+                }
+                if (metrics != null) {
+                    metrics.recordSignon(System.nanoTime() - start);
+                }
+            }
+            if (signonCache != null) {
+                signonCache.put(username, password);
+            }
+            checkAuthorized(username);
+            final Callable<List<GrantedAuthority>> loader = () -> readSpecialAuthorities(userAs400, username);
+            final SpecialAuthorityLoader specialAuthorityLoader = () -> {
+                if (specialAuthorityCache != null) {
+                    return specialAuthorityCache.get(username, loader, () -> loadSpecialAuthorities(username, password));
+                }
+                try {
+                    return loader.call();
+                } catch (Exception e) {
+                    if (e instanceof InterruptedException) {
+                        Thread.currentThread().interrupt();
+                    }
+                    logger.error("Exception while getting special authorities for user {}", username, e);
+                    return new ArrayList<>();
+                }
+            };
+            if (authorityExecutor != null) {
+                // The user connection is closed once the authorities are loaded
+                final CompletableFuture<List<GrantedAuthority>> authorities = loadGrantedAuthoritiesAsync(username, password, specialAuthorityLoader);
+                closeUserAs400 = false;
+                authorities.whenComplete((result, e) -> userAs400.close());
+                return new AS400AuthenticationToken(authentication.getPrincipal(), authentication.getCredentials(), authorities);
+            }
+            return new UsernamePasswordAuthenticationToken(authentication.getPrincipal(), authentication.getCredentials(),
+                    getGrantedAuthorities(username, password, specialAuthorityLoader));
+        } finally {
+            if (closeUserAs400) {
+                userAs400.close();
+            }
+        }
+    }
+
+    private CompletableFuture<List<GrantedAuthority>> loadGrantedAuthoritiesAsync(String username, char[] password,
+                                                                                  SpecialAuthorityLoader specialAuthorityLoader) {
+        return getGrantedAuthoritiesAsync(username, password,
+                new DeferredSpecialAuthorityLoader(specialAuthorityLoader, authorityExecutor));
+    }
+
+    private void checkAuthorized(String username) {
+        if (!isAuthorized(username)) {
+            throw new NotAuthorizedException("User " + username + " not authorized.");
+        }
+    }
+
+    /**
+     * Checks the user/password against the IBM i. If a sign-on cache is set and the user successfully signed on with the
+     * same password recently, the sign-on server is not called.
+     *
+     * @param username The username entered by the user
+     * @param password The password entered by the user
+     * @throws AuthenticationException if the user/password is invalid or the IBM i can't be reached.
+     */
+    protected void validateSignon(String username, char[] password) throws AuthenticationException {
+        if (signonCache != null && signonCache.isValid(username, password)) {
+            return;
+        }
+        if (loginBulkhead != null) {
+            loginBulkhead.acquire();
+        }
+        final long start = System.nanoTime();
         try {
-            as400.validateSignon(authentication.getPrincipal().toString(), authentication.getCredentials().toString().toCharArray());
+            as400.validateSignon(username, password);
         } catch (AS400SecurityException e) {
+            if (signonCache != null) {
+                signonCache.evict(username);
+            }
             throw new BadCredentialsException("Invalid user/password");
         } catch (IOException e) {
             throw new AuthenticationServiceException("Authentication error", e);
+        } finally {
+            if (loginBulkhead != null) {
+                loginBulkhead.release();
+            }
+            if (metrics != null) {
+                metrics.recordSignon(System.nanoTime() - start);
+            }
         }
-        if (!isAuthorized(authentication.getPrincipal().toString())) {
-            throw new NotAuthorizedException("User " + authentication.getPrincipal().toString() + " not authorized.");
+        if (signonCache != null) {
+            signonCache.put(username, password);
         }
-        return new UsernamePasswordAuthenticationToken(authentication.getPrincipal(), authentication.getCredentials(),
-                getGrantedAuthorities(authentication.getPrincipal().toString(), authentication.getCredentials().toString().toCharArray(),
-                        () -> getSpecialAuthorities(authentication.getPrincipal().toString(),
-                                authentication.getCredentials().toString().toCharArray())));
     }
 
     /**
@@ -104,43 +348,93 @@ public class AS400AuthenticationProvider implements AuthenticationProvider {
      *     <li>ROLE_SPECIAL_AUTHORITY_SECURITY_ADMINISTRATOR</li>
      *     <li>ROLE_SPECIAL_AUTHORITY_SPOOL_CONTROL</li>
      * </ul>
+     * <p>If a special authority cache is set (see {@link #setSpecialAuthorityCache}), cached authorities are returned
+     * when available.</p>
      *
      * @param username The username entered by the user
      * @param password The password entered by the user
      * @return The list of granted authorities based on the user special authorities.
      */
     public List<GrantedAuthority> getSpecialAuthorities(String username, char[] password) {
-        List<GrantedAuthority> retVal = new ArrayList<>();
-        AS400 userAs400 = getUserAs400(username, password);
-        try (userAs400) {
-            User user = new User(userAs400, username);
-            if (user.hasSpecialAuthority(User.SPECIAL_AUTHORITY_AUDIT)) {
-                retVal.add(new SimpleGrantedAuthority("ROLE_SPECIAL_AUTHORITY_AUDIT"));
-            }
-            if (user.hasSpecialAuthority(User.SPECIAL_AUTHORITY_SERVICE)) {
-                retVal.add(new SimpleGrantedAuthority("ROLE_SPECIAL_AUTHORITY_SERVICE"));
-            }
-            if (user.hasSpecialAuthority(User.SPECIAL_AUTHORITY_ALL_OBJECT)) {
-                retVal.add(new SimpleGrantedAuthority("ROLE_SPECIAL_AUTHORITY_ALL_OBJECT"));
-            }
-            if (user.hasSpecialAuthority(User.SPECIAL_AUTHORITY_IO_SYSTEM_CONFIGURATION)) {
-                retVal.add(new SimpleGrantedAuthority("ROLE_SPECIAL_AUTHORITY_IO_SYSTEM_CONFIGURATION"));
-            }
-            if (user.hasSpecialAuthority(User.SPECIAL_AUTHORITY_JOB_CONTROL)) {
-                retVal.add(new SimpleGrantedAuthority("ROLE_SPECIAL_AUTHORITY_JOB_CONTROL"));
-            }
-            if (user.hasSpecialAuthority(User.SPECIAL_AUTHORITY_SAVE_SYSTEM)) {
-                retVal.add(new SimpleGrantedAuthority("ROLE_SPECIAL_AUTHORITY_SAVE_SYSTEM"));
-            }
-            if (user.hasSpecialAuthority(User.SPECIAL_AUTHORITY_SECURITY_ADMINISTRATOR)) {
-                retVal.add(new SimpleGrantedAuthority("ROLE_SPECIAL_AUTHORITY_SECURITY_ADMINISTRATOR"));
-            }
-            if (user.hasSpecialAuthority(User.SPECIAL_AUTHORITY_SPOOL_CONTROL)) {
-                retVal.add(new SimpleGrantedAuthority("ROLE_SPECIAL_AUTHORITY_SPOOL_CONTROL"));
-            }
+        if (specialAuthorityCache != null) {
+            return specialAuthorityCache.get(username, () -> loadSpecialAuthorities(username, password));
+        }
+        try {
+            return loadSpecialAuthorities(username, password);
         } catch (AS400SecurityException | ObjectDoesNotExistException | IOException | InterruptedException |
                  ErrorCompletingRequestException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
             logger.error("Exception while getting special authorities for user {}", username, e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Reads the user special authorities from the IBM i, with a connection under the user profile
+     * (see {@link #getSpecialAuthorities(String, char[])}).
+     *
+     * @param username The username entered by the user
+     * @param password The password entered by the user
+     * @return The list of granted authorities based on the user special authorities.
+     */
+    protected List<GrantedAuthority> loadSpecialAuthorities(String username, char[] password)
+            throws AS400SecurityException, ObjectDoesNotExistException, IOException, InterruptedException,
+            ErrorCompletingRequestException {
+        final long start = System.nanoTime();
+        AS400 userAs400 = getUserAs400(username, password);
+        try (userAs400) {
+            try {
+                userAs400.connectService(AS400.COMMAND);
+            } finally {
+                if (metrics != null) {
+                    metrics.recordUserConnection(System.nanoTime() - start);
+                }
+            }
+            return readSpecialAuthorities(userAs400, username);
+        }
+    }
+
+    /**
+     * Reads the user special authorities from the IBM i using the given connection.
+     *
+     * @param userAs400 An <code>AS400</code> object authorized to read the user profile.
+     * @param username  The username entered by the user
+     * @return The list of granted authorities based on the user special authorities.
+     */
+    protected List<GrantedAuthority> readSpecialAuthorities(AS400 userAs400, String username)
+            throws AS400SecurityException, ObjectDoesNotExistException, IOException, InterruptedException,
+            ErrorCompletingRequestException {
+        final long start = System.nanoTime();
+        List<GrantedAuthority> retVal = new ArrayList<>();
+        User user = new User(userAs400, username);
+        if (user.hasSpecialAuthority(User.SPECIAL_AUTHORITY_AUDIT)) {
+            retVal.add(new SimpleGrantedAuthority("ROLE_SPECIAL_AUTHORITY_AUDIT"));
+        }
+        if (user.hasSpecialAuthority(User.SPECIAL_AUTHORITY_SERVICE)) {
+            retVal.add(new SimpleGrantedAuthority("ROLE_SPECIAL_AUTHORITY_SERVICE"));
+        }
+        if (user.hasSpecialAuthority(User.SPECIAL_AUTHORITY_ALL_OBJECT)) {
+            retVal.add(new SimpleGrantedAuthority("ROLE_SPECIAL_AUTHORITY_ALL_OBJECT"));
+        }
+        if (user.hasSpecialAuthority(User.SPECIAL_AUTHORITY_IO_SYSTEM_CONFIGURATION)) {
+            retVal.add(new SimpleGrantedAuthority("ROLE_SPECIAL_AUTHORITY_IO_SYSTEM_CONFIGURATION"));
+        }
+        if (user.hasSpecialAuthority(User.SPECIAL_AUTHORITY_JOB_CONTROL)) {
+            retVal.add(new SimpleGrantedAuthority("ROLE_SPECIAL_AUTHORITY_JOB_CONTROL"));
+        }
+        if (user.hasSpecialAuthority(User.SPECIAL_AUTHORITY_SAVE_SYSTEM)) {
+            retVal.add(new SimpleGrantedAuthority("ROLE_SPECIAL_AUTHORITY_SAVE_SYSTEM"));
+        }
+        if (user.hasSpecialAuthority(User.SPECIAL_AUTHORITY_SECURITY_ADMINISTRATOR)) {
+            retVal.add(new SimpleGrantedAuthority("ROLE_SPECIAL_AUTHORITY_SECURITY_ADMINISTRATOR"));
+        }
+        if (user.hasSpecialAuthority(User.SPECIAL_AUTHORITY_SPOOL_CONTROL)) {
+            retVal.add(new SimpleGrantedAuthority("ROLE_SPECIAL_AUTHORITY_SPOOL_CONTROL"));
+        }
+        if (metrics != null) {
+            metrics.recordSpecialAuthorities(System.nanoTime() - start);
         }
         return retVal;
     }
@@ -183,6 +477,32 @@ public class AS400AuthenticationProvider implements AuthenticationProvider {
         return specialAuthorities;
     }
 
+    /**
+     * Asynchronous variant of {@link #getGrantedAuthorities}, used when an authority executor is set
+     * (see {@link #setAuthorityExecutor}).
+     * <p>This method can be overridden to compose authorization on the <code>CompletableFuture</code> returned by the
+     * loader.</p>
+     * <p>The default implementation calls {@link #getGrantedAuthorities} with the authority executor. The special
+     * authorities are only loaded if it asks for them, so no connection is opened when an override ignores them. The
+     * provider's own loader reads them in the executor thread running {@link #getGrantedAuthorities}, so a bounded
+     * executor can't deadlock.</p>
+     *
+     * @param username                    The username entered by the user
+     * @param password                    The password entered by the user
+     * @param asyncSpecialAuthorityLoader The AsyncSpecialAuthorityLoader to get user profile special authorities.
+     * @return The list of <code>GrantedAuthority</code>, when loaded.
+     */
+    public @NonNull CompletableFuture<List<GrantedAuthority>> getGrantedAuthoritiesAsync(@NonNull String username,
+                                                                                         @NonNull char[] password,
+                                                                                         AsyncSpecialAuthorityLoader asyncSpecialAuthorityLoader) {
+        final SpecialAuthorityLoader specialAuthorityLoader =
+                asyncSpecialAuthorityLoader instanceof DeferredSpecialAuthorityLoader deferred
+                        ? deferred.loader()
+                        : () -> asyncSpecialAuthorityLoader.getSpecialAuthorities().join();
+        return CompletableFuture.supplyAsync(() -> getGrantedAuthorities(username, password, specialAuthorityLoader),
+                authorityExecutor);
+    }
+
     /**
      * Returns <code>true</code> if authentication is user/password authentication, <code>false</code> otherwise.
      *
@@ -193,4 +513,16 @@ public class AS400AuthenticationProvider implements AuthenticationProvider {
     public boolean supports(Class<?> authentication) {
         return authentication.equals(UsernamePasswordAuthenticationToken.class);
     }
+
+    /**
+     * The loader passed to {@link #getGrantedAuthoritiesAsync}, loading the special authorities with the authority
+     * executor.
+     */
+    private record DeferredSpecialAuthorityLoader(SpecialAuthorityLoader loader,
+                                                  Executor executor) implements AsyncSpecialAuthorityLoader {
+        @Override
+        public CompletableFuture<List<GrantedAuthority>> getSpecialAuthorities() {
+            return CompletableFuture.supplyAsync(loader::getSpecialAuthorities, executor);
+        }
+    }
 }
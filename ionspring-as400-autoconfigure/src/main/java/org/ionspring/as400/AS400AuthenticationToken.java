@@ -0,0 +1,108 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An authenticated user/password token whose granted authorities are loaded asynchronously.
+ * <p>{@link #getAuthorities()} waits for the authorities the first time it is called. If loading fails, the error is
+ * logged and the token has no authority.</p>
+ */
+public class AS400AuthenticationToken extends UsernamePasswordAuthenticationToken {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger logger = LoggerFactory.getLogger(AS400AuthenticationToken.class);
+
+    private final transient CompletableFuture<? extends Collection<? extends GrantedAuthority>> pendingAuthorities;
+
+    private volatile Collection<GrantedAuthority> authorities;
+
+    public AS400AuthenticationToken(Object principal, Object credentials,
+                                    CompletableFuture<? extends Collection<? extends GrantedAuthority>> authorities) {
+        super(principal, credentials, List.of());
+        this.pendingAuthorities = authorities;
+    }
+
+    /**
+     * @return <code>true</code> if the authorities are loaded and {@link #getAuthorities()} won't wait.
+     */
+    public boolean isAuthoritiesLoaded() {
+        return authorities != null || pendingAuthorities.isDone();
+    }
+
+    @Override
+    public Collection<GrantedAuthority> getAuthorities() {
+        Collection<GrantedAuthority> retVal = authorities;
+        if (retVal == null) {
+            try {
+                final Collection<? extends GrantedAuthority> loaded = pendingAuthorities.join();
+                retVal = loaded == null ? List.of() : Collections.unmodifiableList(new ArrayList<GrantedAuthority>(loaded));
+            } catch (RuntimeException e) {
+                logger.error("Exception while loading authorities for user {}", getName(), e);
+                retVal = List.of();
+            }
+            authorities = retVal;
+        }
+        return retVal;
+    }
+
+    /**
+     * Compares the loaded authorities, the parent class compares the authorities given to its constructor, which are
+     * always empty.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        return super.equals(obj) && obj instanceof AbstractAuthenticationToken other
+                && getAuthorities().equals(other.getAuthorities());
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + getAuthorities().hashCode();
+    }
+
+    /**
+     * Doesn't wait for the authorities, which are printed once loaded.
+     */
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [Principal=" + getPrincipal() + ", Credentials=[PROTECTED], Authenticated="
+                + isAuthenticated() + ", Details=" + getDetails() + ", Granted Authorities="
+                + (isAuthoritiesLoaded() ? getAuthorities() : "[loading]") + "]";
+    }
+
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        getAuthorities();
+        out.defaultWriteObject();
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400;
+
+/**
+ * Callback executed with an <code>AS400</code> connection borrowed from an {@link AS400Pool}.
+ *
+ * @param <T> The result type.
+ * @param <E> The exception type thrown by the callback.
+ */
+@FunctionalInterface
+public interface AS400Callback<T, E extends Exception> {
+
+    T doWithAS400(AS400 as400) throws E;
+
+}
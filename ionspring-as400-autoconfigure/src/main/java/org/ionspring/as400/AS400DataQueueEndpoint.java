@@ -0,0 +1,171 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400;
+import com.ibm.as400.access.AS400Text;
+import com.ibm.as400.access.BaseDataQueue;
+import com.ibm.as400.access.DataQueue;
+import com.ibm.as400.access.DataQueueEntry;
+import com.ibm.as400.access.KeyedDataQueue;
+import com.ibm.as400.access.KeyedDataQueueEntry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * {@link DataQueueEndpoint} backed by an IBM i data queue, keyed or not.
+ * <p>Each send uses a connection borrowed from the {@link AS400Pool} if one is set, the shared <code>AS400</code>
+ * otherwise. Receives wait for entries, they would hold pooled connections and starve the pool: when a pool is set,
+ * they use connections of the endpoint instead, copied from the pool template, one per concurrent receive and kept
+ * until the endpoint is closed. The data queue server returns one entry per request, so a batch is received by waiting
+ * for the first entry, then reading the following ones without waiting, all on the same connection. The
+ * <code>DataQueue</code> objects are kept per connection so that the queue attributes are retrieved only once.</p>
+ */
+public class AS400DataQueueEndpoint implements DataQueueEndpoint, AutoCloseable {
+    private final AS400 as400;
+    private final AS400Pool pool;
+    private final String path;
+    private final String key;
+    private final String searchType;
+    private final Map<AS400, BaseDataQueue> queues = Collections.synchronizedMap(new WeakHashMap<>());
+    private final Deque<AS400> receivers = new ConcurrentLinkedDeque<>();
+
+    /**
+     * Creates an endpoint for a non keyed data queue.
+     *
+     * @param as400 The shared <code>AS400</code>, used when <code>pool</code> is <code>null</code>.
+     * @param pool  The connection pool, or <code>null</code>.
+     * @param path  The data queue path, for instance <code>/QSYS.LIB/MYLIB.LIB/ORDERS.DTAQ</code>.
+     */
+    public AS400DataQueueEndpoint(AS400 as400, AS400Pool pool, String path) {
+        this(as400, pool, path, "", "EQ");
+    }
+
+    /**
+     * Creates an endpoint for a data queue.
+     *
+     * @param as400      The shared <code>AS400</code>, used when <code>pool</code> is <code>null</code>.
+     * @param pool       The connection pool, or <code>null</code>.
+     * @param path       The data queue path, for instance <code>/QSYS.LIB/MYLIB.LIB/ORDERS.DTAQ</code>.
+     * @param key        The key searched by receives in a keyed data queue, an empty string for a non keyed data
+     *                   queue. It is converted to the system CCSID and padded to the queue key length.
+     * @param searchType The key search type: <code>EQ</code>, <code>NE</code>, <code>LT</code>, <code>LE</code>,
+     *                   <code>GT</code> or <code>GE</code>.
+     */
+    public AS400DataQueueEndpoint(AS400 as400, AS400Pool pool, String path, String key, String searchType) {
+        this.as400 = as400;
+        this.pool = pool;
+        this.path = path;
+        this.key = key;
+        this.searchType = searchType;
+    }
+
+    @Override
+    public List<DataQueueMessage> receive(int maxEntries, Duration wait) throws Exception {
+        final int waitSeconds = (int) Math.min(Integer.MAX_VALUE, (wait.toMillis() + 999) / 1000);
+        if (pool == null) {
+            return receive(as400, maxEntries, waitSeconds);
+        }
+        AS400 receiver = receivers.pollFirst();
+        if (receiver == null) {
+            receiver = pool.createUnpooled();
+        }
+        try {
+            final List<DataQueueMessage> messages = receive(receiver, maxEntries, waitSeconds);
+            receivers.addFirst(receiver);
+            return messages;
+        } catch (Exception e) {
+            // The connection may be broken, the next receive uses a new one
+            queues.remove(receiver);
+            receiver.disconnectAllServices();
+            throw e;
+        }
+    }
+
+    @Override
+    public void send(List<DataQueueMessage> messages) throws Exception {
+        execute(system -> {
+            final BaseDataQueue queue = queue(system);
+            for (DataQueueMessage message : messages) {
+                if (queue instanceof KeyedDataQueue keyedQueue) {
+                    keyedQueue.write(message.key() != null ? message.key() : keyBytes(system, keyedQueue), message.data());
+                } else {
+                    ((DataQueue) queue).write(message.data());
+                }
+            }
+            return null;
+        });
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Disconnects the connections used by the receives.
+     */
+    @Override
+    public void close() {
+        AS400 receiver;
+        while ((receiver = receivers.pollFirst()) != null) {
+            queues.remove(receiver);
+            receiver.disconnectAllServices();
+        }
+    }
+
+    private List<DataQueueMessage> receive(AS400 system, int maxEntries, int waitSeconds) throws Exception {
+        final BaseDataQueue queue = queue(system);
+        final List<DataQueueMessage> messages = new ArrayList<>();
+        DataQueueMessage message = read(system, queue, waitSeconds);
+        while (message != null) {
+            messages.add(message);
+            if (messages.size() >= maxEntries) {
+                break;
+            }
+            message = read(system, queue, 0);
+        }
+        return messages;
+    }
+
+    private DataQueueMessage read(AS400 system, BaseDataQueue queue, int waitSeconds) throws Exception {
+        if (queue instanceof KeyedDataQueue keyedQueue) {
+            final KeyedDataQueueEntry entry = keyedQueue.read(keyBytes(system, keyedQueue), waitSeconds, searchType);
+            return entry != null ? new DataQueueMessage(entry.getData(), entry.getKey()) : null;
+        }
+        final DataQueueEntry entry = ((DataQueue) queue).read(waitSeconds);
+        return entry != null ? new DataQueueMessage(entry.getData()) : null;
+    }
+
+    private BaseDataQueue queue(AS400 system) {
+        return queues.computeIfAbsent(system, s -> key.isEmpty() ? new DataQueue(s, path) : new KeyedDataQueue(s, path));
+    }
+
+    private byte[] keyBytes(AS400 system, KeyedDataQueue queue) throws Exception {
+        return new AS400Text(queue.getKeyLength(), system).toBytes(key);
+    }
+
+    private <T> T execute(AS400Callback<T, Exception> callback) throws Exception {
+        return pool != null ? pool.execute(callback) : callback.doWithAS400(as400);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Factory methods for the executors used to run blocking IBM i host calls.
+ */
+public final class AS400Executors {
+
+    private AS400Executors() {
+    }
+
+    /**
+     * Returns an executor running each task in a new virtual thread when running on Java 21 or later, or in a cached
+     * pool of daemon platform threads otherwise.
+     *
+     * @param namePrefix The thread name prefix.
+     * @return The executor.
+     */
+    public static ExecutorService newVirtualThreadExecutor(String namePrefix) {
+        // The project targets Java 17, virtual threads are looked up by reflection
+        try {
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            final ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            final Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, factory);
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException |
+                 InvocationTargetException e) {
+            return Executors.newCachedThreadPool(daemonThreadFactory(namePrefix));
+        }
+    }
+
+    /**
+     * Returns a thread factory creating daemon platform threads named with the given prefix and a sequence number.
+     *
+     * @param namePrefix The thread name prefix.
+     * @return The thread factory.
+     */
+    public static ThreadFactory daemonThreadFactory(String namePrefix) {
+        final AtomicLong sequence = new AtomicLong();
+        return r -> {
+            final Thread thread = new Thread(r, namePrefix + sequence.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Health indicator of the IBM i sign-on and command host servers and of the database, reporting the latency of each.
+ * <p>The probes reuse a pooled <code>AS400</code> connection, or the shared one, and a pooled JDBC connection
+ * checked with {@link Connection#isValid(int)} rather than a query. A pooled connection failing a probe is invalidated
+ * rather than released. The result is cached for <code>cacheTtl</code>,
+ * and concurrent calls share the same probe. A call never waits for more than <code>timeout</code>: the system is
+ * reported down while a slow probe goes on in the background, its result being cached when it completes.</p>
+ */
+public class AS400HealthIndicator implements HealthIndicator, AutoCloseable {
+    private final Supplier<AS400> as400;
+    private final Supplier<AS400Pool> pool;
+    private final Supplier<DataSource> dataSource;
+    private final long cacheTtl;
+    private final Duration timeout;
+    private final ExecutorService executor = AS400Executors.newVirtualThreadExecutor("ionspring-health-");
+    private volatile CachedHealth cached;
+    private CompletableFuture<Health> inFlight;
+
+    /**
+     * Creates a health indicator.
+     *
+     * @param as400      Supplies the shared <code>AS400</code> object, or <code>null</code> to skip the host servers.
+     * @param pool       Supplies the pool, or <code>null</code> to use the shared <code>AS400</code> object.
+     * @param dataSource Supplies the DataSource, or <code>null</code> to skip the database.
+     * @param cacheTtl   The time a result is reused.
+     * @param timeout    The maximum time {@link #health()} waits for a probe.
+     */
+    public AS400HealthIndicator(Supplier<AS400> as400, Supplier<AS400Pool> pool, Supplier<DataSource> dataSource,
+                                Duration cacheTtl, Duration timeout) {
+        this.as400 = as400;
+        this.pool = pool;
+        this.dataSource = dataSource;
+        this.cacheTtl = cacheTtl.toNanos();
+        this.timeout = timeout;
+    }
+
+    @Override
+    public Health health() {
+        final CachedHealth current = cached;
+        if (current != null && System.nanoTime() - current.time() < cacheTtl) {
+            return current.health();
+        }
+        final CompletableFuture<Health> probe;
+        synchronized (this) {
+            if (inFlight == null) {
+                final CompletableFuture<Health> started = CompletableFuture.supplyAsync(this::probe, executor);
+                inFlight = started;
+                started.whenComplete((health, e) -> {
+                    cached = new CachedHealth(health != null ? health : Health.down().withException(e).build(), System.nanoTime());
+                    synchronized (this) {
+                        if (inFlight == started) {
+                            inFlight = null;
+                        }
+                    }
+                });
+            }
+            probe = inFlight;
+        }
+        try {
+            return probe.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return Health.down().withDetail("error", "Health probe did not complete within " + timeout.toMillis() + " ms").build();
+        } catch (ExecutionException e) {
+            return Health.down().withException(e.getCause()).build();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Health.unknown().build();
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private Health probe() {
+        final Map<String, Object> details = new LinkedHashMap<>();
+        boolean up = true;
+        final AS400 shared = as400 != null ? as400.get() : null;
+        if (shared != null) {
+            final AS400Pool as400Pool = pool != null ? pool.get() : null;
+            AS400 system = null;
+            final long start = System.nanoTime();
+            try {
+                system = as400Pool != null ? as400Pool.borrow() : shared;
+            } catch (AS400PoolException e) {
+                details.put("signon", serviceDetails(false, start, e));
+                details.put("command", serviceDetails(false, start, e));
+                up = false;
+            }
+            if (system != null) {
+                boolean healthy = false;
+                try {
+                    healthy = probeService(system, AS400.SIGNON, "signon", details);
+                    healthy &= probeService(system, AS400.COMMAND, "command", details);
+                } finally {
+                    // A connection failing a probe is not given back to the pool
+                    if (as400Pool != null) {
+                        if (healthy) {
+                            as400Pool.release(system);
+                        } else {
+                            as400Pool.invalidate(system);
+                        }
+                    }
+                }
+                up &= healthy;
+            }
+        }
+        final DataSource ds = dataSource != null ? dataSource.get() : null;
+        if (ds != null) {
+            final long start = System.nanoTime();
+            try (Connection connection = ds.getConnection()) {
+                final boolean valid = connection.isValid((int) Math.max(timeout.toSeconds(), 1));
+                details.put("database", serviceDetails(valid, start, null));
+                up &= valid;
+            } catch (Exception e) {
+                details.put("database", serviceDetails(false, start, e));
+                up = false;
+            }
+        }
+        return Health.status(up ? Status.UP : Status.DOWN).withDetails(details).build();
+    }
+
+    private static boolean probeService(AS400 system, int service, String name, Map<String, Object> details) {
+        final long start = System.nanoTime();
+        try {
+            if (!system.isConnected(service)) {
+                system.connectService(service);
+            }
+            // Unlike isConnected, isConnectionAlive exchanges data with the host server
+            final boolean alive = system.isConnectionAlive(service);
+            details.put(name, serviceDetails(alive, start, null));
+            return alive;
+        } catch (Exception e) {
+            details.put(name, serviceDetails(false, start, e));
+            return false;
+        }
+    }
+
+    private static Map<String, Object> serviceDetails(boolean up, long start, Exception e) {
+        final Map<String, Object> details = new LinkedHashMap<>();
+        details.put("status", up ? Status.UP.getCode() : Status.DOWN.getCode());
+        details.put("latency", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+        if (e != null) {
+            details.put("error", e.getClass().getName() + ": " + e.getMessage());
+        }
+        return details;
+    }
+
+    private record CachedHealth(Health health, long time) {
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the number of concurrent IBM i sign-ons done by {@link AS400AuthenticationProvider}, to protect the sign-on
+ * host server when many users log in at the same time.
+ * <p>At most <code>maxConcurrent</code> sign-ons run at the same time, at most <code>maxWaiting</code> logins wait for
+ * their turn, during at most <code>maxWait</code>. Logins that can't wait or waited too long fail with a
+ * {@link LoginRejectedException}, an <code>AuthenticationServiceException</code>.</p>
+ */
+public class AS400LoginBulkhead {
+    private final int maxConcurrent;
+    private final int maxWaiting;
+    private final Duration maxWait;
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final AtomicLong queuedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    /**
+     * Creates a login bulkhead.
+     *
+     * @param maxConcurrent The maximum number of concurrent sign-ons.
+     * @param maxWaiting    The maximum number of logins waiting for a sign-on slot.
+     * @param maxWait       The maximum time a login waits for a sign-on slot.
+     */
+    public AS400LoginBulkhead(int maxConcurrent, int maxWaiting, Duration maxWait) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be at least 1");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaiting = maxWaiting;
+        this.maxWait = maxWait;
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    /**
+     * Waits for a sign-on slot. Each successful call must be followed by a call to {@link #release()}.
+     *
+     * @throws LoginRejectedException if the wait queue is full or no slot was freed within <code>maxWait</code>.
+     */
+    public void acquire() throws LoginRejectedException {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        if (waiting.incrementAndGet() > maxWaiting) {
+            waiting.decrementAndGet();
+            rejectedCount.incrementAndGet();
+            throw new LoginRejectedException("Too many concurrent logins");
+        }
+        queuedCount.incrementAndGet();
+        try {
+            if (!permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+                timeoutCount.incrementAndGet();
+                rejectedCount.incrementAndGet();
+                throw new LoginRejectedException("Timeout while waiting for a login slot");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejectedCount.incrementAndGet();
+            throw new LoginRejectedException("Interrupted while waiting for a login slot", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Frees a sign-on slot obtained with {@link #acquire()}.
+     */
+    public void release() {
+        permits.release();
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getMaxWaiting() {
+        return maxWaiting;
+    }
+
+    /**
+     * @return The number of sign-ons currently running.
+     */
+    public int getActiveCount() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /**
+     * @return The number of logins currently waiting for a sign-on slot.
+     */
+    public int getWaitingCount() {
+        return waiting.get();
+    }
+
+    /**
+     * @return The total number of logins that had to wait for a sign-on slot.
+     */
+    public long getQueuedCount() {
+        return queuedCount.get();
+    }
+
+    /**
+     * @return The total number of logins rejected because the wait queue was full or the wait timed out.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return The total number of logins rejected because the wait timed out.
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+}
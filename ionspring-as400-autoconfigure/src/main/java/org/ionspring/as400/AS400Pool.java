@@ -0,0 +1,451 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400;
+import com.ibm.as400.access.AS400SecurityException;
+import com.ibm.as400.access.SecureAS400;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A bounded pool of <code>AS400</code> connections.
+ * <p>Pooled connections are created from a template <code>AS400</code> object and share its system name, user profile,
+ * password and security (<code>SecureAS400</code> or not). The template can be supplied each time a connection is
+ * created.</p>
+ * <p>A pool created with an {@link AS400SystemRouter} copies the selected system and remembers the system of each
+ * connection: idle connections to a system that is no longer the selected one, because its circuit opened for
+ * instance, are disconnected instead of borrowed, and an <code>IOException</code> thrown by
+ * {@link #execute(AS400Callback)} is recorded as a failure of the system.</p>
+ * <p>Connections are obtained with {@link #borrow()} and must be given back with {@link #release(AS400)}, or
+ * {@link #invalidate(AS400)} if they are broken. {@link #execute(AS400Callback)} does both.</p>
+ * <p>When all connections are borrowed, {@link #borrow()} waits up to <code>maxWait</code> for one to be released.
+ * Connections idle for more than <code>maxIdleTime</code> are evicted, keeping at least <code>minIdle</code> idle
+ * connections.</p>
+ */
+public class AS400Pool implements AutoCloseable {
+    private final Supplier<AS400> template;
+    private final AS400SystemRouter router;
+    private final Map<AS400, AS400SystemRouter.Route> routes = new ConcurrentHashMap<>();
+    private final int minIdle;
+    private final int maxSize;
+    private final Duration maxIdleTime;
+    private final Duration maxWait;
+    private final int[] prestartServices;
+
+    private final Semaphore permits;
+    private final Deque<PooledAS400> idle = new ArrayDeque<>();
+    private final Set<AS400> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService maintenance;
+    private volatile boolean closed = false;
+
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong waitCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    Logger logger = LoggerFactory.getLogger(AS400Pool.class);
+
+    /**
+     * Creates a pool.
+     *
+     * @param template         The <code>AS400</code> object pooled connections are copied from.
+     * @param minIdle          The minimum number of idle connections.
+     * @param maxSize          The maximum number of connections, borrowed or idle.
+     * @param maxIdleTime      The time after which an idle connection can be evicted.
+     * @param evictionInterval The interval between two evictions.
+     * @param maxWait          The maximum time {@link #borrow()} waits for a connection.
+     * @param prestartServices The services (<code>AS400.COMMAND</code>, <code>AS400.DATABASE</code>...) connected when a connection is created.
+     */
+    public AS400Pool(AS400 template, int minIdle, int maxSize, Duration maxIdleTime, Duration evictionInterval,
+                     Duration maxWait, int... prestartServices) {
+        this(() -> template, minIdle, maxSize, maxIdleTime, evictionInterval, maxWait, prestartServices);
+    }
+
+    /**
+     * Creates a pool.
+     *
+     * @param template         Supplies the <code>AS400</code> object each pooled connection is copied from.
+     * @param minIdle          The minimum number of idle connections.
+     * @param maxSize          The maximum number of connections, borrowed or idle.
+     * @param maxIdleTime      The time after which an idle connection can be evicted.
+     * @param evictionInterval The interval between two evictions.
+     * @param maxWait          The maximum time {@link #borrow()} waits for a connection.
+     * @param prestartServices The services (<code>AS400.COMMAND</code>, <code>AS400.DATABASE</code>...) connected when a connection is created.
+     */
+    public AS400Pool(Supplier<AS400> template, int minIdle, int maxSize, Duration maxIdleTime, Duration evictionInterval,
+                     Duration maxWait, int... prestartServices) {
+        this(template, null, minIdle, maxSize, maxIdleTime, evictionInterval, maxWait, prestartServices);
+    }
+
+    /**
+     * Creates a pool of connections to the systems selected by a router.
+     *
+     * @param router           The router selecting the system each pooled connection is copied from.
+     * @param minIdle          The minimum number of idle connections.
+     * @param maxSize          The maximum number of connections, borrowed or idle.
+     * @param maxIdleTime      The time after which an idle connection can be evicted.
+     * @param evictionInterval The interval between two evictions.
+     * @param maxWait          The maximum time {@link #borrow()} waits for a connection.
+     * @param prestartServices The services (<code>AS400.COMMAND</code>, <code>AS400.DATABASE</code>...) connected when a connection is created.
+     */
+    public AS400Pool(AS400SystemRouter router, int minIdle, int maxSize, Duration maxIdleTime, Duration evictionInterval,
+                     Duration maxWait, int... prestartServices) {
+        this(() -> router.select().getSystem(), router, minIdle, maxSize, maxIdleTime, evictionInterval, maxWait,
+                prestartServices);
+    }
+
+    private AS400Pool(Supplier<AS400> template, AS400SystemRouter router, int minIdle, int maxSize, Duration maxIdleTime,
+                      Duration evictionInterval, Duration maxWait, int... prestartServices) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        this.template = template;
+        this.router = router;
+        this.minIdle = Math.min(minIdle, maxSize);
+        this.maxSize = maxSize;
+        this.maxIdleTime = maxIdleTime;
+        this.maxWait = maxWait;
+        this.prestartServices = prestartServices.clone();
+        this.permits = new Semaphore(maxSize, true);
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "ionspring-as400-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long interval = Math.max(evictionInterval.toMillis(), 1);
+        maintenance.scheduleWithFixedDelay(this::maintain, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection from the pool, creating it if no idle connection is available.
+     *
+     * @return The borrowed <code>AS400</code> object.
+     * @throws AS400PoolException if the pool is closed or no connection was released within <code>maxWait</code>.
+     */
+    public AS400 borrow() {
+        if (closed) {
+            throw new AS400PoolException("AS400 pool is closed");
+        }
+        if (!permits.tryAcquire()) {
+            waitCount.incrementAndGet();
+            try {
+                if (!permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+                    timeoutCount.incrementAndGet();
+                    throw new AS400PoolException("No AS400 connection available within " + maxWait);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AS400PoolException("Interrupted while waiting for an AS400 connection", e);
+            }
+        }
+        final AS400 system;
+        try {
+            final PooledAS400 pooled = pollIdle();
+            system = pooled != null ? pooled.system() : create();
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        borrowed.add(system);
+        borrowCount.incrementAndGet();
+        return system;
+    }
+
+    /**
+     * Returns a borrowed connection to the pool.
+     *
+     * @param system The <code>AS400</code> object obtained from {@link #borrow()}.
+     */
+    public void release(AS400 system) {
+        if (!borrowed.remove(system)) {
+            throw new IllegalArgumentException("AS400 object was not borrowed from this pool");
+        }
+        // closed is checked under the lock, so that close() can't miss a connection released concurrently
+        final boolean destroy;
+        synchronized (idle) {
+            destroy = closed;
+            if (!destroy) {
+                idle.addFirst(new PooledAS400(system, System.nanoTime()));
+            }
+        }
+        if (destroy) {
+            destroy(system);
+        }
+        permits.release();
+    }
+
+    /**
+     * Removes a borrowed connection from the pool and disconnects it. Used when the connection is known to be broken.
+     *
+     * @param system The <code>AS400</code> object obtained from {@link #borrow()}.
+     */
+    public void invalidate(AS400 system) {
+        if (!borrowed.remove(system)) {
+            throw new IllegalArgumentException("AS400 object was not borrowed from this pool");
+        }
+        destroy(system);
+        permits.release();
+    }
+
+    /**
+     * Executes the callback with a borrowed connection, releasing it afterward, or invalidating it if the callback
+     * threw an <code>IOException</code> (a <code>ConnectionDroppedException</code> for instance).
+     *
+     * @param callback The callback to execute.
+     * @param <T>      The result type.
+     * @param <E>      The exception type thrown by the callback.
+     * @return The callback result.
+     * @throws E if the callback throws it.
+     */
+    public <T, E extends Exception> T execute(AS400Callback<T, E> callback) throws E {
+        final AS400 system = borrow();
+        boolean broken = false;
+        try {
+            return callback.doWithAS400(system);
+        } catch (Exception e) {
+            broken = e instanceof IOException;
+            throw e;
+        } finally {
+            if (broken) {
+                final AS400SystemRouter.Route route = routes.get(system);
+                if (route != null) {
+                    router.recordFailure(route);
+                }
+                invalidate(system);
+            } else {
+                release(system);
+            }
+        }
+    }
+
+    /**
+     * Closes the pool. Idle connections are disconnected immediately, borrowed connections when they are released.
+     */
+    @Override
+    public void close() {
+        maintenance.shutdownNow();
+        final List<PooledAS400> toDestroy;
+        synchronized (idle) {
+            closed = true;
+            toDestroy = new ArrayList<>(idle);
+            idle.clear();
+        }
+        toDestroy.forEach(pooled -> destroy(pooled.system()));
+    }
+
+    /**
+     * @return The number of connections currently borrowed.
+     */
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    /**
+     * @return The number of idle connections.
+     */
+    public int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    /**
+     * @return The number of threads currently waiting for a connection.
+     */
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return The total number of successful {@link #borrow()} calls.
+     */
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    /**
+     * @return The total number of connections created.
+     */
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    /**
+     * @return The total number of connections disconnected (evicted, invalidated or closed).
+     */
+    public long getDestroyedCount() {
+        return destroyedCount.get();
+    }
+
+    /**
+     * @return The total number of {@link #borrow()} calls that had to wait for a connection.
+     */
+    public long getWaitCount() {
+        return waitCount.get();
+    }
+
+    /**
+     * @return The total number of {@link #borrow()} calls that timed out.
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    /**
+     * Creates a new connection by copying the template and connects the prestart services.
+     *
+     * @return The new <code>AS400</code> object.
+     */
+    protected AS400 create() {
+        final AS400 system;
+        if (router != null) {
+            final AS400SystemRouter.Route route = router.select();
+            system = copy(route.getSystem());
+            routes.put(system, route);
+        } else {
+            system = copy(template.get());
+        }
+        for (int service : prestartServices) {
+            try {
+                system.connectService(service);
+            } catch (AS400SecurityException | IOException e) {
+                logger.warn("Exception while prestarting service {} on {}", service, system.getSystemName(), e);
+            }
+        }
+        createdCount.incrementAndGet();
+        return system;
+    }
+
+    /**
+     * Creates a connection by copying the template, which is not managed nor counted by the pool. Used for long
+     * blocking calls, such as data queue reads, that would otherwise hold a pooled connection.
+     *
+     * @return The new <code>AS400</code> object, which the caller must disconnect.
+     */
+    AS400 createUnpooled() {
+        return copy(template.get());
+    }
+
+    private static AS400 copy(AS400 source) {
+        return source instanceof SecureAS400 ? new SecureAS400(source) : new AS400(source);
+    }
+
+    /**
+     * Takes the most recently used idle connection, disconnecting the idle connections to a system that is no longer
+     * the one selected by the router.
+     *
+     * @return The idle connection, or <code>null</code>.
+     */
+    private PooledAS400 pollIdle() {
+        final AS400SystemRouter.Route selected = router != null ? router.select() : null;
+        final List<AS400> stale = new ArrayList<>();
+        PooledAS400 pooled;
+        synchronized (idle) {
+            while ((pooled = idle.pollFirst()) != null && selected != null && routes.get(pooled.system()) != selected) {
+                stale.add(pooled.system());
+            }
+        }
+        stale.forEach(this::destroy);
+        return pooled;
+    }
+
+    private void destroy(AS400 system) {
+        routes.remove(system);
+        system.disconnectAllServices();
+        destroyedCount.incrementAndGet();
+    }
+
+    /**
+     * Evicts connections idle for more than <code>maxIdleTime</code> and refills the pool up to <code>minIdle</code>.
+     */
+    void maintain() {
+        final long idleSince = System.nanoTime() - maxIdleTime.toNanos();
+        final List<AS400> evicted = new ArrayList<>();
+        synchronized (idle) {
+            // Least recently used connections are at the end of the deque
+            final Iterator<PooledAS400> iterator = idle.descendingIterator();
+            while (idle.size() > minIdle && iterator.hasNext()) {
+                final PooledAS400 pooled = iterator.next();
+                if (pooled.lastUsed() - idleSince < 0) {
+                    iterator.remove();
+                    evicted.add(pooled.system());
+                }
+            }
+        }
+        evicted.forEach(this::destroy);
+
+        // A permit is held while a connection is created, like borrow() does, so that connections being created by
+        // borrowers are counted and the pool never exceeds maxSize
+        while (!closed && permits.tryAcquire()) {
+            synchronized (idle) {
+                if (idle.size() >= minIdle || idle.size() + maxSize - permits.availablePermits() > maxSize) {
+                    permits.release();
+                    break;
+                }
+            }
+            final AS400 system;
+            try {
+                system = create();
+            } catch (RuntimeException e) {
+                permits.release();
+                logger.warn("Exception while filling AS400 pool", e);
+                break;
+            }
+            final boolean added;
+            synchronized (idle) {
+                added = !closed;
+                if (added) {
+                    idle.addLast(new PooledAS400(system, System.nanoTime()));
+                }
+            }
+            permits.release();
+            if (!added) {
+                destroy(system);
+            }
+        }
+    }
+
+    private record PooledAS400(AS400 system, long lastUsed) {
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+/**
+ * Exception thrown when an <code>AS400</code> connection can't be obtained from an {@link AS400Pool}.
+ */
+@SuppressWarnings("unused")
+public class AS400PoolException extends RuntimeException {
+    public AS400PoolException(String msg, Throwable cause) {
+        super(msg, cause);
+    }
+
+    public AS400PoolException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import org.springframework.context.ApplicationListener;
+import org.springframework.security.authentication.event.LogoutSuccessEvent;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A cache of successful IBM i sign-ons used by {@link AS400AuthenticationProvider} to avoid a sign-on server round trip
+ * for users that authenticated recently.
+ * <p>Passwords are never stored: each entry holds a random salt and the SHA-256 hash of the salt and the password.</p>
+ * <p>Entries expire after <code>ttl</code>, the least recently used entries are evicted when the cache holds more than
+ * <code>maxSize</code> entries, and an entry is evicted when its user logs out. Call {@link #evict(String)} when a user
+ * profile is changed (password, status...).</p>
+ */
+public class AS400SignonCache implements ApplicationListener<LogoutSuccessEvent> {
+    private static final int SALT_LENGTH = 16;
+
+    private final long ttl;
+    private final Map<String, Entry> entries;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Creates a sign-on cache.
+     *
+     * @param ttl     The time a successful sign-on is trusted.
+     * @param maxSize The maximum number of cached users.
+     */
+    public AS400SignonCache(Duration ttl, int maxSize) {
+        this.ttl = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns <code>true</code> if the user signed on successfully with the same password less than <code>ttl</code> ago.
+     *
+     * @param username The username.
+     * @param password The password.
+     * @return <code>true</code> if the sign-on is cached and still valid.
+     */
+    public boolean isValid(String username, char[] password) {
+        final String key = key(username);
+        final Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            return false;
+        }
+        if (System.nanoTime() - entry.expiresAt() >= 0) {
+            synchronized (entries) {
+                entries.remove(key, entry);
+            }
+            return false;
+        }
+        return MessageDigest.isEqual(entry.hash(), hash(entry.salt(), password));
+    }
+
+    /**
+     * Records a successful sign-on.
+     *
+     * @param username The username.
+     * @param password The password.
+     */
+    public void put(String username, char[] password) {
+        final byte[] salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+        final Entry entry = new Entry(salt, hash(salt, password), System.nanoTime() + ttl);
+        synchronized (entries) {
+            entries.put(key(username), entry);
+        }
+    }
+
+    /**
+     * Removes the cached sign-on of a user.
+     *
+     * @param username The username.
+     */
+    public void evict(String username) {
+        synchronized (entries) {
+            entries.remove(key(username));
+        }
+    }
+
+    /**
+     * Removes all cached sign-ons.
+     */
+    public void evictAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * @return The number of cached sign-ons, including expired ones not yet removed.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(LogoutSuccessEvent event) {
+        evict(event.getAuthentication().getName());
+    }
+
+    private static String key(String username) {
+        return username.toUpperCase(Locale.ROOT);
+    }
+
+    private static byte[] hash(byte[] salt, char[] password) {
+        final ByteBuffer passwordBytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(salt);
+            digest.update(passwordBytes);
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        } finally {
+            if (passwordBytes.hasArray()) {
+                Arrays.fill(passwordBytes.array(), (byte) 0);
+            }
+        }
+    }
+
+    private record Entry(byte[] salt, byte[] hash, long expiresAt) {
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A per user profile cache of the granted authorities built from IBM i special authorities, used by
+ * {@link AS400AuthenticationProvider} to avoid opening a connection under the user profile on every login.
+ * <p>Entries expire after <code>ttl</code>. When an entry older than <code>refreshAfter</code> is read, the cached
+ * authorities are returned immediately and reloaded in the background with the credentials of the current login.</p>
+ * <p>Call {@link #invalidate(String)} when the special authorities of a user profile are changed.</p>
+ */
+public class AS400SpecialAuthorityCache implements AutoCloseable {
+    private final long ttl;
+    private final long refreshAfter;
+    private final Map<String, Entry> entries;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final ExecutorService refreshExecutor;
+
+    Logger logger = LoggerFactory.getLogger(AS400SpecialAuthorityCache.class);
+
+    /**
+     * Creates a special authority cache.
+     *
+     * @param ttl          The time cached authorities are used.
+     * @param refreshAfter The age after which cached authorities are reloaded in the background when read.
+     * @param maxSize      The maximum number of cached user profiles.
+     */
+    public AS400SpecialAuthorityCache(Duration ttl, Duration refreshAfter, int maxSize) {
+        this.ttl = ttl.toNanos();
+        this.refreshAfter = Math.min(refreshAfter.toNanos(), this.ttl);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+        this.refreshExecutor = Executors.newSingleThreadExecutor(r -> {
+            final Thread thread = new Thread(r, "ionspring-special-authority-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the cached authorities of a user profile, loading them if they are not cached or expired.
+     * <p>If loading fails, the error is logged, nothing is cached and an empty list is returned.</p>
+     *
+     * @param username The username.
+     * @param loader   Loads the authorities from the IBM i.
+     * @return A mutable copy of the cached authorities.
+     */
+    public List<GrantedAuthority> get(String username, Callable<List<GrantedAuthority>> loader) {
+        return get(username, loader, loader);
+    }
+
+    /**
+     * Returns the cached authorities of a user profile, loading them with <code>loader</code> if they are not cached or
+     * expired, and with <code>refreshLoader</code> when they are refreshed in the background.
+     * <p>If loading fails, the error is logged, nothing is cached and an empty list is returned.</p>
+     *
+     * @param username      The username.
+     * @param loader        Loads the authorities from the IBM i in the calling thread.
+     * @param refreshLoader Loads the authorities from the IBM i in a background thread.
+     * @return A mutable copy of the cached authorities.
+     */
+    public List<GrantedAuthority> get(String username, Callable<List<GrantedAuthority>> loader,
+                                      Callable<List<GrantedAuthority>> refreshLoader) {
+        final String key = key(username);
+        final Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        final long now = System.nanoTime();
+        if (entry != null && now - entry.loadedAt() < ttl) {
+            if (now - entry.loadedAt() >= refreshAfter && refreshing.add(key)) {
+                refresh(key, refreshLoader);
+            }
+            return new ArrayList<>(entry.authorities());
+        }
+        try {
+            final List<GrantedAuthority> authorities = load(key, loader);
+            return new ArrayList<>(authorities);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            logger.error("Exception while getting special authorities for user {}", username, e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Removes the cached authorities of a user profile.
+     *
+     * @param username The username.
+     */
+    public void invalidate(String username) {
+        synchronized (entries) {
+            entries.remove(key(username));
+        }
+    }
+
+    /**
+     * Removes all cached authorities.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * @return The number of cached user profiles, including expired ones not yet removed.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public void close() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private void refresh(String key, Callable<List<GrantedAuthority>> loader) {
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    load(key, loader);
+                } catch (Exception e) {
+                    logger.warn("Exception while refreshing special authorities for user {}", key, e);
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+        }
+    }
+
+    private List<GrantedAuthority> load(String key, Callable<List<GrantedAuthority>> loader) throws Exception {
+        final List<GrantedAuthority> authorities = List.copyOf(loader.call());
+        synchronized (entries) {
+            entries.put(key, new Entry(authorities, System.nanoTime()));
+        }
+        return authorities;
+    }
+
+    private static String key(String username) {
+        return username.toUpperCase(Locale.ROOT);
+    }
+
+    private record Entry(List<GrantedAuthority> authorities, long loadedAt) {
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400;
+import com.ibm.as400.access.SecureAS400;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.TargetSource;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routes the IBM i calls to one of several systems, for instance a production partition and its HA replica.
+ * <p>Each system has a priority, the lowest value being preferred, and a circuit breaker. The systems are probed in
+ * the background by connecting to their sign-on host server port with a short timeout, and the probe latency is
+ * averaged. Calls go to the first available system ordered by: latency above <code>latencyThreshold</code>, priority,
+ * then average latency. A system's circuit opens after <code>failureThreshold</code> consecutive failures, from
+ * probes or from calls, so that calls skip it immediately instead of waiting for TCP timeouts. It is half-open after
+ * <code>openDuration</code>: the next success closes it, the next failure opens it again.</p>
+ * <p>{@link #createProxy()} returns an <code>AS400</code> object pinned to the selected system until its circuit opens,
+ * so that the calls of a jt400 operation don't mix systems. An {@link AS400Pool} created with the router connects
+ * to the selected system and drops its idle connections to the other systems. The systems must all be secured or all
+ * be non-secured.</p>
+ */
+public class AS400SystemRouter implements AutoCloseable {
+    private static final int SIGNON_PORT = 8476;
+    private static final int SECURE_SIGNON_PORT = 9476;
+
+    private final List<Route> routes;
+    private final Map<AS400, Route> routesBySystem = new IdentityHashMap<>();
+    private final int failureThreshold;
+    private final long openDuration;
+    private final long latencyThreshold;
+    private final SystemProbe probe;
+    private final ScheduledExecutorService prober;
+
+    Logger logger = LoggerFactory.getLogger(AS400SystemRouter.class);
+
+    /**
+     * Checks that a system is reachable.
+     */
+    @FunctionalInterface
+    public interface SystemProbe {
+        /**
+         * @param system The system.
+         * @throws Exception if the system is not reachable.
+         */
+        void probe(AS400 system) throws Exception;
+    }
+
+    /**
+     * Creates a router probing the sign-on host server port of the systems.
+     *
+     * @param routes           The systems.
+     * @param failureThreshold The number of consecutive failures opening a system's circuit.
+     * @param openDuration     The time a system's circuit stays open.
+     * @param latencyThreshold The average probe latency above which a system is only used if no faster one is available.
+     * @param probeInterval    The interval between two probes of each system.
+     * @param probeTimeout     The connect timeout of the probes.
+     */
+    public AS400SystemRouter(List<Route> routes, int failureThreshold, Duration openDuration, Duration latencyThreshold,
+                             Duration probeInterval, Duration probeTimeout) {
+        this(routes, failureThreshold, openDuration, latencyThreshold, probeInterval, system -> {
+            int port = system.getServicePort(AS400.SIGNON);
+            if (port <= 0) {
+                port = system instanceof SecureAS400 ? SECURE_SIGNON_PORT : SIGNON_PORT;
+            }
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress(system.getSystemName(), port), (int) probeTimeout.toMillis());
+            }
+        });
+    }
+
+    /**
+     * Creates a router.
+     *
+     * @param routes           The systems.
+     * @param failureThreshold The number of consecutive failures opening a system's circuit.
+     * @param openDuration     The time a system's circuit stays open.
+     * @param latencyThreshold The average probe latency above which a system is only used if no faster one is available.
+     * @param probeInterval    The interval between two probes of each system, zero to disable probes.
+     * @param probe            The probe.
+     */
+    public AS400SystemRouter(List<Route> routes, int failureThreshold, Duration openDuration, Duration latencyThreshold,
+                             Duration probeInterval, SystemProbe probe) {
+        if (routes.isEmpty()) {
+            throw new IllegalArgumentException("At least one system is required");
+        }
+        final Class<?> systemClass = routes.get(0).system.getClass();
+        for (Route route : routes) {
+            if (route.system.getClass() != systemClass) {
+                throw new IllegalArgumentException("The systems must all be secured or all be non-secured, system "
+                        + route.getName() + " is a " + route.system.getClass().getSimpleName() + " and system "
+                        + routes.get(0).getName() + " a " + systemClass.getSimpleName());
+            }
+        }
+        this.routes = List.copyOf(routes);
+        this.routes.forEach(route -> routesBySystem.put(route.system, route));
+        this.failureThreshold = Math.max(failureThreshold, 1);
+        this.openDuration = openDuration.toNanos();
+        this.latencyThreshold = latencyThreshold.toNanos();
+        this.probe = probe;
+        if (probeInterval.isZero()) {
+            prober = null;
+        } else {
+            prober = Executors.newSingleThreadScheduledExecutor(AS400Executors.daemonThreadFactory("ionspring-as400-router-"));
+            prober.scheduleWithFixedDelay(this::probeAll, 0, probeInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Returns the systems that can be called, in preference order.
+     *
+     * @return The available systems, empty if all circuits are open.
+     */
+    public List<Route> getAvailableRoutes() {
+        final long now = System.nanoTime();
+        final List<Route> available = new ArrayList<>();
+        for (Route route : routes) {
+            if (route.isAvailable(now)) {
+                available.add(route);
+            }
+        }
+        available.sort(Comparator.<Route, Boolean>comparing(route -> route.latency > latencyThreshold)
+                .thenComparingInt(Route::getPriority)
+                .thenComparingLong(route -> route.latency));
+        return available;
+    }
+
+    /**
+     * Returns the preferred available system.
+     *
+     * @return The system.
+     * @throws AS400RoutingException if all circuits are open.
+     */
+    public Route select() {
+        final List<Route> available = getAvailableRoutes();
+        if (available.isEmpty()) {
+            throw new AS400RoutingException("No IBM i system available, all circuits are open");
+        }
+        return available.get(0);
+    }
+
+    /**
+     * @return All the systems.
+     */
+    public List<Route> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * Records a successful call.
+     *
+     * @param route The called system.
+     */
+    public void recordSuccess(Route route) {
+        route.success();
+    }
+
+    /**
+     * Records a failed call, opening the system's circuit if it failed <code>failureThreshold</code> times in a row.
+     *
+     * @param route The called system.
+     */
+    public void recordFailure(Route route) {
+        if (route.failure(failureThreshold, openDuration)) {
+            logger.warn("Circuit of IBM i system {} ({}) opened", route.getName(), route.system.getSystemName());
+        }
+    }
+
+    /**
+     * Creates an <code>AS400</code> object forwarding the method calls to the selected system. The proxy stays pinned
+     * to that system until its circuit opens, it then selects the preferred available system again, it doesn't fail
+     * back when a preferred system recovers. The calls of methods declaring an <code>IOException</code> are recorded
+     * as successes or, when they throw one, as failures of the system.
+     *
+     * @return The proxy.
+     */
+    public AS400 createProxy() {
+        final ProxyFactory proxyFactory = new ProxyFactory();
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.setTargetSource(new TargetSource() {
+            private Route pinned;
+
+            @Override
+            public Class<?> getTargetClass() {
+                return routes.get(0).system.getClass();
+            }
+
+            @Override
+            public boolean isStatic() {
+                return false;
+            }
+
+            @Override
+            public synchronized Object getTarget() {
+                if (pinned == null || pinned.isOpen()) {
+                    pinned = select();
+                }
+                return pinned.system;
+            }
+
+            @Override
+            public void releaseTarget(Object target) {
+            }
+        });
+        proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+            final Route route = routesBySystem.get((AS400) invocation.getThis());
+            try {
+                final Object result = invocation.proceed();
+                if (throwsIOException(invocation.getMethod())) {
+                    recordSuccess(route);
+                }
+                return result;
+            } catch (IOException e) {
+                recordFailure(route);
+                throw e;
+            }
+        });
+        return (AS400) proxyFactory.getProxy(AS400SystemRouter.class.getClassLoader());
+    }
+
+    @Override
+    public void close() {
+        if (prober != null) {
+            prober.shutdownNow();
+        }
+    }
+
+    private static boolean throwsIOException(Method method) {
+        for (Class<?> exceptionType : method.getExceptionTypes()) {
+            if (exceptionType.isAssignableFrom(IOException.class) || IOException.class.isAssignableFrom(exceptionType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void probeAll() {
+        for (Route route : routes) {
+            final long start = System.nanoTime();
+            try {
+                probe.probe(route.system);
+                route.latency(System.nanoTime() - start);
+                route.success();
+            } catch (Exception e) {
+                logger.debug("Probe of IBM i system {} failed", route.getName(), e);
+                recordFailure(route);
+            }
+        }
+    }
+
+    /**
+     * A system and its circuit.
+     */
+    public static final class Route {
+        private final String name;
+        private final int priority;
+        private final AS400 system;
+        private int failures = 0;
+        private long openUntil = 0;
+        private boolean open = false;
+        private volatile long latency = 0;
+
+        /**
+         * Creates a route.
+         *
+         * @param name     The name of the system, used in logs and metrics.
+         * @param priority The priority, the lowest value being preferred.
+         * @param system   The <code>AS400</code> object of the system.
+         */
+        public Route(String name, int priority, AS400 system) {
+            this.name = name;
+            this.priority = priority;
+            this.system = system;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        public AS400 getSystem() {
+            return system;
+        }
+
+        /**
+         * @return The average probe latency.
+         */
+        public Duration getLatency() {
+            return Duration.ofNanos(latency);
+        }
+
+        /**
+         * @return <code>true</code> if the circuit is open or half-open.
+         */
+        public synchronized boolean isOpen() {
+            return open;
+        }
+
+        synchronized boolean isAvailable(long now) {
+            return !open || now - openUntil >= 0;
+        }
+
+        synchronized void success() {
+            failures = 0;
+            open = false;
+        }
+
+        synchronized boolean failure(int failureThreshold, long openDuration) {
+            failures++;
+            // A half-open circuit opens again on the first failure
+            if (open || failures >= failureThreshold) {
+                final boolean opened = !open;
+                open = true;
+                openUntil = System.nanoTime() + openDuration;
+                return opened;
+            }
+            return false;
+        }
+
+        void latency(long nanos) {
+            // Exponentially weighted moving average
+            latency = latency == 0 ? nanos : (latency * 3 + nanos) / 4;
+        }
+    }
+}
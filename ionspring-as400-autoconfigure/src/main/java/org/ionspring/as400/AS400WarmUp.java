@@ -0,0 +1,224 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Connects the lazy IBM i beans in the background while the application starts, and holds the readiness state at
+ * {@link ReadinessState#REFUSING_TRAFFIC} until they are connected.
+ * <p>The <code>AS400</code> services, the {@link AS400Pool} connections and the JDBC connections are opened in
+ * parallel when the context starts, without delaying the context refresh. Spring Boot only publishes
+ * {@link ReadinessState#ACCEPTING_TRAFFIC} once the application runners returned, and this runner, ordered last, waits
+ * until the warm-up completes, fails or times out: the web server and the liveness state are up meanwhile, and a host
+ * that is down must not keep the node out of the load balancer forever, the health indicators report it.</p>
+ */
+public class AS400WarmUp implements SmartLifecycle, ApplicationRunner, Ordered {
+    private final Supplier<AS400> as400;
+    private final int[] services;
+    private final Supplier<AS400Pool> pool;
+    private final Supplier<DataSource> dataSource;
+    private final int jdbcConnections;
+    private final Duration timeout;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private ExecutorService executor;
+    private volatile boolean running = false;
+
+    Logger logger = LoggerFactory.getLogger(AS400WarmUp.class);
+
+    /**
+     * Creates a warm-up.
+     *
+     * @param as400           Supplies the shared <code>AS400</code> object, or <code>null</code> to skip it.
+     * @param services        The services (<code>AS400.SIGNON</code>, <code>AS400.COMMAND</code>...) connected on the shared <code>AS400</code> object.
+     * @param pool            Supplies the pool, or <code>null</code> to skip it. {@link AS400Pool#getMinIdle()} connections are created.
+     * @param dataSource      Supplies the DataSource, or <code>null</code> to skip it.
+     * @param jdbcConnections The number of JDBC connections opened at the same time, filling the connection pool.
+     * @param timeout         The time after which the application is ready even if the warm-up didn't complete.
+     */
+    public AS400WarmUp(Supplier<AS400> as400, int[] services, Supplier<AS400Pool> pool, Supplier<DataSource> dataSource,
+                       int jdbcConnections, Duration timeout) {
+        this.as400 = as400;
+        this.services = services.clone();
+        this.pool = pool;
+        this.dataSource = dataSource;
+        this.jdbcConnections = Math.max(jdbcConnections, 1);
+        this.timeout = timeout;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        if (completion.isDone()) {
+            return;
+        }
+        final ExecutorService taskExecutor = AS400Executors.newVirtualThreadExecutor("ionspring-warmup-");
+        executor = taskExecutor;
+        final long start = System.nanoTime();
+        final List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        tasks.add(CompletableFuture.runAsync(this::connectServices, taskExecutor));
+        tasks.add(CompletableFuture.runAsync(this::fillPool, taskExecutor));
+        tasks.add(CompletableFuture.runAsync(() -> fillJdbcPool(taskExecutor), taskExecutor));
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0]))
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((result, e) -> {
+                    if (e != null) {
+                        logger.warn("IBM i warm-up did not complete after {} ms, accepting traffic anyway",
+                                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), e);
+                    } else {
+                        logger.info("IBM i warm-up completed in {} ms",
+                                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    }
+                    taskExecutor.shutdown();
+                    completion.complete(null);
+                });
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Waits until the warm-up completes, fails or times out, holding the readiness state.
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!running || completion.isDone()) {
+            return;
+        }
+        logger.info("Waiting for the IBM i warm-up before accepting traffic");
+        completion.join();
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+
+    /**
+     * @return <code>true</code> if the warm-up completed, failed or timed out.
+     */
+    public boolean isComplete() {
+        return completion.isDone();
+    }
+
+    /**
+     * @return A future completed when the warm-up completed, failed or timed out.
+     */
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+    private void connectServices() {
+        final AS400 system = as400 != null ? as400.get() : null;
+        if (system == null) {
+            return;
+        }
+        for (int service : services) {
+            try {
+                system.connectService(service);
+            } catch (Exception e) {
+                logger.warn("Exception while connecting service {} on {}", service, system.getSystemName(), e);
+            }
+        }
+    }
+
+    private void fillPool() {
+        final AS400Pool as400Pool = pool != null ? pool.get() : null;
+        if (as400Pool == null) {
+            return;
+        }
+        // Borrowed together so that each one is a distinct connection
+        final List<AS400> borrowed = new ArrayList<>();
+        try {
+            for (int i = 0; i < as400Pool.getMinIdle(); i++) {
+                borrowed.add(as400Pool.borrow());
+            }
+        } catch (AS400PoolException e) {
+            logger.warn("Exception while filling the AS400 pool", e);
+        } finally {
+            borrowed.forEach(as400Pool::release);
+        }
+    }
+
+    private void fillJdbcPool(ExecutorService taskExecutor) {
+        final DataSource ds = dataSource != null ? dataSource.get() : null;
+        if (ds == null) {
+            return;
+        }
+        // Kept open until all are opened so that each one is a distinct connection, closing them returns them to
+        // the connection pool
+        final List<CompletableFuture<Connection>> connections = new ArrayList<>();
+        for (int i = 0; i < jdbcConnections; i++) {
+            connections.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return ds.getConnection();
+                } catch (SQLException e) {
+                    throw new CompletionException(e);
+                }
+            }, taskExecutor));
+        }
+        for (CompletableFuture<Connection> connection : connections) {
+            try {
+                connection.join();
+            } catch (CompletionException e) {
+                logger.warn("Exception while opening a JDBC connection", e.getCause());
+            }
+        }
+        for (CompletableFuture<Connection> connection : connections) {
+            if (!connection.isCompletedExceptionally()) {
+                try {
+                    connection.join().close();
+                } catch (SQLException e) {
+                    logger.warn("Exception while closing a JDBC connection", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes entries to a data queue in batches, so that entries sent by many threads share the same connection and
+ * round trips.
+ * <p>An entry is written at most <code>linger</code> after it's sent, or as soon as <code>maxBatchSize</code> entries
+ * are waiting. Batches are written in order by a single background thread.</p>
+ */
+public class BatchingDataQueueProducer implements AutoCloseable {
+    private final DataQueueEndpoint endpoint;
+    private final int maxBatchSize;
+    private final Duration linger;
+    private final ScheduledExecutorService writer;
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final Object writeLock = new Object();
+    private List<Pending> buffer = new ArrayList<>();
+    private boolean closed = false;
+
+    /**
+     * Creates a batching producer.
+     *
+     * @param endpoint     The data queue endpoint.
+     * @param maxBatchSize The maximum number of entries written in one batch.
+     * @param linger       The maximum time an entry waits for other entries before being written.
+     */
+    public BatchingDataQueueProducer(DataQueueEndpoint endpoint, int maxBatchSize, Duration linger) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        }
+        this.endpoint = endpoint;
+        this.maxBatchSize = maxBatchSize;
+        this.linger = linger;
+        this.writer = Executors.newSingleThreadScheduledExecutor(AS400Executors.daemonThreadFactory("ionspring-dataqueue-producer-"));
+    }
+
+    /**
+     * Sends an entry.
+     *
+     * @param message The entry.
+     * @return A future completed when the entry is written, or exceptionally if its batch can't be written.
+     */
+    public CompletableFuture<Void> send(DataQueueMessage message) {
+        final Pending pending = new Pending(message, new CompletableFuture<>());
+        synchronized (this) {
+            if (closed) {
+                pending.future().completeExceptionally(new IllegalStateException("Producer is closed"));
+                return pending.future();
+            }
+            buffer.add(pending);
+            try {
+                if (buffer.size() >= maxBatchSize) {
+                    writer.execute(this::flush);
+                } else if (buffer.size() == 1) {
+                    writer.schedule(this::flush, linger.toNanos(), TimeUnit.NANOSECONDS);
+                }
+            } catch (RejectedExecutionException e) {
+                buffer.remove(pending);
+                pending.future().completeExceptionally(e);
+            }
+        }
+        return pending.future();
+    }
+
+    /**
+     * Sends an entry with raw data.
+     *
+     * @param data The entry data.
+     * @return A future completed when the entry is written.
+     */
+    public CompletableFuture<Void> send(byte[] data) {
+        return send(new DataQueueMessage(data));
+    }
+
+    /**
+     * Writes the waiting entries now.
+     */
+    public void flush() {
+        // Batches are taken and written under the same lock so that they are written in order
+        synchronized (writeLock) {
+            final List<Pending> batch;
+            synchronized (this) {
+                if (buffer.isEmpty()) {
+                    return;
+                }
+                batch = buffer;
+                buffer = new ArrayList<>();
+            }
+            for (int from = 0; from < batch.size(); from += maxBatchSize) {
+                final List<Pending> chunk = batch.subList(from, Math.min(from + maxBatchSize, batch.size()));
+                try {
+                    endpoint.send(chunk.stream().map(Pending::message).toList());
+                    batchCount.incrementAndGet();
+                    sentCount.addAndGet(chunk.size());
+                    chunk.forEach(pending -> pending.future().complete(null));
+                } catch (Exception e) {
+                    failedCount.addAndGet(chunk.size());
+                    chunk.forEach(pending -> pending.future().completeExceptionally(e));
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the waiting entries and stops the background thread.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        writer.shutdownNow();
+        flush();
+    }
+
+    /**
+     * @return The number of entries written.
+     */
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    /**
+     * @return The number of batches written.
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * @return The number of entries that couldn't be written.
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    private record Pending(DataQueueMessage message, CompletableFuture<Void> future) {
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400File;
+import com.ibm.as400.access.Record;
+
+import java.util.Arrays;
+
+/**
+ * Writes records at the end of a file opened by {@link RecordAccessTemplate#openWriter(String)}, sending them by
+ * blocks of <code>bufferSize</code> records. Writers are not thread safe and must be closed to write the last
+ * records and release their connection.
+ * <p>A failed block write might have written part of the block, so a writer is unusable after a failure: the
+ * following calls fail, except {@link #close()} which only releases the connection. {@link #getWrittenCount()} doesn't
+ * count the failed block.</p>
+ */
+public class BufferedRecordWriter implements AutoCloseable {
+    private final String path;
+    private final AS400File file;
+    private final Record[] buffer;
+    private final Runnable onClose;
+    private int size = 0;
+    private long writtenCount = 0;
+    private boolean closed = false;
+    private boolean failed = false;
+
+    BufferedRecordWriter(String path, AS400File file, int bufferSize, Runnable onClose) {
+        this.path = path;
+        this.file = file;
+        this.buffer = new Record[bufferSize];
+        this.onClose = onClose;
+    }
+
+    /**
+     * @return A new record of the file record format, to fill and pass to {@link #write(Record)}.
+     * @throws RecordAccessException if the record can't be created.
+     */
+    public Record newRecord() throws RecordAccessException {
+        try {
+            return file.getRecordFormat().getNewRecord();
+        } catch (Exception e) {
+            throw new RecordAccessException("Unable to create a record for " + path, e);
+        }
+    }
+
+    /**
+     * Adds a record to the buffer, writing the buffer if it's full.
+     *
+     * @param record The record.
+     * @throws RecordAccessException if the buffer can't be written.
+     */
+    public void write(Record record) throws RecordAccessException {
+        checkUsable();
+        buffer[size++] = record;
+        if (size == buffer.length) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the buffered records.
+     *
+     * @throws RecordAccessException if the records can't be written.
+     */
+    public void flush() throws RecordAccessException {
+        if (size == 0) {
+            return;
+        }
+        checkUsable();
+        final Record[] records = size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+        try {
+            file.write(records);
+        } catch (InterruptedException e) {
+            failed = true;
+            Thread.currentThread().interrupt();
+            throw new RecordAccessException("Interrupted while writing to " + path, e);
+        } catch (Exception e) {
+            failed = true;
+            throw new RecordAccessException("Unable to write to " + path, e);
+        }
+        writtenCount += size;
+        Arrays.fill(buffer, null);
+        size = 0;
+    }
+
+    private void checkUsable() {
+        if (closed) {
+            throw new IllegalStateException("Writer is closed");
+        }
+        if (failed) {
+            throw new RecordAccessException("A previous write to " + path + " failed, part of its records might have been written");
+        }
+    }
+
+    /**
+     * @return The number of records written to the file, excluding the buffered ones.
+     */
+    public long getWrittenCount() {
+        return writtenCount;
+    }
+
+    /**
+     * Writes the buffered records, unless a previous write failed, closes the file and releases the connection.
+     *
+     * @throws RecordAccessException if the records can't be written.
+     */
+    @Override
+    public void close() throws RecordAccessException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (!failed) {
+                flush();
+            }
+        } finally {
+            closed = true;
+            onClose.run();
+        }
+    }
+}
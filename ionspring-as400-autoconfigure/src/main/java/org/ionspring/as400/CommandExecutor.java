@@ -0,0 +1,177 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400;
+import com.ibm.as400.access.AS400Message;
+import com.ibm.as400.access.CommandCall;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs CL commands and returns typed results.
+ * <p>A batch runs all its commands with the same <code>CommandCall</code>, on a connection borrowed from the
+ * {@link AS400Pool} if one is set, the shared <code>AS400</code> otherwise, so that they share one remote command
+ * server job. {@link #executeParallel(List, int)} splits a batch over several pooled connections.</p>
+ */
+public class CommandExecutor implements AutoCloseable {
+    private final AS400 as400;
+    private final AS400Pool pool;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a command executor.
+     *
+     * @param as400 The shared <code>AS400</code>, used when <code>pool</code> is <code>null</code>.
+     * @param pool  The connection pool, or <code>null</code>.
+     */
+    public CommandExecutor(AS400 as400, AS400Pool pool) {
+        this.as400 = as400;
+        this.pool = pool;
+        this.executor = AS400Executors.newVirtualThreadExecutor("ionspring-commands-");
+    }
+
+    /**
+     * Runs a command.
+     *
+     * @param command The command.
+     * @return The command result.
+     * @throws CommandCallException if the command can't be run.
+     */
+    public CommandResult execute(String command) throws CommandCallException {
+        return executeBatch(List.of(command), false).get(0);
+    }
+
+    /**
+     * Runs commands one after the other in the same remote command server job.
+     *
+     * @param commands    The commands.
+     * @param stopOnError <code>true</code> to stop at the first failed command, the following ones have no result.
+     * @return The command results, in order.
+     * @throws CommandCallException if the commands can't be run.
+     */
+    public List<CommandResult> executeBatch(List<String> commands, boolean stopOnError) throws CommandCallException {
+        return executeBatch(commands, stopOnError, () -> false);
+    }
+
+    /**
+     * Runs commands one after the other in the same remote command server job, stopping before the next command
+     * once <code>cancelled</code> returns <code>true</code>.
+     */
+    List<CommandResult> executeBatch(List<String> commands, boolean stopOnError, BooleanSupplier cancelled)
+            throws CommandCallException {
+        try {
+            return pool != null ? pool.execute(system -> run(system, commands, stopOnError, cancelled))
+                    : run(as400, commands, stopOnError, cancelled);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommandCallException("Interrupted while running commands", e);
+        } catch (Exception e) {
+            throw new CommandCallException("Unable to run commands: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Runs independent commands over several pooled connections. Commands are split in <code>parallelism</code>
+     * batches of consecutive commands, each run in its own remote command server job. Without pool, the commands
+     * are run as a single batch. When a batch fails, the other batches stop before their next command.
+     *
+     * @param commands    The commands.
+     * @param parallelism The maximum number of connections used.
+     * @return The command results, in the order of the commands.
+     * @throws CommandCallException if commands can't be run.
+     */
+    public List<CommandResult> executeParallel(List<String> commands, int parallelism) throws CommandCallException {
+        if (pool == null || parallelism <= 1 || commands.size() <= 1) {
+            return executeBatch(commands, false);
+        }
+        final int batches = Math.min(parallelism, commands.size());
+        final int batchSize = (commands.size() + batches - 1) / batches;
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final List<CompletableFuture<List<CommandResult>>> futures = new ArrayList<>();
+        for (int from = 0; from < commands.size(); from += batchSize) {
+            final List<String> batch = commands.subList(from, Math.min(from + batchSize, commands.size()));
+            futures.add(CompletableFuture.supplyAsync(() -> executeBatch(batch, false, () -> failure.get() != null), executor));
+        }
+        // The first failure cancels the other batches: those waiting for the executor don't start, the running ones
+        // stop before their next command
+        futures.forEach(future -> future.whenComplete((result, e) -> {
+            if (e instanceof CompletionException && failure.compareAndSet(null, e.getCause())) {
+                futures.forEach(other -> other.cancel(false));
+            }
+        }));
+        final List<CommandResult> results = new ArrayList<>(commands.size());
+        try {
+            for (CompletableFuture<List<CommandResult>> future : futures) {
+                results.addAll(future.join());
+            }
+        } catch (CompletionException | CancellationException e) {
+            failure.compareAndSet(null, e.getCause());
+            futures.forEach(future -> future.cancel(false));
+            final Throwable cause = failure.get();
+            if (cause instanceof CommandCallException commandCallException) {
+                throw commandCallException;
+            }
+            throw new CommandCallException("Unable to run commands: " + cause.getMessage(), cause);
+        }
+        return results;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private List<CommandResult> run(AS400 system, List<String> commands, boolean stopOnError, BooleanSupplier cancelled)
+            throws Exception {
+        final CommandCall commandCall = new CommandCall(system);
+        final List<CommandResult> results = new ArrayList<>(commands.size());
+        for (String command : commands) {
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException("Commands cancelled after a failure");
+            }
+            final CommandResult result = run(commandCall, command);
+            results.add(result);
+            if (!result.success() && stopOnError) {
+                break;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Runs a command with the <code>CommandCall</code> of its batch.
+     *
+     * @param commandCall The command call.
+     * @param command     The command.
+     * @return The command result.
+     * @throws Exception if the command can't be run.
+     */
+    CommandResult run(CommandCall commandCall, String command) throws Exception {
+        final boolean success = commandCall.run(command);
+        final AS400Message[] messages = commandCall.getMessageList();
+        return new CommandResult(command, success, Arrays.stream(messages).map(CommandMessage::of).toList());
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400Message;
+
+/**
+ * Message returned by a command or a program.
+ *
+ * @param id       The message identifier, for instance <code>CPF9801</code>.
+ * @param severity The message severity, from 0 to 99.
+ * @param type     The message type, one of the <code>AS400Message</code> type constants.
+ * @param text     The message text.
+ */
+public record CommandMessage(String id, int severity, int type, String text) {
+    /**
+     * @param message The jt400 message.
+     * @return The message.
+     */
+    public static CommandMessage of(AS400Message message) {
+        return new CommandMessage(message.getID(), message.getSeverity(), message.getType(), message.getText());
+    }
+
+    /**
+     * @return <code>true</code> for escape messages, which end a command in error.
+     */
+    public boolean isEscape() {
+        return type == AS400Message.ESCAPE;
+    }
+}
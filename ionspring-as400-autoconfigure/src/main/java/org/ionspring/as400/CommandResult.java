@@ -0,0 +1,51 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Result of a command run by a {@link CommandExecutor}.
+ *
+ * @param command  The command.
+ * @param success  <code>true</code> if the command ended normally.
+ * @param messages The messages returned by the command.
+ */
+public record CommandResult(String command, boolean success, List<CommandMessage> messages) {
+    /**
+     * @return The highest message severity, 0 if there is no message.
+     */
+    public int maxSeverity() {
+        return messages.stream().mapToInt(CommandMessage::severity).max().orElse(0);
+    }
+
+    /**
+     * @param id The message identifier, for instance <code>CPF9801</code>.
+     * @return <code>true</code> if the command returned this message.
+     */
+    public boolean hasMessage(String id) {
+        return messages.stream().anyMatch(message -> message.id().equals(id));
+    }
+
+    /**
+     * @return The escape message that ended the command in error, if any.
+     */
+    public Optional<CommandMessage> escapeMessage() {
+        return messages.stream().filter(CommandMessage::isEscape).findFirst();
+    }
+}
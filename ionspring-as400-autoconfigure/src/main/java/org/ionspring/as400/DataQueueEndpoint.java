@@ -0,0 +1,45 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Reads and writes the entries of one data queue. Implemented by {@link AS400DataQueueEndpoint} for IBM i data queues
+ * and by {@link InMemoryDataQueueEndpoint} for tests.
+ */
+public interface DataQueueEndpoint {
+    /**
+     * Receives up to <code>maxEntries</code> entries, removing them from the queue. Waits at most <code>wait</code> for
+     * the first entry, then takes the following ones only if they are already available.
+     *
+     * @param maxEntries The maximum number of entries to receive.
+     * @param wait       The maximum wait for the first entry.
+     * @return The received entries, empty if none arrived in time.
+     * @throws Exception if the queue can't be read.
+     */
+    List<DataQueueMessage> receive(int maxEntries, Duration wait) throws Exception;
+
+    /**
+     * Writes entries to the queue, in order.
+     *
+     * @param messages The entries to write.
+     * @throws Exception if the queue can't be written.
+     */
+    void send(List<DataQueueMessage> messages) throws Exception;
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+/**
+ * Creates the {@link DataQueueEndpoint}s used by {@link DataQueueListener} methods.
+ */
+@FunctionalInterface
+public interface DataQueueEndpointFactory {
+    /**
+     * @param queue      The data queue path, for instance <code>/QSYS.LIB/MYLIB.LIB/ORDERS.DTAQ</code>.
+     * @param key        The key to search in a keyed data queue, or an empty string for a non keyed data queue.
+     * @param searchType The key search type: <code>EQ</code>, <code>NE</code>, <code>LT</code>, <code>LE</code>,
+     *                   <code>GT</code> or <code>GE</code>.
+     * @return The endpoint.
+     */
+    DataQueueEndpoint getEndpoint(String queue, String key, String searchType);
+}
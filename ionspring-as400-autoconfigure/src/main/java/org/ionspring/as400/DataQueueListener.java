@@ -0,0 +1,73 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a bean method as the listener of a data queue. A {@link DataQueueListenerContainer} is started for each
+ * annotated method when the application context starts.
+ * <p>The method takes a single parameter: a <code>List&lt;DataQueueMessage&gt;</code> to receive whole batches, a
+ * {@link DataQueueMessage} or a <code>byte[]</code> to receive the entries one by one.</p>
+ * <p>Example:</p>
+ * <pre>
+ * &#64;DataQueueListener(queue = "/QSYS.LIB/MYLIB.LIB/ORDERS.DTAQ", concurrency = 4, maxBatchSize = 50)
+ * public void onOrders(List&lt;DataQueueMessage&gt; orders) {
+ *     ...
+ * }
+ * </pre>
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface DataQueueListener {
+    /**
+     * @return The data queue path, for instance <code>/QSYS.LIB/MYLIB.LIB/ORDERS.DTAQ</code>. Placeholders are
+     * resolved.
+     */
+    String queue();
+
+    /**
+     * @return The key to search for a keyed data queue, empty for a non keyed data queue. Placeholders are resolved.
+     */
+    String key() default "";
+
+    /**
+     * @return The key search type: <code>EQ</code>, <code>NE</code>, <code>LT</code>, <code>LE</code>,
+     * <code>GT</code> or <code>GE</code>.
+     */
+    String searchType() default "EQ";
+
+    /**
+     * @return The number of consumers.
+     */
+    int concurrency() default 1;
+
+    /**
+     * @return The maximum number of entries received at once.
+     */
+    int maxBatchSize() default 10;
+
+    /**
+     * @return The maximum wait of a receive, for instance <code>30s</code>. Placeholders are resolved.
+     */
+    String receiveTimeout() default "30s";
+}
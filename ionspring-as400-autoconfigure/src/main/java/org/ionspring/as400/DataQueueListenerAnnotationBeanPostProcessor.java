@@ -0,0 +1,171 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Detects the {@link DataQueueListener} methods of the beans and runs a {@link DataQueueListenerContainer} for each of
+ * them while the application context is running.
+ * <p>Endpoints are created by the {@link DataQueueEndpointFactory} bean and containers are customized by the
+ * {@link DataQueueListenerContainerCustomizer} beans, both looked up when the context starts.</p>
+ */
+public class DataQueueListenerAnnotationBeanPostProcessor implements BeanPostProcessor, BeanFactoryAware,
+        EnvironmentAware, SmartLifecycle {
+    private final List<Registration> registrations = new ArrayList<>();
+    private final List<DataQueueListenerContainer> containers = new ArrayList<>();
+    private BeanFactory beanFactory;
+    private Environment environment;
+    private volatile boolean running = false;
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        this.beanFactory = beanFactory;
+    }
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        final Class<?> targetClass = AopUtils.getTargetClass(bean);
+        final Map<Method, DataQueueListener> methods = MethodIntrospector.selectMethods(targetClass,
+                (MethodIntrospector.MetadataLookup<DataQueueListener>) method ->
+                        AnnotatedElementUtils.findMergedAnnotation(method, DataQueueListener.class));
+        methods.forEach((method, annotation) -> {
+            final Method invocableMethod = AopUtils.selectInvocableMethod(method, bean.getClass());
+            if (invocableMethod.getParameterCount() != 1) {
+                throw new IllegalStateException("@DataQueueListener method " + method + " must have a single parameter");
+            }
+            final Class<?> parameterType = invocableMethod.getParameterTypes()[0];
+            if (!List.class.isAssignableFrom(parameterType) && parameterType != DataQueueMessage.class
+                    && parameterType != byte[].class) {
+                throw new IllegalStateException("@DataQueueListener method " + method
+                        + " parameter must be a List<DataQueueMessage>, a DataQueueMessage or a byte[]");
+            }
+            ReflectionUtils.makeAccessible(invocableMethod);
+            synchronized (registrations) {
+                registrations.add(new Registration(beanName + "." + method.getName(), bean, invocableMethod, annotation));
+            }
+        });
+        return bean;
+    }
+
+    @Override
+    public void start() {
+        synchronized (registrations) {
+            if (running || registrations.isEmpty()) {
+                running = true;
+                return;
+            }
+            final DataQueueEndpointFactory endpointFactory = beanFactory.getBean(DataQueueEndpointFactory.class);
+            final List<DataQueueListenerContainerCustomizer> customizers = beanFactory
+                    .getBeanProvider(DataQueueListenerContainerCustomizer.class).orderedStream().toList();
+            for (Registration registration : registrations) {
+                final DataQueueListener annotation = registration.annotation();
+                final DataQueueEndpoint endpoint = endpointFactory.getEndpoint(
+                        environment.resolvePlaceholders(annotation.queue()),
+                        environment.resolvePlaceholders(annotation.key()), annotation.searchType());
+                final DataQueueListenerContainer container = new DataQueueListenerContainer(registration.name(),
+                        endpoint, listener(registration), annotation.concurrency(), annotation.maxBatchSize(),
+                        DurationStyle.detectAndParse(environment.resolvePlaceholders(annotation.receiveTimeout())));
+                customizers.forEach(customizer -> customizer.customize(container));
+                container.start();
+                containers.add(container);
+            }
+            running = true;
+        }
+    }
+
+    @Override
+    public void stop() {
+        synchronized (registrations) {
+            containers.forEach(DataQueueListenerContainer::close);
+            containers.clear();
+            running = false;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return The running containers.
+     */
+    public List<DataQueueListenerContainer> getContainers() {
+        synchronized (registrations) {
+            return List.copyOf(containers);
+        }
+    }
+
+    private static DataQueueMessageListener listener(Registration registration) {
+        final Class<?> parameterType = registration.method().getParameterTypes()[0];
+        if (List.class.isAssignableFrom(parameterType)) {
+            return messages -> invoke(registration, messages);
+        }
+        if (parameterType == DataQueueMessage.class) {
+            return messages -> {
+                for (DataQueueMessage message : messages) {
+                    invoke(registration, message);
+                }
+            };
+        }
+        return messages -> {
+            for (DataQueueMessage message : messages) {
+                invoke(registration, message.data());
+            }
+        };
+    }
+
+    private static void invoke(Registration registration, Object argument) throws Exception {
+        try {
+            registration.method().invoke(registration.bean(), argument);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private record Registration(String name, Object bean, Method method, DataQueueListener annotation) {
+    }
+}
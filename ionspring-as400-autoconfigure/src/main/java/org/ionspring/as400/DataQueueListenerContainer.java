@@ -0,0 +1,217 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Receives the entries of a data queue and passes them to a {@link DataQueueMessageListener}, like Spring JMS listener
+ * containers do for JMS destinations.
+ * <p><code>concurrency</code> consumers run in virtual threads when available (see
+ * {@link AS400Executors#newVirtualThreadExecutor(String)}). Each consumer receives up to <code>maxBatchSize</code>
+ * entries at a time and passes them to the listener in a single call.</p>
+ * <p>The lag is the time since a consumer last received less than a full batch: it stays at zero while the consumers
+ * keep up, and grows while entries accumulate in the queue.</p>
+ */
+public class DataQueueListenerContainer implements AutoCloseable {
+    private static final Duration RECOVERY_INTERVAL = Duration.ofSeconds(5);
+
+    Logger logger = LoggerFactory.getLogger(DataQueueListenerContainer.class);
+
+    private final String name;
+    private final DataQueueEndpoint endpoint;
+    private final DataQueueMessageListener listener;
+    private final int concurrency;
+    private final int maxBatchSize;
+    private final Duration receiveTimeout;
+    private final AtomicLong receiveCount = new AtomicLong();
+    private final AtomicLong receivedCount = new AtomicLong();
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong backlogSince = new AtomicLong();
+    private volatile boolean running = false;
+    private ExecutorService executor;
+
+    /**
+     * Creates a listener container, which must be started with {@link #start()}.
+     *
+     * @param name           The container name, used in thread names, logs and metrics.
+     * @param endpoint       The data queue endpoint.
+     * @param listener       The listener.
+     * @param concurrency    The number of consumers.
+     * @param maxBatchSize   The maximum number of entries passed to the listener at once.
+     * @param receiveTimeout The maximum wait of a receive, which is also the maximum time {@link #stop()} waits for
+     *                       the consumers to end.
+     */
+    public DataQueueListenerContainer(String name, DataQueueEndpoint endpoint, DataQueueMessageListener listener,
+                                      int concurrency, int maxBatchSize, Duration receiveTimeout) {
+        if (concurrency < 1 || maxBatchSize < 1) {
+            throw new IllegalArgumentException("concurrency and maxBatchSize must be at least 1");
+        }
+        this.name = name;
+        this.endpoint = endpoint;
+        this.listener = listener;
+        this.concurrency = concurrency;
+        this.maxBatchSize = maxBatchSize;
+        this.receiveTimeout = receiveTimeout;
+    }
+
+    /**
+     * Starts the consumers.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        executor = AS400Executors.newVirtualThreadExecutor("ionspring-dataqueue-" + name + "-");
+        for (int i = 0; i < concurrency; i++) {
+            executor.execute(this::consume);
+        }
+    }
+
+    /**
+     * Stops the consumers, waiting for the running receives and listener calls to end.
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(receiveTimeout.toMillis() + 1000, TimeUnit.MILLISECONDS)) {
+                logger.warn("Data queue listener {} consumers did not stop in time", name);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        backlogSince.set(0);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stops the consumers and closes the endpoint if it is <code>AutoCloseable</code>.
+     */
+    @Override
+    public void close() {
+        stop();
+        if (endpoint instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                logger.warn("Exception while closing data queue listener {} endpoint", name, e);
+            }
+        }
+    }
+
+    private void consume() {
+        while (running) {
+            final List<DataQueueMessage> messages;
+            try {
+                messages = endpoint.receive(maxBatchSize, receiveTimeout);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.warn("Exception while receiving entries for data queue listener {}", name, e);
+                try {
+                    Thread.sleep(RECOVERY_INTERVAL.toMillis());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                continue;
+            }
+            receiveCount.incrementAndGet();
+            if (messages.size() >= maxBatchSize) {
+                backlogSince.compareAndSet(0, System.nanoTime());
+            } else {
+                backlogSince.set(0);
+            }
+            if (messages.isEmpty()) {
+                continue;
+            }
+            receivedCount.addAndGet(messages.size());
+            try {
+                listener.onMessages(messages);
+                processedCount.addAndGet(messages.size());
+            } catch (Exception e) {
+                failedCount.addAndGet(messages.size());
+                logger.error("Exception in data queue listener {}, {} entries lost", name, messages.size(), e);
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * @return The number of receive requests, including the ones returning no entry.
+     */
+    public long getReceiveCount() {
+        return receiveCount.get();
+    }
+
+    /**
+     * @return The number of entries received.
+     */
+    public long getReceivedCount() {
+        return receivedCount.get();
+    }
+
+    /**
+     * @return The number of entries successfully processed by the listener.
+     */
+    public long getProcessedCount() {
+        return processedCount.get();
+    }
+
+    /**
+     * @return The number of entries for which the listener threw an exception.
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * @return The time since a consumer last received less than a full batch, zero if the consumers keep up.
+     */
+    public Duration getLag() {
+        final long since = backlogSince.get();
+        return since == 0 ? Duration.ZERO : Duration.ofNanos(System.nanoTime() - since);
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+/**
+ * Data queue entry.
+ *
+ * @param data The entry data.
+ * @param key  The entry key, <code>null</code> for non keyed data queues.
+ */
+public record DataQueueMessage(byte[] data, byte[] key) {
+    /**
+     * Creates a non keyed entry.
+     *
+     * @param data The entry data.
+     */
+    public DataQueueMessage(byte[] data) {
+        this(data, null);
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import java.util.List;
+
+/**
+ * Consumes the entries received by a {@link DataQueueListenerContainer}.
+ */
+@FunctionalInterface
+public interface DataQueueMessageListener {
+    /**
+     * Called with the entries received in one batch, in queue order.
+     *
+     * @param messages The entries, never empty.
+     * @throws Exception if the entries can't be processed. Data queues have no acknowledgement, failed entries are
+     *                   logged and counted but not received again.
+     */
+    void onMessages(List<DataQueueMessage> messages) throws Exception;
+}
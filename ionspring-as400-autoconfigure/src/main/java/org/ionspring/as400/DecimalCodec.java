@@ -0,0 +1,281 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Converts IBM i packed and zoned decimal fields, reading and writing caller-supplied buffers.
+ * <p>Fields of up to 18 digits are converted through a <code>long</code> without intermediate allocation, the
+ * <code>BigDecimal</code> methods only allocate the result. Positive values are written with the <code>F</code>
+ * sign and negative values with the <code>D</code> sign, like <code>AS400PackedDecimal</code> and
+ * <code>AS400ZonedDecimal</code> do; <code>A</code>, <code>C</code>, <code>E</code> and <code>F</code> are read as
+ * positive, <code>B</code> and <code>D</code> as negative.</p>
+ */
+public final class DecimalCodec {
+    private static final int MAX_LONG_DIGITS = 18;
+    private static final long[] POWERS_OF_TEN = new long[MAX_LONG_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private DecimalCodec() {
+    }
+
+    /**
+     * @param digits The number of digits.
+     * @return The length in bytes of a packed decimal field.
+     */
+    public static int packedLength(int digits) {
+        return digits / 2 + 1;
+    }
+
+    /**
+     * Decodes a packed decimal field of up to 18 digits.
+     *
+     * @param buffer The source buffer.
+     * @param offset The field offset in the buffer.
+     * @param digits The number of digits.
+     * @return The unscaled value.
+     * @throws NumberFormatException if the field contains an invalid digit or sign.
+     */
+    public static long decodePackedLong(byte[] buffer, int offset, int digits) {
+        checkLongDigits(digits);
+        final int length = packedLength(digits);
+        long value = 0;
+        // An even number of digits leaves the first half byte unused
+        int nibble = digits % 2 == 0 ? 1 : 0;
+        final int lastNibble = length * 2 - 1;
+        for (; nibble < lastNibble; nibble++) {
+            value = value * 10 + digit(nibble(buffer, offset, nibble));
+        }
+        return isNegative(nibble(buffer, offset, lastNibble)) ? -value : value;
+    }
+
+    /**
+     * Decodes a packed decimal field.
+     *
+     * @param buffer The source buffer.
+     * @param offset The field offset in the buffer.
+     * @param digits The number of digits.
+     * @param scale  The number of decimal positions.
+     * @return The value.
+     * @throws NumberFormatException if the field contains an invalid digit or sign.
+     */
+    public static BigDecimal decodePacked(byte[] buffer, int offset, int digits, int scale) {
+        if (digits <= MAX_LONG_DIGITS) {
+            return BigDecimal.valueOf(decodePackedLong(buffer, offset, digits), scale);
+        }
+        final int length = packedLength(digits);
+        final char[] chars = new char[digits + 1];
+        int position = 1;
+        for (int nibble = digits % 2 == 0 ? 1 : 0; nibble < length * 2 - 1; nibble++) {
+            chars[position++] = (char) ('0' + digit(nibble(buffer, offset, nibble)));
+        }
+        chars[0] = isNegative(nibble(buffer, offset, length * 2 - 1)) ? '-' : '+';
+        return new BigDecimal(new BigInteger(new String(chars)), scale);
+    }
+
+    /**
+     * Encodes an unscaled value into a packed decimal field of up to 18 digits.
+     *
+     * @param value  The unscaled value.
+     * @param buffer The destination buffer.
+     * @param offset The field offset in the buffer.
+     * @param digits The number of digits.
+     * @throws IllegalArgumentException if the value has more than <code>digits</code> digits.
+     */
+    public static void encodePacked(long value, byte[] buffer, int offset, int digits) {
+        checkLongDigits(digits);
+        final int length = packedLength(digits);
+        long remaining = Math.abs(value);
+        if (value == Long.MIN_VALUE || remaining >= POWERS_OF_TEN[digits]) {
+            throw new IllegalArgumentException("Value " + value + " has more than " + digits + " digits");
+        }
+        // The last byte holds the last digit and the sign
+        buffer[offset + length - 1] = (byte) ((remaining % 10) << 4 | (value < 0 ? 0x0D : 0x0F));
+        remaining /= 10;
+        for (int i = length - 2; i >= 0; i--) {
+            final int low = (int) (remaining % 10);
+            remaining /= 10;
+            final int high = (int) (remaining % 10);
+            remaining /= 10;
+            buffer[offset + i] = (byte) (high << 4 | low);
+        }
+    }
+
+    /**
+     * Encodes a value into a packed decimal field.
+     *
+     * @param value  The value.
+     * @param buffer The destination buffer.
+     * @param offset The field offset in the buffer.
+     * @param digits The number of digits.
+     * @param scale  The number of decimal positions.
+     * @throws IllegalArgumentException if the value has more than <code>digits</code> digits.
+     * @throws ArithmeticException      if the value has more than <code>scale</code> decimal positions.
+     */
+    public static void encodePacked(BigDecimal value, byte[] buffer, int offset, int digits, int scale) {
+        final BigInteger unscaled = value.setScale(scale, RoundingMode.UNNECESSARY).unscaledValue();
+        if (digits <= MAX_LONG_DIGITS) {
+            encodePacked(unscaled.longValueExact(), buffer, offset, digits);
+            return;
+        }
+        final String decimalDigits = unscaled.abs().toString();
+        if (decimalDigits.length() > digits) {
+            throw new IllegalArgumentException("Value " + value + " has more than " + digits + " digits");
+        }
+        final int length = packedLength(digits);
+        final int lastNibble = length * 2 - 1;
+        int position = decimalDigits.length() - 1;
+        for (int nibble = lastNibble - 1; nibble >= 0; nibble--) {
+            setNibble(buffer, offset, nibble, position >= 0 ? decimalDigits.charAt(position--) - '0' : 0);
+        }
+        setNibble(buffer, offset, lastNibble, unscaled.signum() < 0 ? 0x0D : 0x0F);
+    }
+
+    /**
+     * Decodes a zoned decimal field of up to 18 digits.
+     *
+     * @param buffer The source buffer.
+     * @param offset The field offset in the buffer.
+     * @param digits The number of digits, which is also the field length in bytes.
+     * @return The unscaled value.
+     * @throws NumberFormatException if the field contains an invalid digit or sign.
+     */
+    public static long decodeZonedLong(byte[] buffer, int offset, int digits) {
+        checkLongDigits(digits);
+        long value = 0;
+        for (int i = 0; i < digits; i++) {
+            value = value * 10 + digit(buffer[offset + i] & 0x0F);
+        }
+        return isNegative((buffer[offset + digits - 1] & 0xF0) >> 4) ? -value : value;
+    }
+
+    /**
+     * Decodes a zoned decimal field.
+     *
+     * @param buffer The source buffer.
+     * @param offset The field offset in the buffer.
+     * @param digits The number of digits, which is also the field length in bytes.
+     * @param scale  The number of decimal positions.
+     * @return The value.
+     * @throws NumberFormatException if the field contains an invalid digit or sign.
+     */
+    public static BigDecimal decodeZoned(byte[] buffer, int offset, int digits, int scale) {
+        if (digits <= MAX_LONG_DIGITS) {
+            return BigDecimal.valueOf(decodeZonedLong(buffer, offset, digits), scale);
+        }
+        final char[] chars = new char[digits + 1];
+        for (int i = 0; i < digits; i++) {
+            chars[i + 1] = (char) ('0' + digit(buffer[offset + i] & 0x0F));
+        }
+        chars[0] = isNegative((buffer[offset + digits - 1] & 0xF0) >> 4) ? '-' : '+';
+        return new BigDecimal(new BigInteger(new String(chars)), scale);
+    }
+
+    /**
+     * Encodes an unscaled value into a zoned decimal field of up to 18 digits.
+     *
+     * @param value  The unscaled value.
+     * @param buffer The destination buffer.
+     * @param offset The field offset in the buffer.
+     * @param digits The number of digits, which is also the field length in bytes.
+     * @throws IllegalArgumentException if the value has more than <code>digits</code> digits.
+     */
+    public static void encodeZoned(long value, byte[] buffer, int offset, int digits) {
+        checkLongDigits(digits);
+        long remaining = Math.abs(value);
+        if (value == Long.MIN_VALUE || remaining >= POWERS_OF_TEN[digits]) {
+            throw new IllegalArgumentException("Value " + value + " has more than " + digits + " digits");
+        }
+        for (int i = digits - 1; i >= 0; i--) {
+            buffer[offset + i] = (byte) (0xF0 | (int) (remaining % 10));
+            remaining /= 10;
+        }
+        if (value < 0) {
+            buffer[offset + digits - 1] = (byte) (0xD0 | buffer[offset + digits - 1] & 0x0F);
+        }
+    }
+
+    /**
+     * Encodes a value into a zoned decimal field.
+     *
+     * @param value  The value.
+     * @param buffer The destination buffer.
+     * @param offset The field offset in the buffer.
+     * @param digits The number of digits, which is also the field length in bytes.
+     * @param scale  The number of decimal positions.
+     * @throws IllegalArgumentException if the value has more than <code>digits</code> digits.
+     * @throws ArithmeticException      if the value has more than <code>scale</code> decimal positions.
+     */
+    public static void encodeZoned(BigDecimal value, byte[] buffer, int offset, int digits, int scale) {
+        final BigInteger unscaled = value.setScale(scale, RoundingMode.UNNECESSARY).unscaledValue();
+        if (digits <= MAX_LONG_DIGITS) {
+            encodeZoned(unscaled.longValueExact(), buffer, offset, digits);
+            return;
+        }
+        final String decimalDigits = unscaled.abs().toString();
+        if (decimalDigits.length() > digits) {
+            throw new IllegalArgumentException("Value " + value + " has more than " + digits + " digits");
+        }
+        final int padding = digits - decimalDigits.length();
+        for (int i = 0; i < digits; i++) {
+            buffer[offset + i] = (byte) (0xF0 | (i < padding ? 0 : decimalDigits.charAt(i - padding) - '0'));
+        }
+        if (unscaled.signum() < 0) {
+            buffer[offset + digits - 1] = (byte) (0xD0 | buffer[offset + digits - 1] & 0x0F);
+        }
+    }
+
+    private static int nibble(byte[] buffer, int offset, int nibble) {
+        final int b = buffer[offset + nibble / 2] & 0xFF;
+        return nibble % 2 == 0 ? b >> 4 : b & 0x0F;
+    }
+
+    private static void setNibble(byte[] buffer, int offset, int nibble, int value) {
+        final int index = offset + nibble / 2;
+        buffer[index] = (byte) (nibble % 2 == 0 ? (buffer[index] & 0x0F) | value << 4 : (buffer[index] & 0xF0) | value);
+    }
+
+    private static int digit(int nibble) {
+        if (nibble > 9) {
+            throw new NumberFormatException("Invalid decimal digit 0x" + Integer.toHexString(nibble));
+        }
+        return nibble;
+    }
+
+    private static boolean isNegative(int sign) {
+        return switch (sign) {
+            case 0x0B, 0x0D -> true;
+            case 0x0A, 0x0C, 0x0E, 0x0F -> false;
+            default -> throw new NumberFormatException("Invalid decimal sign 0x" + Integer.toHexString(sign));
+        };
+    }
+
+    private static void checkLongDigits(int digits) {
+        if (digits < 1 || digits > MAX_LONG_DIGITS) {
+            throw new IllegalArgumentException("Digits must be between 1 and " + MAX_LONG_DIGITS + ", got " + digits);
+        }
+    }
+}
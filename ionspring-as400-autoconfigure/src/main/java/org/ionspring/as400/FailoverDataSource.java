@@ -0,0 +1,133 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * DataSource opening connections on the system selected by an {@link AS400SystemRouter}.
+ * <p>If a connection can't be opened, the failure is recorded and the next available system is tried, so that a
+ * system whose circuit is open is skipped without waiting for its connect timeout. Connections are not pooled, a
+ * connection pool wrapping this DataSource opens new connections on the selected system as broken ones are
+ * evicted.</p>
+ */
+public class FailoverDataSource implements DataSource {
+    private final AS400SystemRouter router;
+    private final Map<AS400SystemRouter.Route, DataSource> dataSources;
+
+    /**
+     * Creates a DataSource.
+     *
+     * @param router      The router.
+     * @param dataSources The DataSource of each system of the router.
+     */
+    public FailoverDataSource(AS400SystemRouter router, Map<AS400SystemRouter.Route, DataSource> dataSources) {
+        this.router = router;
+        this.dataSources = Map.copyOf(dataSources);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(null, null);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        final List<AS400SystemRouter.Route> routes = router.getAvailableRoutes();
+        if (routes.isEmpty()) {
+            throw new SQLException("No IBM i system available, all circuits are open", "08001");
+        }
+        SQLException failure = null;
+        for (AS400SystemRouter.Route route : routes) {
+            final DataSource dataSource = dataSources.get(route);
+            try {
+                final Connection connection = username == null ? dataSource.getConnection()
+                        : dataSource.getConnection(username, password);
+                router.recordSuccess(route);
+                return connection;
+            } catch (SQLException e) {
+                router.recordFailure(route);
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * @return The DataSource of each system.
+     */
+    public Map<AS400SystemRouter.Route, DataSource> getDataSources() {
+        return dataSources;
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary().getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        for (DataSource dataSource : dataSources.values()) {
+            dataSource.setLogWriter(out);
+        }
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        for (DataSource dataSource : dataSources.values()) {
+            dataSource.setLoginTimeout(seconds);
+        }
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary().getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return primary().getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return primary().unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary().isWrapperFor(iface);
+    }
+
+    private DataSource primary() {
+        return dataSources.get(router.getRoutes().get(0));
+    }
+}
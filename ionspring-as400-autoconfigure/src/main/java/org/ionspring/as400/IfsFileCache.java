@@ -0,0 +1,270 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded local disk cache of IBM i IFS files, used by {@link IfsResource}.
+ * <p>A cached copy is used as long as the last modification time of the IFS file hasn't changed. When the cache grows
+ * over <code>maxSize</code> bytes, the least recently used files are deleted. Files bigger than
+ * <code>maxFileSize</code> are never cached.</p>
+ * <p>Files can be downloaded in the background with {@link #prefetch}, for instance while a range of the file is read
+ * from the IBM i.</p>
+ * <p>As the cache index is only kept in memory, each cache uses its own subdirectory of the configured directory,
+ * so that several applications or instances can share it. The subdirectory is deleted by {@link #close()}.</p>
+ */
+public class IfsFileCache implements AutoCloseable {
+    private static final String SUFFIX = ".cache";
+
+    private final Path directory;
+    private final long maxSize;
+    private final long maxFileSize;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final Set<String> prefetching = ConcurrentHashMap.newKeySet();
+    private final ExecutorService prefetcher = AS400Executors.newVirtualThreadExecutor("ionspring-ifs-cache-");
+    private long size = 0;
+
+    Logger logger = LoggerFactory.getLogger(IfsFileCache.class);
+
+    /**
+     * Creates an IFS file cache.
+     *
+     * @param directory   The local directory the cache subdirectory is created in, created if needed.
+     * @param maxSize     The maximum total size of the cached files, in bytes.
+     * @param maxFileSize The maximum size of a cached file, in bytes.
+     * @throws IOException if the directories can't be created.
+     */
+    public IfsFileCache(Path directory, long maxSize, long maxFileSize) throws IOException {
+        this.directory = Files.createTempDirectory(Files.createDirectories(directory), "cache-");
+        this.maxSize = maxSize;
+        this.maxFileSize = Math.min(maxFileSize, maxSize);
+    }
+
+    /**
+     * Returns the local copy of an IFS file, downloading it if it's not cached or has been modified.
+     *
+     * @param path         The IFS file path.
+     * @param lastModified The current last modification time of the IFS file.
+     * @param length       The current length of the IFS file.
+     * @param loader       Opens the IFS file, called only when the file must be downloaded.
+     * @return The local copy, or <code>null</code> if the file is too big to be cached.
+     * @throws IOException if the file can't be downloaded.
+     */
+    public Path get(String path, long lastModified, long length, Loader loader) throws IOException {
+        final Path cached = getIfCached(path, lastModified);
+        if (cached != null) {
+            return cached;
+        }
+        if (length > maxFileSize) {
+            return null;
+        }
+        missCount.incrementAndGet();
+        final Path temp = Files.createTempFile(directory, "download", ".tmp");
+        final Path target = directory.resolve(fileName(path, lastModified));
+        try {
+            try (InputStream in = loader.open()) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        final long fileSize = Files.size(target);
+        synchronized (entries) {
+            final Entry previous = entries.put(path, new Entry(target, lastModified, fileSize));
+            size += fileSize;
+            if (previous != null) {
+                size -= previous.size();
+                if (!previous.file().equals(target)) {
+                    deleteQuietly(previous.file());
+                }
+            }
+            final Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+            while (size > maxSize && iterator.hasNext()) {
+                final Map.Entry<String, Entry> eldest = iterator.next();
+                if (!eldest.getKey().equals(path)) {
+                    iterator.remove();
+                    size -= eldest.getValue().size();
+                    deleteQuietly(eldest.getValue().file());
+                }
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Returns the local copy of an IFS file if it is cached and has not been modified.
+     *
+     * @param path         The IFS file path.
+     * @param lastModified The current last modification time of the IFS file.
+     * @return The local copy, or <code>null</code> if the file is not cached or has been modified.
+     */
+    public Path getIfCached(String path, long lastModified) {
+        synchronized (entries) {
+            final Entry entry = entries.get(path);
+            if (entry != null && entry.lastModified() == lastModified && Files.exists(entry.file())) {
+                hitCount.incrementAndGet();
+                return entry.file();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Downloads an IFS file in the background, unless it is too big to be cached or is already being downloaded by a
+     * prefetch.
+     *
+     * @param path         The IFS file path.
+     * @param lastModified The current last modification time of the IFS file.
+     * @param length       The current length of the IFS file.
+     * @param loader       Opens the IFS file, called only when the file must be downloaded.
+     */
+    public void prefetch(String path, long lastModified, long length, Loader loader) {
+        if (length > maxFileSize || !prefetching.add(path)) {
+            return;
+        }
+        try {
+            prefetcher.execute(() -> {
+                try {
+                    get(path, lastModified, length, loader);
+                } catch (IOException e) {
+                    logger.warn("Exception while caching IFS file {}", path, e);
+                } finally {
+                    prefetching.remove(path);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            prefetching.remove(path);
+        }
+    }
+
+    /**
+     * Removes a file from the cache.
+     *
+     * @param path The IFS file path.
+     */
+    public void evict(String path) {
+        synchronized (entries) {
+            final Entry entry = entries.remove(path);
+            if (entry != null) {
+                size -= entry.size();
+                deleteQuietly(entry.file());
+            }
+        }
+    }
+
+    /**
+     * Stops the prefetches and deletes the cache subdirectory.
+     */
+    @Override
+    public void close() {
+        prefetcher.shutdownNow();
+        synchronized (entries) {
+            entries.clear();
+            size = 0;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                deleteQuietly(file);
+            }
+        } catch (IOException e) {
+            logger.warn("Exception while emptying IFS file cache directory {}", directory, e);
+        }
+        deleteQuietly(directory);
+    }
+
+    /**
+     * @return The cache subdirectory.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return The total size of the cached files, in bytes.
+     */
+    public long getSize() {
+        synchronized (entries) {
+            return size;
+        }
+    }
+
+    /**
+     * @return The number of reads served from the cache.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return The number of downloads.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    private static String fileName(String path, long lastModified) {
+        try {
+            final byte[] hash = MessageDigest.getInstance("SHA-256").digest(path.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash) + "-" + lastModified + SUFFIX;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // The file might still be open, the cache directory can then be deleted manually
+        }
+    }
+
+    /**
+     * Opens the IFS file to download.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        InputStream open() throws IOException;
+    }
+
+    private record Entry(Path file, long lastModified, long size) {
+    }
+}
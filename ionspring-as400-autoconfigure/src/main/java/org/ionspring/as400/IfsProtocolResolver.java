@@ -0,0 +1,62 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400;
+import org.springframework.core.io.ProtocolResolver;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+import java.util.function.Supplier;
+
+/**
+ * Resolves <code>ifs:</code> locations, such as <code>ifs:/home/reports/daily.pdf</code>, to {@link IfsResource}s.
+ * <p>When declared as a bean along with an {@link IfsProtocolResolverRegistrar}, <code>ifs:</code> locations can be
+ * used with <code>ResourceLoader.getResource</code> and <code>&#64;Value</code> injection of <code>Resource</code>s.
+ * Without Spring, register it with <code>DefaultResourceLoader.addProtocolResolver</code>.</p>
+ */
+public class IfsProtocolResolver implements ProtocolResolver {
+    /**
+     * The IFS location prefix.
+     */
+    public static final String PREFIX = "ifs:";
+
+    private final Supplier<AS400> as400;
+    private final IfsFileCache cache;
+    private final int bufferSize;
+
+    /**
+     * Creates an IFS protocol resolver.
+     *
+     * @param as400      Supplies the <code>AS400</code> used to access the files, called when a file is accessed.
+     * @param cache      The local cache, or <code>null</code>.
+     * @param bufferSize The read buffer size, in bytes.
+     */
+    public IfsProtocolResolver(Supplier<AS400> as400, IfsFileCache cache, int bufferSize) {
+        this.as400 = as400;
+        this.cache = cache;
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public Resource resolve(String location, ResourceLoader resourceLoader) {
+        if (location.startsWith(PREFIX)) {
+            return new IfsResource(location.substring(PREFIX.length()), as400, cache, bufferSize);
+        }
+        return null;
+    }
+}
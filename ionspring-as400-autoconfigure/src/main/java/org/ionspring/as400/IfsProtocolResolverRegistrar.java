@@ -0,0 +1,52 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ResourceLoaderAware;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.ResourceLoader;
+
+/**
+ * Registers <code>ifs:</code> location resolution with the application context before any bean is created, so that
+ * <code>ifs:</code> resources can be injected in every bean.
+ * <p>Resolution is delegated to the {@link IfsProtocolResolver} bean, which is looked up when an <code>ifs:</code>
+ * location is first resolved. Declare this registrar as a <code>static</code> bean.</p>
+ */
+public class IfsProtocolResolverRegistrar implements BeanFactoryPostProcessor, ResourceLoaderAware {
+    private ResourceLoader resourceLoader;
+
+    @Override
+    public void setResourceLoader(ResourceLoader resourceLoader) {
+        this.resourceLoader = resourceLoader;
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        if (resourceLoader instanceof DefaultResourceLoader defaultResourceLoader) {
+            defaultResourceLoader.addProtocolResolver((location, loader) -> {
+                if (!location.startsWith(IfsProtocolResolver.PREFIX)) {
+                    return null;
+                }
+                final IfsProtocolResolver resolver = beanFactory.getBeanProvider(IfsProtocolResolver.class).getIfAvailable();
+                return resolver != null ? resolver.resolve(location, loader) : null;
+            });
+        }
+    }
+}
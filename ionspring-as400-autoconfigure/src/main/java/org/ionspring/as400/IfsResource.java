@@ -0,0 +1,227 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400;
+import com.ibm.as400.access.AS400SecurityException;
+import com.ibm.as400.access.IFSFile;
+import com.ibm.as400.access.IFSFileInputStream;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
+/**
+ * Spring <code>Resource</code> for a file of the IBM i integrated file system, resolved from <code>ifs:</code>
+ * locations by {@link IfsProtocolResolver}.
+ * <p>Reads are buffered and can be limited to a range of the file with {@link #getInputStream(long, long)}. If an
+ * {@link IfsFileCache} is set, files are served from their local copy as long as they are not modified. A full read of
+ * a file that is not cached downloads it first, a ranged read is served from the IBM i while the file is downloaded
+ * in the background.</p>
+ */
+public class IfsResource extends AbstractResource {
+    private final String path;
+    private final Supplier<AS400> as400;
+    private final IfsFileCache cache;
+    private final int bufferSize;
+
+    /**
+     * Creates an IFS resource.
+     *
+     * @param path       The absolute IFS path of the file.
+     * @param as400      Supplies the <code>AS400</code> used to access the file.
+     * @param cache      The local cache, or <code>null</code>.
+     * @param bufferSize The read buffer size, in bytes.
+     */
+    public IfsResource(String path, Supplier<AS400> as400, IfsFileCache cache, int bufferSize) {
+        this.path = path.startsWith("/") ? path : "/" + path;
+        this.as400 = as400;
+        this.cache = cache;
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public boolean exists() {
+        try {
+            return file().exists();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        return file().length();
+    }
+
+    @Override
+    public long lastModified() throws IOException {
+        return file().lastModified();
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return getInputStream(0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Opens a range of the file.
+     *
+     * @param offset The offset of the first byte to read.
+     * @param length The maximum number of bytes to read.
+     * @return A buffered stream reading at most <code>length</code> bytes from <code>offset</code>.
+     * @throws IOException if the file can't be opened.
+     */
+    public InputStream getInputStream(long offset, long length) throws IOException {
+        InputStream in = null;
+        if (cache != null) {
+            final IFSFile file = file();
+            final long lastModified = file.lastModified();
+            // A cache hit costs a single round trip, the length is only read when the file is not cached
+            Path local = cache.getIfCached(path, lastModified);
+            if (local == null) {
+                final long fileLength = file.length();
+                if (offset == 0 && length >= fileLength) {
+                    local = cache.get(path, lastModified, fileLength, this::openRemote);
+                } else {
+                    cache.prefetch(path, lastModified, fileLength, this::openRemote);
+                }
+            }
+            if (local != null) {
+                try {
+                    in = Files.newInputStream(local);
+                } catch (NoSuchFileException e) {
+                    // Evicted meanwhile
+                }
+            }
+        }
+        if (in == null) {
+            in = openRemote();
+        }
+        try {
+            in.skipNBytes(offset);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        final InputStream buffered = new BufferedInputStream(in, bufferSize);
+        return length == Long.MAX_VALUE ? buffered : new RangeInputStream(buffered, length);
+    }
+
+    @Override
+    public Resource createRelative(String relativePath) {
+        final String parent = path.substring(0, path.lastIndexOf('/') + 1);
+        final String relative = relativePath.startsWith("/") ? relativePath.substring(1) : relativePath;
+        return new IfsResource(parent + relative, as400, cache, bufferSize);
+    }
+
+    @Override
+    public String getFilename() {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    @Override
+    public String getDescription() {
+        return "IFS resource [" + path + "]";
+    }
+
+    /**
+     * @return The absolute IFS path of the file.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || (other instanceof IfsResource resource && path.equals(resource.path));
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    private IFSFile file() throws IOException {
+        return new IFSFile(as400.get(), path);
+    }
+
+    private InputStream openRemote() throws IOException {
+        try {
+            return new IFSFileInputStream(as400.get(), path);
+        } catch (AS400SecurityException e) {
+            throw new IOException("Not authorized to read " + path, e);
+        }
+    }
+
+    private static final class RangeInputStream extends FilterInputStream {
+        private long remaining;
+
+        RangeInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            final int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            final int read = super.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            final long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory {@link DataQueueEndpoint}, to test data queue listeners and producers without an IBM i system.
+ * <p>Keys are compared byte by byte, unsigned, like the IBM i does with EBCDIC keys. String keys are encoded in
+ * UTF-8.</p>
+ */
+public class InMemoryDataQueueEndpoint implements DataQueueEndpoint {
+    private final LinkedList<DataQueueMessage> entries = new LinkedList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final byte[] key;
+    private final String searchType;
+
+    /**
+     * Creates a non keyed in-memory data queue.
+     */
+    public InMemoryDataQueueEndpoint() {
+        this.key = null;
+        this.searchType = "EQ";
+    }
+
+    /**
+     * Creates a keyed in-memory data queue.
+     *
+     * @param key        The key searched by receives.
+     * @param searchType The key search type: <code>EQ</code>, <code>NE</code>, <code>LT</code>, <code>LE</code>,
+     *                   <code>GT</code> or <code>GE</code>.
+     */
+    public InMemoryDataQueueEndpoint(String key, String searchType) {
+        this.key = key.getBytes(StandardCharsets.UTF_8);
+        this.searchType = searchType;
+    }
+
+    @Override
+    public List<DataQueueMessage> receive(int maxEntries, Duration wait) throws InterruptedException {
+        final List<DataQueueMessage> messages = new ArrayList<>();
+        long remaining = wait.toNanos();
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                final Iterator<DataQueueMessage> iterator = entries.iterator();
+                while (iterator.hasNext() && messages.size() < maxEntries) {
+                    final DataQueueMessage message = iterator.next();
+                    if (matches(message)) {
+                        iterator.remove();
+                        messages.add(message);
+                    }
+                }
+                if (!messages.isEmpty() || remaining <= 0) {
+                    return messages;
+                }
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void send(List<DataQueueMessage> messages) {
+        lock.lock();
+        try {
+            for (DataQueueMessage message : messages) {
+                entries.add(key != null && message.key() == null ? new DataQueueMessage(message.data(), key) : message);
+            }
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of entries in the queue.
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean matches(DataQueueMessage message) {
+        if (key == null) {
+            return true;
+        }
+        final int comparison = Arrays.compareUnsigned(message.key(), key);
+        return switch (searchType) {
+            case "EQ" -> comparison == 0;
+            case "NE" -> comparison != 0;
+            case "LT" -> comparison < 0;
+            case "LE" -> comparison <= 0;
+            case "GT" -> comparison > 0;
+            case "GE" -> comparison >= 0;
+            default -> throw new IllegalArgumentException("Unknown search type " + searchType);
+        };
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400;
+import com.ibm.as400.access.JobLog;
+import com.ibm.as400.access.MessageQueue;
+import com.ibm.as400.access.QueuedMessage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Follows a message queue or a job log, returning only the messages added since the previous call.
+ * <p>{@link #poll(int)} remembers the key of the last message it returned and lists the queue forward from it, so
+ * that a refresh only transfers the new messages. {@link #count()} and {@link #fetch(int, int)} page through a
+ * newest-first snapshot of the queue, transferring only the requested rows, which fits lazy grids: the snapshot list
+ * stays open on the server until {@link #refreshSnapshot()} or {@link #close()}.</p>
+ * <p>Instances are thread safe, but meant to be used by one view or task.</p>
+ */
+public class MessageTail implements AutoCloseable {
+    private final ListOpener opener;
+    private byte[] lastMessageKey;
+    private MessageList snapshot;
+
+    MessageTail(ListOpener opener) {
+        this.opener = opener;
+    }
+
+    /**
+     * Creates a tail of a message queue.
+     *
+     * @param system The system.
+     * @param path   The message queue path, for instance <code>/QSYS.LIB/QSYSOPR.MSGQ</code>.
+     * @return The message tail.
+     */
+    public static MessageTail forMessageQueue(AS400 system, String path) {
+        return new MessageTail((startingKey, forward) -> {
+            final MessageQueue queue = new MessageQueue(system, path);
+            queue.setListDirection(forward);
+            queue.setUserStartingMessageKey(startingKey != null ? startingKey : forward ? MessageQueue.OLDEST : MessageQueue.NEWEST);
+            queue.load();
+            return new MessageList() {
+                @Override
+                public int length() {
+                    return queue.getLength();
+                }
+
+                @Override
+                public QueuedMessage[] messages(int offset, int number) throws Exception {
+                    return queue.getMessages(offset, number);
+                }
+
+                @Override
+                public void close() throws Exception {
+                    queue.close();
+                }
+            };
+        });
+    }
+
+    /**
+     * Creates a tail of a job log.
+     *
+     * @param system The system.
+     * @param name   The job name.
+     * @param user   The job user.
+     * @param number The job number.
+     * @return The message tail.
+     */
+    public static MessageTail forJobLog(AS400 system, String name, String user, String number) {
+        return new MessageTail((startingKey, forward) -> {
+            final JobLog jobLog = new JobLog(system, name, user, number);
+            jobLog.setListDirection(forward);
+            jobLog.setStartingMessageKey(startingKey != null ? startingKey : forward ? JobLog.OLDEST : JobLog.NEWEST);
+            jobLog.load();
+            return new MessageList() {
+                @Override
+                public int length() {
+                    return jobLog.getLength();
+                }
+
+                @Override
+                public QueuedMessage[] messages(int offset, int number) throws Exception {
+                    return jobLog.getMessages(offset, number);
+                }
+
+                @Override
+                public void close() throws Exception {
+                    jobLog.close();
+                }
+            };
+        });
+    }
+
+    /**
+     * Returns the messages added since the previous call, oldest first. The first call returns the newest messages.
+     *
+     * @param maxMessages The maximum number of messages to return, the following ones are returned by the next call.
+     * @return The new messages, oldest first.
+     * @throws MessageTailException if the messages can't be listed.
+     */
+    public synchronized List<QueuedMessage> poll(int maxMessages) throws MessageTailException {
+        try {
+            if (lastMessageKey == null) {
+                final MessageList list = opener.open(null, false);
+                try {
+                    final List<QueuedMessage> messages = new ArrayList<>(Arrays.asList(
+                            list.messages(0, Math.min(maxMessages, list.length()))));
+                    if (!messages.isEmpty()) {
+                        lastMessageKey = messages.get(0).getKey();
+                    }
+                    Collections.reverse(messages);
+                    return messages;
+                } finally {
+                    list.close();
+                }
+            }
+            final MessageList list = opener.open(lastMessageKey, true);
+            try {
+                // The list starts with the last returned message if it's still in the queue
+                final QueuedMessage[] page = list.messages(0, Math.min(maxMessages + 1, list.length()));
+                final List<QueuedMessage> messages = new ArrayList<>(page.length);
+                for (QueuedMessage message : page) {
+                    if (!Arrays.equals(message.getKey(), lastMessageKey) && messages.size() < maxMessages) {
+                        messages.add(message);
+                    }
+                }
+                if (!messages.isEmpty()) {
+                    lastMessageKey = messages.get(messages.size() - 1).getKey();
+                }
+                return messages;
+            } finally {
+                list.close();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessageTailException("Interrupted while listing messages", e);
+        } catch (Exception e) {
+            throw new MessageTailException("Unable to list messages", e);
+        }
+    }
+
+    /**
+     * Returns the number of messages of the snapshot, opening it if needed.
+     *
+     * @return The number of messages.
+     * @throws MessageTailException if the messages can't be listed.
+     */
+    public synchronized int count() throws MessageTailException {
+        return snapshot().length();
+    }
+
+    /**
+     * Returns a page of the snapshot, newest first, opening the snapshot if needed.
+     *
+     * @param offset The offset of the first message.
+     * @param limit  The maximum number of messages.
+     * @return The messages.
+     * @throws MessageTailException if the messages can't be listed.
+     */
+    public synchronized List<QueuedMessage> fetch(int offset, int limit) throws MessageTailException {
+        final MessageList list = snapshot();
+        final int length = list.length();
+        if (offset >= length) {
+            return List.of();
+        }
+        try {
+            return Arrays.asList(list.messages(offset, Math.min(limit, length - offset)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessageTailException("Interrupted while listing messages", e);
+        } catch (Exception e) {
+            throw new MessageTailException("Unable to list messages", e);
+        }
+    }
+
+    /**
+     * Closes the snapshot, the next {@link #count()} or {@link #fetch(int, int)} opens a new one.
+     */
+    public synchronized void refreshSnapshot() {
+        closeSnapshot();
+    }
+
+    /**
+     * @return The key of the last message returned by {@link #poll(int)}, <code>null</code> before the first poll.
+     */
+    public synchronized byte[] getLastMessageKey() {
+        return lastMessageKey != null ? lastMessageKey.clone() : null;
+    }
+
+    /**
+     * Forgets the last message returned by {@link #poll(int)}, the next poll returns the newest messages.
+     */
+    public synchronized void reset() {
+        lastMessageKey = null;
+    }
+
+    @Override
+    public synchronized void close() {
+        closeSnapshot();
+    }
+
+    private MessageList snapshot() {
+        if (snapshot == null) {
+            try {
+                snapshot = opener.open(null, false);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MessageTailException("Interrupted while listing messages", e);
+            } catch (Exception e) {
+                throw new MessageTailException("Unable to list messages", e);
+            }
+        }
+        return snapshot;
+    }
+
+    private void closeSnapshot() {
+        if (snapshot != null) {
+            try {
+                snapshot.close();
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                // The server list is released with the connection at the latest
+            }
+            snapshot = null;
+        }
+    }
+
+    @FunctionalInterface
+    interface ListOpener {
+        MessageList open(byte[] startingKey, boolean forward) throws Exception;
+    }
+
+    interface MessageList {
+        int length();
+
+        QueuedMessage[] messages(int offset, int number) throws Exception;
+
+        void close() throws Exception;
+    }
+}
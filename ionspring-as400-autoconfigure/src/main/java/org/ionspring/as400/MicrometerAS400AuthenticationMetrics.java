@@ -0,0 +1,91 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400;
+import com.ibm.as400.access.SecureAS400;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AS400AuthenticationMetrics} implementation publishing Micrometer meters, tagged with the IBM i system name and
+ * whether the connection is secured:
+ * <ul>
+ *     <li><code>ionspring.as400.authentication.signon</code>: sign-on server round trips</li>
+ *     <li><code>ionspring.as400.authentication.user.connection</code>: connections opened under the user profile</li>
+ *     <li><code>ionspring.as400.authentication.special.authorities</code>: special authority reads</li>
+ *     <li><code>ionspring.as400.authentication</code>: authentications, tagged by outcome (<code>success</code>,
+ *     <code>bad_credentials</code>, <code>not_authorized</code>, <code>rejected</code> by the login bulkhead or
+ *     <code>error</code>)</li>
+ * </ul>
+ */
+public class MicrometerAS400AuthenticationMetrics implements AS400AuthenticationMetrics {
+    private final Timer signon;
+    private final Timer userConnection;
+    private final Timer specialAuthorities;
+    private final Map<Outcome, Counter> outcomes = new EnumMap<>(Outcome.class);
+
+    public MicrometerAS400AuthenticationMetrics(MeterRegistry registry, AS400 as400) {
+        final Tags tags = Tags.of("system", as400.getSystemName(), "secure", String.valueOf(as400 instanceof SecureAS400));
+        signon = Timer.builder("ionspring.as400.authentication.signon")
+                .description("IBM i sign-on server round trips")
+                .tags(tags)
+                .register(registry);
+        userConnection = Timer.builder("ionspring.as400.authentication.user.connection")
+                .description("Connections opened under the authenticating user profile")
+                .tags(tags)
+                .register(registry);
+        specialAuthorities = Timer.builder("ionspring.as400.authentication.special.authorities")
+                .description("Special authority reads")
+                .tags(tags)
+                .register(registry);
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, Counter.builder("ionspring.as400.authentication")
+                    .description("IBM i authentications")
+                    .tags(tags)
+                    .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                    .register(registry));
+        }
+    }
+
+    @Override
+    public void recordSignon(long nanos) {
+        signon.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordUserConnection(long nanos) {
+        userConnection.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordSpecialAuthorities(long nanos) {
+        specialAuthorities.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordOutcome(Outcome outcome) {
+        outcomes.get(outcome).increment();
+    }
+}
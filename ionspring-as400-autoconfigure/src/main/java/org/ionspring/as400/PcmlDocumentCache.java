@@ -0,0 +1,161 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400;
+import com.ibm.as400.data.PcmlException;
+import com.ibm.as400.data.ProgramCallDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Parses the PCML documents found on the classpath once and hands out cheap copies of them.
+ * <p>Documents are looked up in the given classpath directories, <code>pcml</code> by default, and named like
+ * <code>ProgramCallDocument</code> expects: <code>pcml/orders/getprice.pcml</code> is the document
+ * <code>pcml.orders.getprice</code>. Serialized documents (<code>.pcml.ser</code>, written at build time with
+ * <code>ProgramCallDocument.serialize()</code>) are picked before the XML source, which avoids the XML parsing
+ * altogether.</p>
+ * <p>The parsed documents are never modified, each call to {@link #getDocument(String, AS400)} returns a clone bound to
+ * the given system, which can be used by a single thread.</p>
+ */
+public class PcmlDocumentCache {
+    private static final String PCML_EXTENSION = ".pcml";
+    private static final String SERIALIZED_EXTENSION = ".pcml.ser";
+
+    Logger logger = LoggerFactory.getLogger(PcmlDocumentCache.class);
+
+    private final AS400 as400;
+    private final Map<String, ProgramCallDocument> documents;
+
+    /**
+     * Discovers and parses the PCML documents.
+     *
+     * @param as400       The system the documents are bound to by {@link #getDocument(String)}.
+     * @param classLoader The class loader to search.
+     * @param paths       The classpath directories to search, recursively.
+     * @throws IllegalStateException if a document can't be read or parsed.
+     */
+    public PcmlDocumentCache(AS400 as400, ClassLoader classLoader, Collection<String> paths) {
+        this.as400 = as400;
+        final PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver(classLoader);
+        final Map<String, ProgramCallDocument> parsed = new HashMap<>();
+        final long start = System.nanoTime();
+        for (String path : paths) {
+            final String root = trimSlashes(path);
+            for (String docName : findDocumentNames(resolver, root)) {
+                if (!parsed.containsKey(docName)) {
+                    try {
+                        parsed.put(docName, new ProgramCallDocument(as400, docName, classLoader));
+                    } catch (PcmlException e) {
+                        throw new IllegalStateException("Unable to parse PCML document " + docName, e);
+                    }
+                }
+            }
+        }
+        this.documents = Map.copyOf(parsed);
+        logger.info("Parsed {} PCML documents in {} ms", documents.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Returns a copy of a document bound to the system of the cache.
+     *
+     * @param docName The document name, for instance <code>pcml.orders.getprice</code>.
+     * @return A document that must not be shared between threads.
+     * @throws IllegalArgumentException if the document wasn't found on the classpath.
+     */
+    public ProgramCallDocument getDocument(String docName) {
+        return getDocument(docName, as400);
+    }
+
+    /**
+     * Returns a copy of a document bound to the given system, a pooled connection for instance.
+     *
+     * @param docName The document name, for instance <code>pcml.orders.getprice</code>.
+     * @param system  The system to bind the document to.
+     * @return A document that must not be shared between threads.
+     * @throws IllegalArgumentException if the document wasn't found on the classpath.
+     */
+    public ProgramCallDocument getDocument(String docName, AS400 system) {
+        final ProgramCallDocument document = documents.get(docName);
+        if (document == null) {
+            throw new IllegalArgumentException("Unknown PCML document " + docName);
+        }
+        final ProgramCallDocument copy = (ProgramCallDocument) document.clone();
+        try {
+            copy.setSystem(system);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to bind PCML document " + docName, e);
+        }
+        return copy;
+    }
+
+    /**
+     * @return The names of the cached documents.
+     */
+    public Set<String> getDocumentNames() {
+        return new TreeSet<>(documents.keySet());
+    }
+
+    private Set<String> findDocumentNames(PathMatchingResourcePatternResolver resolver, String root) {
+        final Set<String> names = new TreeSet<>();
+        try {
+            // Each classpath entry containing the root directory is searched separately, so that document names can
+            // be computed relative to it
+            for (Resource rootResource : resolver.getResources("classpath*:" + root + "/")) {
+                String rootUrl = rootResource.getURL().toString();
+                if (!rootUrl.endsWith("/")) {
+                    rootUrl += "/";
+                }
+                for (Resource resource : resolver.getResources(rootUrl + "**/*" + PCML_EXTENSION + "*")) {
+                    final String url = resource.getURL().toString();
+                    final String relative;
+                    if (url.endsWith(SERIALIZED_EXTENSION)) {
+                        relative = url.substring(rootUrl.length(), url.length() - SERIALIZED_EXTENSION.length());
+                    } else if (url.endsWith(PCML_EXTENSION)) {
+                        relative = url.substring(rootUrl.length(), url.length() - PCML_EXTENSION.length());
+                    } else {
+                        continue;
+                    }
+                    names.add(root.replace('/', '.') + "." + relative.replace('/', '.'));
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to search PCML documents in " + root, e);
+        }
+        return names;
+    }
+
+    private static String trimSlashes(String path) {
+        String trimmed = path;
+        while (trimmed.startsWith("/")) {
+            trimmed = trimmed.substring(1);
+        }
+        while (trimmed.endsWith("/")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        }
+        return trimmed;
+    }
+}
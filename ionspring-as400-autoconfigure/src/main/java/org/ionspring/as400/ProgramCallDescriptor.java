@@ -0,0 +1,186 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400DataType;
+import com.ibm.as400.access.QSYSObjectPathName;
+
+import java.util.List;
+
+/**
+ * Reusable description of a program call: the program and its parameters. Descriptors are immutable and meant to be
+ * created once, in a constant or a bean, and shared by all the calls of the program.
+ * <p>Example:</p>
+ * <pre>
+ * static final ProgramCallDescriptor GET_PRICE = new ProgramCallDescriptor("MYLIB", "GETPRICE", true,
+ *         ProgramCallDescriptor.Parameter.input(new AS400Text(10, 37)),
+ *         ProgramCallDescriptor.Parameter.output(new AS400PackedDecimal(11, 2)));
+ * </pre>
+ */
+public final class ProgramCallDescriptor {
+    private final String programPath;
+    private final boolean threadSafe;
+    private final List<Parameter> parameters;
+    private final int inputCount;
+
+    /**
+     * Creates a program call descriptor.
+     *
+     * @param library    The program library.
+     * @param program    The program name.
+     * @param threadSafe <code>true</code> if the program is thread safe and can run in the job of the host server,
+     *                   saving a round trip to the remote command server.
+     * @param parameters The program parameters, in order.
+     */
+    public ProgramCallDescriptor(String library, String program, boolean threadSafe, Parameter... parameters) {
+        this(QSYSObjectPathName.toPath(library, program, "PGM"), threadSafe, parameters);
+    }
+
+    /**
+     * Creates a program call descriptor.
+     *
+     * @param programPath The integrated file system path of the program, for instance
+     *                    <code>/QSYS.LIB/MYLIB.LIB/MYPGM.PGM</code>.
+     * @param threadSafe  <code>true</code> if the program is thread safe and can run in the job of the host server,
+     *                    saving a round trip to the remote command server.
+     * @param parameters  The program parameters, in order.
+     */
+    public ProgramCallDescriptor(String programPath, boolean threadSafe, Parameter... parameters) {
+        this.programPath = programPath;
+        this.threadSafe = threadSafe;
+        this.parameters = List.of(parameters);
+        this.inputCount = (int) this.parameters.stream().filter(Parameter::isInput).count();
+    }
+
+    public String getProgramPath() {
+        return programPath;
+    }
+
+    public boolean isThreadSafe() {
+        return threadSafe;
+    }
+
+    public List<Parameter> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @return The number of input and input/output parameters, which is the number of values expected by a call.
+     */
+    public int getInputCount() {
+        return inputCount;
+    }
+
+    /**
+     * Parameter direction.
+     */
+    public enum Direction {
+        INPUT, OUTPUT, INPUT_OUTPUT
+    }
+
+    /**
+     * Program parameter description: its direction and the converter between Java and IBM i values.
+     * <p>jt400 data types are not thread safe, an <code>AS400Text</code> loads its conversion table on first use and
+     * an <code>AS400Structure</code> can be changed, so the parameter keeps its own copy of the converter and each
+     * conversion uses a copy of it. Copies are cheap: jt400 caches the conversion tables.</p>
+     */
+    public static final class Parameter {
+        private final Direction direction;
+        private final AS400DataType dataType;
+
+        private Parameter(Direction direction, AS400DataType dataType) {
+            this.direction = direction;
+            this.dataType = (AS400DataType) dataType.clone();
+        }
+
+        /**
+         * @param dataType The parameter converter.
+         * @return An input parameter.
+         */
+        public static Parameter input(AS400DataType dataType) {
+            return new Parameter(Direction.INPUT, dataType);
+        }
+
+        /**
+         * @param dataType The parameter converter.
+         * @return An output parameter.
+         */
+        public static Parameter output(AS400DataType dataType) {
+            return new Parameter(Direction.OUTPUT, dataType);
+        }
+
+        /**
+         * @param dataType The parameter converter.
+         * @return An input/output parameter.
+         */
+        public static Parameter inputOutput(AS400DataType dataType) {
+            return new Parameter(Direction.INPUT_OUTPUT, dataType);
+        }
+
+        public Direction getDirection() {
+            return direction;
+        }
+
+        /**
+         * @return A copy of the parameter converter.
+         */
+        public AS400DataType getDataType() {
+            return (AS400DataType) dataType.clone();
+        }
+
+        /**
+         * @return The length of the parameter in bytes.
+         */
+        public int getByteLength() {
+            return dataType.getByteLength();
+        }
+
+        /**
+         * Converts a Java value to the parameter bytes.
+         *
+         * @param value The Java value.
+         * @return The parameter bytes.
+         */
+        public byte[] toBytes(Object value) {
+            return ((AS400DataType) dataType.clone()).toBytes(value);
+        }
+
+        /**
+         * Converts the parameter bytes to a Java value.
+         *
+         * @param bytes The parameter bytes.
+         * @return The Java value.
+         */
+        public Object toObject(byte[] bytes) {
+            return ((AS400DataType) dataType.clone()).toObject(bytes);
+        }
+
+        /**
+         * @return <code>true</code> for input and input/output parameters.
+         */
+        public boolean isInput() {
+            return direction != Direction.OUTPUT;
+        }
+
+        /**
+         * @return <code>true</code> for output and input/output parameters.
+         */
+        public boolean isOutput() {
+            return direction != Direction.INPUT;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400Message;
+
+/**
+ * Exception thrown when a program called by a {@link ProgramCallTemplate} fails or can't be called.
+ */
+@SuppressWarnings("unused")
+public class ProgramCallException extends RuntimeException {
+    private final transient AS400Message[] messages;
+
+    public ProgramCallException(String msg, AS400Message[] messages) {
+        super(msg);
+        this.messages = messages;
+    }
+
+    public ProgramCallException(String msg, Throwable cause) {
+        super(msg, cause);
+        this.messages = new AS400Message[0];
+    }
+
+    /**
+     * @return The messages returned by the failed program, empty if the program couldn't be called.
+     */
+    public AS400Message[] getMessages() {
+        return messages;
+    }
+}
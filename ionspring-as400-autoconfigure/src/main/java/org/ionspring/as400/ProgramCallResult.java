@@ -0,0 +1,53 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400Message;
+
+import java.util.Arrays;
+
+/**
+ * Result of a successful program call: the output parameter values and the messages returned by the program.
+ */
+public final class ProgramCallResult {
+    private final Object[] outputs;
+    private final AS400Message[] messages;
+
+    ProgramCallResult(Object[] outputs, AS400Message[] messages) {
+        this.outputs = outputs;
+        this.messages = messages;
+    }
+
+    /**
+     * Returns the value of an output or input/output parameter.
+     *
+     * @param parameterIndex The parameter index in the descriptor, starting at 0.
+     * @param <T>            The value type, as returned by the parameter converter.
+     * @return The parameter value, <code>null</code> for input parameters.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getOutput(int parameterIndex) {
+        return (T) outputs[parameterIndex];
+    }
+
+    /**
+     * @return The messages returned by the program.
+     */
+    public AS400Message[] getMessages() {
+        return Arrays.copyOf(messages, messages.length);
+    }
+}
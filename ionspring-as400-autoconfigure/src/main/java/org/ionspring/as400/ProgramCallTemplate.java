@@ -0,0 +1,143 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400;
+import com.ibm.as400.access.AS400Message;
+import com.ibm.as400.access.ProgramCall;
+import com.ibm.as400.access.ProgramParameter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Calls IBM i programs described by {@link ProgramCallDescriptor}s.
+ * <p>Each call, or each batch of calls, uses a connection borrowed from the {@link AS400Pool} if one is set, the
+ * shared <code>AS400</code> otherwise, so that the remote command server connection is reused between calls. A batch
+ * runs all its calls on the same connection, in the same host server job.</p>
+ * <p>Calls fail with a {@link ProgramCallException} when the program ends in error or can't be called.</p>
+ */
+public class ProgramCallTemplate {
+    private final AS400 as400;
+    private final AS400Pool pool;
+
+    /**
+     * Creates a program call template.
+     *
+     * @param as400 The shared <code>AS400</code>, used when <code>pool</code> is <code>null</code>.
+     * @param pool  The connection pool, or <code>null</code>.
+     */
+    public ProgramCallTemplate(AS400 as400, AS400Pool pool) {
+        this.as400 = as400;
+        this.pool = pool;
+    }
+
+    /**
+     * Calls a program.
+     *
+     * @param descriptor The program call descriptor.
+     * @param inputs     The values of the input and input/output parameters, in order.
+     * @return The call result.
+     * @throws ProgramCallException if the program fails or can't be called.
+     */
+    public ProgramCallResult call(ProgramCallDescriptor descriptor, Object... inputs) throws ProgramCallException {
+        final ProgramParameter[] parameters = toParameters(descriptor, inputs);
+        return execute(system -> run(system, descriptor, parameters));
+    }
+
+    /**
+     * Calls a program several times on the same connection.
+     *
+     * @param descriptor The program call descriptor.
+     * @param inputs     For each call, the values of the input and input/output parameters, in order.
+     * @return The call results, in the order of <code>inputs</code>.
+     * @throws ProgramCallException if one of the calls fails, the following calls are not run.
+     */
+    public List<ProgramCallResult> callBatch(ProgramCallDescriptor descriptor, List<Object[]> inputs) throws ProgramCallException {
+        // Parameters are converted before borrowing the connection, so that it's held only for the calls
+        final List<ProgramParameter[]> parameterLists = new ArrayList<>(inputs.size());
+        for (Object[] callInputs : inputs) {
+            parameterLists.add(toParameters(descriptor, callInputs));
+        }
+        return execute(system -> {
+            final List<ProgramCallResult> results = new ArrayList<>(parameterLists.size());
+            for (ProgramParameter[] parameters : parameterLists) {
+                results.add(run(system, descriptor, parameters));
+            }
+            return results;
+        });
+    }
+
+    private <T> T execute(AS400Callback<T, Exception> callback) {
+        try {
+            return pool != null ? pool.execute(callback) : callback.doWithAS400(as400);
+        } catch (ProgramCallException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProgramCallException("Program call interrupted", e);
+        } catch (Exception e) {
+            throw new ProgramCallException("Unable to call program: " + e.getMessage(), e);
+        }
+    }
+
+    static ProgramParameter[] toParameters(ProgramCallDescriptor descriptor, Object[] inputs) {
+        if (inputs.length != descriptor.getInputCount()) {
+            throw new IllegalArgumentException(descriptor.getProgramPath() + " expects " + descriptor.getInputCount()
+                    + " input values, got " + inputs.length);
+        }
+        final List<ProgramCallDescriptor.Parameter> definitions = descriptor.getParameters();
+        final ProgramParameter[] parameters = new ProgramParameter[definitions.size()];
+        int input = 0;
+        for (int i = 0; i < parameters.length; i++) {
+            final ProgramCallDescriptor.Parameter definition = definitions.get(i);
+            parameters[i] = switch (definition.getDirection()) {
+                case INPUT -> new ProgramParameter(definition.toBytes(inputs[input++]));
+                case OUTPUT -> new ProgramParameter(definition.getByteLength());
+                case INPUT_OUTPUT -> new ProgramParameter(definition.toBytes(inputs[input++]), definition.getByteLength());
+            };
+        }
+        return parameters;
+    }
+
+    private static ProgramCallResult run(AS400 system, ProgramCallDescriptor descriptor, ProgramParameter[] parameters) throws Exception {
+        final ProgramCall programCall = new ProgramCall(system, descriptor.getProgramPath(), parameters);
+        programCall.setThreadSafe(descriptor.isThreadSafe());
+        final boolean success = programCall.run();
+        final AS400Message[] messages = programCall.getMessageList();
+        if (!success) {
+            final String detail = messages.length > 0 ? messages[0].getID() + " " + messages[0].getText() : "no message";
+            throw new ProgramCallException(descriptor.getProgramPath() + " failed: " + detail, messages);
+        }
+        final byte[][] outputData = new byte[parameters.length][];
+        for (int i = 0; i < parameters.length; i++) {
+            outputData[i] = parameters[i].getOutputData();
+        }
+        return new ProgramCallResult(toOutputs(descriptor, outputData), messages);
+    }
+
+    static Object[] toOutputs(ProgramCallDescriptor descriptor, byte[][] outputData) {
+        final List<ProgramCallDescriptor.Parameter> definitions = descriptor.getParameters();
+        final Object[] outputs = new Object[outputData.length];
+        for (int i = 0; i < outputData.length; i++) {
+            if (definitions.get(i).isOutput()) {
+                outputs[i] = definitions.get(i).toObject(outputData[i]);
+            }
+        }
+        return outputs;
+    }
+}
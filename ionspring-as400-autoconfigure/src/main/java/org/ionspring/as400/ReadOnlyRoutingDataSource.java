@@ -0,0 +1,150 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DataSource routing the connections of read-only transactions to a replica system and all the others to the primary
+ * system, counting the connections obtained from each.
+ * <p>The replica is the read-only DataSource of the <code>LazyConnectionDataSourceProxy</code>: the transaction
+ * managers mark the connection read-only once the transaction began, and the physical connection is only obtained
+ * when the first statement is executed. The connection defaults should be set before calling
+ * {@link #afterPropertiesSet()}, otherwise a connection is opened to read them.</p>
+ * <p>Closing this DataSource closes the primary and replica DataSources that are <code>AutoCloseable</code>, such as
+ * connection pools.</p>
+ */
+public class ReadOnlyRoutingDataSource extends LazyConnectionDataSourceProxy implements AutoCloseable {
+    private final Map<Route, DataSource> dataSources = new EnumMap<>(Route.class);
+    private final Map<Route, AtomicLong> connectionCounts = new EnumMap<>(Route.class);
+    private final Map<Route, AtomicLong> connectionNanos = new EnumMap<>(Route.class);
+
+    /**
+     * The target systems.
+     */
+    public enum Route {
+        PRIMARY,
+        REPLICA
+    }
+
+    /**
+     * Creates a DataSource.
+     *
+     * @param primary The DataSource of the primary system.
+     * @param replica The DataSource of the replica system.
+     */
+    public ReadOnlyRoutingDataSource(DataSource primary, DataSource replica) {
+        for (Route route : Route.values()) {
+            connectionCounts.put(route, new AtomicLong());
+            connectionNanos.put(route, new AtomicLong());
+        }
+        dataSources.put(Route.PRIMARY, primary);
+        dataSources.put(Route.REPLICA, replica);
+        setTargetDataSource(new CountingDataSource(primary, Route.PRIMARY));
+        setReadOnlyDataSource(new CountingDataSource(replica, Route.REPLICA));
+    }
+
+    /**
+     * @param route The route.
+     * @return The DataSource of the route.
+     */
+    public DataSource getDataSource(Route route) {
+        return dataSources.get(route);
+    }
+
+    /**
+     * @param route The route.
+     * @return The number of connections obtained from the route.
+     */
+    public long getConnectionCount(Route route) {
+        return connectionCounts.get(route).get();
+    }
+
+    /**
+     * @param route The route.
+     * @return The total time spent obtaining connections from the route, in nanoseconds.
+     */
+    public long getConnectionNanos(Route route) {
+        return connectionNanos.get(route).get();
+    }
+
+    /**
+     * Closes the primary and replica DataSources that are <code>AutoCloseable</code>.
+     */
+    @Override
+    public void close() throws Exception {
+        Exception failure = null;
+        for (DataSource dataSource : dataSources.values()) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void record(Route route, long start) {
+        connectionCounts.get(route).incrementAndGet();
+        connectionNanos.get(route).addAndGet(System.nanoTime() - start);
+    }
+
+    private final class CountingDataSource extends DelegatingDataSource {
+        private final Route route;
+
+        CountingDataSource(DataSource dataSource, Route route) {
+            super(dataSource);
+            this.route = route;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            final long start = System.nanoTime();
+            try {
+                return super.getConnection();
+            } finally {
+                record(route, start);
+            }
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            final long start = System.nanoTime();
+            try {
+                return super.getConnection(username, password);
+            } finally {
+                record(route, start);
+            }
+        }
+    }
+}
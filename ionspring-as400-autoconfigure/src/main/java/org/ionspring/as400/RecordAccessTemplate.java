@@ -0,0 +1,308 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400;
+import com.ibm.as400.access.AS400DataType;
+import com.ibm.as400.access.AS400File;
+import com.ibm.as400.access.AS400FileRecordDescription;
+import com.ibm.as400.access.FieldDescription;
+import com.ibm.as400.access.KeyedFile;
+import com.ibm.as400.access.Record;
+import com.ibm.as400.access.RecordFormat;
+import com.ibm.as400.access.SequentialFile;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads and writes physical files with record-level access, for bulk sequential workloads.
+ * <p>Record formats are retrieved once per file and cached. Files are opened with a large blocking factor so that
+ * each round trip transfers a block of records: reads are exposed as lazily fetched <code>Stream</code>s, writes go
+ * through a {@link BufferedRecordWriter}.</p>
+ * <p>Each stream or writer uses a connection borrowed from the {@link AS400Pool} if one is set, the shared
+ * <code>AS400</code> otherwise, until it's closed. Streams are closed when exhausted, streams that might not be fully
+ * consumed must be closed, with a try-with-resources statement for instance.</p>
+ */
+public class RecordAccessTemplate {
+    private final AS400 as400;
+    private final AS400Pool pool;
+    private final int blockingFactor;
+    private final int writeBufferSize;
+    private final Map<String, RecordFormat> formats = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a record-level access template.
+     *
+     * @param as400           The shared <code>AS400</code>, used when <code>pool</code> is <code>null</code>.
+     * @param pool            The connection pool, or <code>null</code>.
+     * @param blockingFactor  The number of records read per round trip.
+     * @param writeBufferSize The number of records written per round trip.
+     */
+    public RecordAccessTemplate(AS400 as400, AS400Pool pool, int blockingFactor, int writeBufferSize) {
+        if (blockingFactor < 1 || writeBufferSize < 1) {
+            throw new IllegalArgumentException("blockingFactor and writeBufferSize must be at least 1");
+        }
+        this.as400 = as400;
+        this.pool = pool;
+        this.blockingFactor = blockingFactor;
+        this.writeBufferSize = writeBufferSize;
+    }
+
+    /**
+     * Returns the record format of a file, retrieving it on first use.
+     *
+     * @param path The file path, for instance <code>/QSYS.LIB/MYLIB.LIB/ORDERS.FILE</code>.
+     * @return The first record format of the file.
+     * @throws RecordAccessException if the record format can't be retrieved.
+     */
+    public RecordFormat getRecordFormat(String path) throws RecordAccessException {
+        final String key = path.toUpperCase(Locale.ROOT);
+        final RecordFormat cached = formats.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        final AS400 system = borrow();
+        try {
+            final RecordFormat format = new AS400FileRecordDescription(system, path).retrieveRecordFormat()[0];
+            final RecordFormat previous = formats.putIfAbsent(key, format);
+            return previous != null ? previous : format;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RecordAccessException("Interrupted while retrieving record format of " + path, e);
+        } catch (Exception e) {
+            throw new RecordAccessException("Unable to retrieve record format of " + path, e);
+        } finally {
+            release(system);
+        }
+    }
+
+    /**
+     * Removes a record format from the cache, after the file has been changed.
+     *
+     * @param path The file path.
+     */
+    public void evictRecordFormat(String path) {
+        formats.remove(path.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Reads all the records of a file in arrival sequence.
+     *
+     * @param path The file path, for instance <code>/QSYS.LIB/MYLIB.LIB/ORDERS.FILE</code>.
+     * @return The stream of records, that must be closed if not fully consumed.
+     * @throws RecordAccessException if the file can't be opened or read.
+     */
+    public Stream<Record> stream(String path) throws RecordAccessException {
+        final RecordFormat format = getRecordFormat(path);
+        final AS400 system = borrow();
+        final SequentialFile file = new SequentialFile(system, path);
+        try {
+            file.setRecordFormat(format);
+            file.open(AS400File.READ_ONLY, blockingFactor, AS400File.COMMIT_LOCK_LEVEL_NONE);
+        } catch (Exception e) {
+            close(file, system);
+            throw failure("Unable to open " + path, e);
+        }
+        return stream(path, file, system, null, null);
+    }
+
+    /**
+     * Reads the records of a keyed file whose key is between two keys, in key order. Keys can be partial, in which
+     * case only their first fields are compared. The server positions the file on the first key, the last key is
+     * checked here: numeric key fields are compared by value, the other key fields byte by byte, which is their key
+     * order for files without alternate collating or sort sequence.
+     *
+     * @param path    The file path, for instance <code>/QSYS.LIB/MYLIB.LIB/ORDERS.FILE</code>.
+     * @param fromKey The first key, inclusive.
+     * @param toKey   The last key, inclusive.
+     * @return The stream of records, that must be closed if not fully consumed.
+     * @throws RecordAccessException if the file can't be opened or read.
+     */
+    public Stream<Record> streamRange(String path, Object[] fromKey, Object[] toKey) throws RecordAccessException {
+        final RecordFormat format = getRecordFormat(path);
+        final AS400 system = borrow();
+        final KeyedFile file = new KeyedFile(system, path);
+        final KeyBound lastKey;
+        final Record first;
+        try {
+            lastKey = KeyBound.of(format, toKey);
+            file.setRecordFormat(format);
+            file.open(AS400File.READ_ONLY, blockingFactor, AS400File.COMMIT_LOCK_LEVEL_NONE);
+            first = file.read(fromKey, KeyedFile.KEY_GE);
+        } catch (Exception e) {
+            close(file, system);
+            throw failure("Unable to open " + path, e);
+        }
+        return stream(path, file, system, first, lastKey);
+    }
+
+    /**
+     * Opens a file to write records at its end.
+     *
+     * @param path The file path, for instance <code>/QSYS.LIB/MYLIB.LIB/ORDERS.FILE</code>.
+     * @return The writer, that must be closed to write the last records.
+     * @throws RecordAccessException if the file can't be opened.
+     */
+    public BufferedRecordWriter openWriter(String path) throws RecordAccessException {
+        final RecordFormat format = getRecordFormat(path);
+        final AS400 system = borrow();
+        final SequentialFile file = new SequentialFile(system, path);
+        try {
+            file.setRecordFormat(format);
+            file.open(AS400File.WRITE_ONLY, writeBufferSize, AS400File.COMMIT_LOCK_LEVEL_NONE);
+        } catch (Exception e) {
+            close(file, system);
+            throw failure("Unable to open " + path, e);
+        }
+        return new BufferedRecordWriter(path, file, writeBufferSize, () -> close(file, system));
+    }
+
+    public int getBlockingFactor() {
+        return blockingFactor;
+    }
+
+    public int getWriteBufferSize() {
+        return writeBufferSize;
+    }
+
+    private Stream<Record> stream(String path, AS400File file, AS400 system, Record first, KeyBound lastKey) {
+        final AtomicBoolean closed = new AtomicBoolean();
+        final Runnable close = () -> {
+            if (closed.compareAndSet(false, true)) {
+                close(file, system);
+            }
+        };
+        final Spliterator<Record> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            private Record next = first;
+            private boolean done = false;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Record> action) {
+                if (done) {
+                    return false;
+                }
+                try {
+                    final Record record = next != null ? next : file.readNext();
+                    next = null;
+                    if (record == null || (lastKey != null && lastKey.isBefore(record))) {
+                        done = true;
+                        close.run();
+                        return false;
+                    }
+                    action.accept(record);
+                    return true;
+                } catch (RuntimeException e) {
+                    done = true;
+                    close.run();
+                    throw e;
+                } catch (Exception e) {
+                    done = true;
+                    close.run();
+                    throw failure("Unable to read " + path, e);
+                }
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(close);
+    }
+
+    /**
+     * A (partial) key, compared with the keys of the records.
+     *
+     * @param dataTypes The data types of the key fields, copied so that the comparisons don't share them.
+     * @param values    The values of the key fields, as read from records.
+     */
+    record KeyBound(AS400DataType[] dataTypes, Object[] values) {
+
+        static KeyBound of(RecordFormat format, Object[] key) throws Exception {
+            // The key goes through a record, so that its values have the types of the values read from records
+            final Record record = format.getNewRecord();
+            final FieldDescription[] keyFields = format.getKeyFieldDescriptions();
+            final AS400DataType[] dataTypes = new AS400DataType[key.length];
+            for (int i = 0; i < key.length; i++) {
+                record.setField(keyFields[i].getFieldName(), key[i]);
+                dataTypes[i] = (AS400DataType) keyFields[i].getDataType().clone();
+            }
+            return new KeyBound(dataTypes, Arrays.copyOf(record.getKeyFields(), key.length));
+        }
+
+        /**
+         * @return <code>true</code> if the record key is after this key.
+         */
+        boolean isBefore(Record record) throws Exception {
+            final Object[] keyFields = record.getKeyFields();
+            for (int i = 0; i < values.length; i++) {
+                final int compare;
+                if (keyFields[i] instanceof Number recordValue && values[i] instanceof Number value) {
+                    compare = toBigDecimal(recordValue).compareTo(toBigDecimal(value));
+                } else {
+                    compare = Arrays.compareUnsigned(dataTypes[i].toBytes(keyFields[i]), dataTypes[i].toBytes(values[i]));
+                }
+                if (compare != 0) {
+                    return compare > 0;
+                }
+            }
+            return false;
+        }
+
+        private static BigDecimal toBigDecimal(Number number) {
+            return number instanceof BigDecimal bigDecimal ? bigDecimal : new BigDecimal(number.toString());
+        }
+    }
+
+    private static RecordAccessException failure(String msg, Exception e) {
+        if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+        }
+        return new RecordAccessException(msg, e);
+    }
+
+    private void close(AS400File file, AS400 system) {
+        try {
+            if (file.isOpen()) {
+                file.close();
+            }
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            // The connection is released anyway, the file is closed with it at the latest
+        } finally {
+            release(system);
+        }
+    }
+
+    private AS400 borrow() {
+        return pool != null ? pool.borrow() : as400;
+    }
+
+    private void release(AS400 system) {
+        if (pool != null) {
+            pool.release(system);
+        }
+    }
+}
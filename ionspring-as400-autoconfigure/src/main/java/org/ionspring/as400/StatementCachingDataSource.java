@@ -0,0 +1,354 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * A <code>DataSource</code> caching prepared statements per physical connection, so that preparing the same SQL
+ * statement again on a connection doesn't need a round trip to the database server.
+ * <p>It wraps the data source creating physical connections, below the connection pool: each physical connection keeps
+ * its least recently used <code>cacheSize</code> prepared statements while it lives in the pool.</p>
+ * <p>Closing a cached statement closes its open result set, clears its parameters, batch and warnings, restores its
+ * fetch size, max rows, max field size and query timeout, and gives it back to the cache. Statements are really closed
+ * when evicted from the cache or when their connection is closed.</p>
+ */
+public class StatementCachingDataSource implements DataSource {
+    private final DataSource targetDataSource;
+    private final int cacheSize;
+    private final StatementCacheStatistics statistics;
+
+    /**
+     * Creates a statement caching data source.
+     *
+     * @param targetDataSource The data source creating physical connections.
+     * @param cacheSize        The maximum number of cached statements per connection.
+     * @param statistics       The cache counters.
+     */
+    public StatementCachingDataSource(DataSource targetDataSource, int cacheSize, StatementCacheStatistics statistics) {
+        this.targetDataSource = targetDataSource;
+        this.cacheSize = cacheSize;
+        this.statistics = statistics;
+    }
+
+    public DataSource getTargetDataSource() {
+        return targetDataSource;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public StatementCacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(targetDataSource.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(targetDataSource.getConnection(username, password));
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return targetDataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        targetDataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        targetDataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return targetDataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return targetDataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return targetDataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || targetDataSource.isWrapperFor(iface);
+    }
+
+    private Connection wrap(Connection connection) {
+        final ConnectionHandler handler = new ConnectionHandler(connection);
+        final Connection proxy = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, handler);
+        handler.proxy = proxy;
+        return proxy;
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+            // The statement is discarded anyway
+        }
+    }
+
+    private record StatementKey(String methodName, List<Object> args) {
+        static StatementKey of(Method method, Object[] args) {
+            final List<Object> keyArgs = new ArrayList<>(args.length);
+            for (Object arg : args) {
+                if (arg instanceof int[] ints) {
+                    keyArgs.add(Arrays.stream(ints).boxed().toList());
+                } else if (arg instanceof Object[] objects) {
+                    keyArgs.add(Arrays.asList(objects));
+                } else {
+                    keyArgs.add(arg);
+                }
+            }
+            return new StatementKey(method.getName(), keyArgs);
+        }
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+        private final Map<StatementKey, PreparedStatement> cache;
+        private Connection proxy;
+        private volatile boolean closed = false;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+            this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<StatementKey, PreparedStatement> eldest) {
+                    if (size() > cacheSize) {
+                        statistics.recordEviction();
+                        closeQuietly(eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    return prepareStatement(method, args);
+                case "close":
+                    closed = true;
+                    closeCache();
+                    return invokeTarget(target, method, args);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return invokeTarget(target, method, args);
+            }
+        }
+
+        private PreparedStatement prepareStatement(Method method, Object[] args) throws Throwable {
+            final StatementKey key = StatementKey.of(method, args);
+            PreparedStatement statement;
+            synchronized (cache) {
+                // A cached statement is removed from the cache while in use, preparing the same statement twice
+                // gives two different statements
+                statement = cache.remove(key);
+            }
+            if (statement != null && !statement.isClosed()) {
+                statistics.recordHit();
+            } else {
+                statistics.recordMiss();
+                statement = (PreparedStatement) invokeTarget(target, method, args);
+            }
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, new StatementHandler(this, key, statement));
+        }
+
+        private void release(StatementKey key, PreparedStatement statement) {
+            final PreparedStatement previous;
+            synchronized (cache) {
+                previous = cache.put(key, statement);
+            }
+            if (previous != null && previous != statement) {
+                closeQuietly(previous);
+            }
+            if (closed) {
+                // The connection was closed concurrently
+                closeCache();
+            }
+        }
+
+        private void closeCache() {
+            final List<PreparedStatement> statements;
+            synchronized (cache) {
+                statements = new ArrayList<>(cache.values());
+                cache.clear();
+            }
+            statements.forEach(StatementCachingDataSource::closeQuietly);
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+        private final ConnectionHandler connection;
+        private final StatementKey key;
+        private final PreparedStatement target;
+        private final int fetchSize;
+        private final int maxRows;
+        private final int maxFieldSize;
+        private final int queryTimeout;
+        private boolean closed = false;
+
+        StatementHandler(ConnectionHandler connection, StatementKey key, PreparedStatement target) throws SQLException {
+            this.connection = connection;
+            this.key = key;
+            this.target = target;
+            this.fetchSize = target.getFetchSize();
+            this.maxRows = target.getMaxRows();
+            this.maxFieldSize = target.getMaxFieldSize();
+            this.queryTimeout = target.getQueryTimeout();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    close();
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "getConnection":
+                    return connection.proxy;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return target.toString();
+                default:
+                    if (closed) {
+                        throw new SQLException("Statement is closed");
+                    }
+                    final Object result = invokeTarget(target, method, args);
+                    if (result instanceof ResultSet resultSet) {
+                        // So that ResultSet.getStatement() doesn't give access to the cached statement
+                        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class},
+                                new ResultSetHandler(resultSet, (PreparedStatement) proxy));
+                    }
+                    return result;
+            }
+        }
+
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (!connection.closed) {
+                try {
+                    final ResultSet resultSet = target.getResultSet();
+                    if (resultSet != null) {
+                        resultSet.close();
+                    }
+                    target.clearParameters();
+                    target.clearBatch();
+                    target.clearWarnings();
+                    if (target.getFetchSize() != fetchSize) {
+                        target.setFetchSize(fetchSize);
+                    }
+                    if (target.getMaxRows() != maxRows) {
+                        target.setMaxRows(maxRows);
+                    }
+                    if (target.getMaxFieldSize() != maxFieldSize) {
+                        target.setMaxFieldSize(maxFieldSize);
+                    }
+                    if (target.getQueryTimeout() != queryTimeout) {
+                        target.setQueryTimeout(queryTimeout);
+                    }
+                    connection.release(key, target);
+                    return;
+                } catch (SQLException e) {
+                    // The statement can't be reset, it is not cached
+                }
+            }
+            closeQuietly(target);
+        }
+    }
+
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final PreparedStatement statement;
+
+        ResultSetHandler(ResultSet target, PreparedStatement statement) {
+            this.target = target;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "getStatement":
+                    return statement;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return invokeTarget(target, method, args);
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.SQLExceptionSubclassTranslator;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Runs queries returning lazily fetched <code>Stream</code>s of rows, so that memory use doesn't depend on the number
+ * of rows returned.
+ * <p>Queries use a forward-only, read-only cursor so that the IBM i JDBC driver fetches rows by blocks. By default,
+ * the blocks are sized by the <code>block size</code> property of the data source, in kilobytes, that can be set with
+ * <code>ionspring.as400.datasource.block-size</code>.</p>
+ * <p>The JTOpen driver only uses the fetch size to size the blocks when the <code>block size</code> property is 0.
+ * With such a data source, a template created with fetch sizes sets the fetch size to <code>initialFetchSize</code>,
+ * to get the first rows quickly, and doubles it every time a block is consumed, up to <code>maxFetchSize</code>.</p>
+ * <p>The connection, statement and result set are closed when the stream is exhausted or closed. Streams that might
+ * not be fully consumed must be closed, with a try-with-resources statement for instance. Inside a Spring transaction,
+ * the transaction connection is used.</p>
+ */
+public class StreamingQueryTemplate {
+    private final DataSource dataSource;
+    private final int initialFetchSize;
+    private final int maxFetchSize;
+    private final SQLExceptionTranslator exceptionTranslator = new SQLExceptionSubclassTranslator();
+
+    /**
+     * Creates a streaming query template fetching blocks sized by the <code>block size</code> property of the data
+     * source.
+     *
+     * @param dataSource The data source.
+     */
+    public StreamingQueryTemplate(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.initialFetchSize = 0;
+        this.maxFetchSize = 0;
+    }
+
+    /**
+     * Creates a streaming query template with a growing fetch size. The <code>block size</code> property of the data
+     * source must be 0, the driver ignores the fetch size otherwise.
+     *
+     * @param dataSource       The data source.
+     * @param initialFetchSize The fetch size of the first block.
+     * @param maxFetchSize     The maximum fetch size.
+     */
+    public StreamingQueryTemplate(DataSource dataSource, int initialFetchSize, int maxFetchSize) {
+        if (initialFetchSize < 1 || maxFetchSize < initialFetchSize) {
+            throw new IllegalArgumentException("initialFetchSize must be at least 1 and maxFetchSize at least initialFetchSize");
+        }
+        this.dataSource = dataSource;
+        this.initialFetchSize = initialFetchSize;
+        this.maxFetchSize = maxFetchSize;
+    }
+
+    /**
+     * Runs a query and returns its rows as a lazily fetched stream.
+     *
+     * @param sql       The SQL query.
+     * @param rowMapper Maps each row.
+     * @param args      The query parameters.
+     * @param <T>       The row type.
+     * @return The stream of mapped rows, that must be closed if not fully consumed.
+     * @throws DataAccessException if the query fails.
+     */
+    public <T> Stream<T> stream(String sql, RowMapper<T> rowMapper, Object... args) throws DataAccessException {
+        final Connection connection = DataSourceUtils.getConnection(dataSource);
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        try {
+            statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            if (initialFetchSize > 0) {
+                statement.setFetchSize(initialFetchSize);
+            }
+            for (int i = 0; i < args.length; i++) {
+                statement.setObject(i + 1, args[i]);
+            }
+            resultSet = statement.executeQuery();
+        } catch (SQLException e) {
+            JdbcUtils.closeResultSet(resultSet);
+            JdbcUtils.closeStatement(statement);
+            DataSourceUtils.releaseConnection(connection, dataSource);
+            throw translate(sql, e);
+        }
+        final RowSpliterator<T> spliterator = new RowSpliterator<>(sql, connection, statement, resultSet, rowMapper);
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+    }
+
+    /**
+     * @return The fetch size of the first block, 0 when blocks are sized by the data source.
+     */
+    public int getInitialFetchSize() {
+        return initialFetchSize;
+    }
+
+    /**
+     * @return The maximum fetch size, 0 when blocks are sized by the data source.
+     */
+    public int getMaxFetchSize() {
+        return maxFetchSize;
+    }
+
+    private DataAccessException translate(String sql, SQLException e) {
+        final DataAccessException translated = exceptionTranslator.translate("StreamingQueryTemplate", sql, e);
+        return translated != null ? translated : new UncategorizedSQLException("StreamingQueryTemplate", sql, e);
+    }
+
+    private final class RowSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+        private final String sql;
+        private final Connection connection;
+        private final PreparedStatement statement;
+        private final ResultSet resultSet;
+        private final RowMapper<T> rowMapper;
+        private int rowNum = 0;
+        private int fetchSize = initialFetchSize;
+        private int nextBlock = initialFetchSize;
+        private boolean closed = false;
+
+        RowSpliterator(String sql, Connection connection, PreparedStatement statement, ResultSet resultSet,
+                       RowMapper<T> rowMapper) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED);
+            this.sql = sql;
+            this.connection = connection;
+            this.statement = statement;
+            this.resultSet = resultSet;
+            this.rowMapper = rowMapper;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (closed) {
+                return false;
+            }
+            try {
+                if (!resultSet.next()) {
+                    close();
+                    return false;
+                }
+                final T row = rowMapper.mapRow(resultSet, rowNum++);
+                if (rowNum == nextBlock && fetchSize < maxFetchSize) {
+                    // The current block is consumed, the next ones are bigger
+                    fetchSize = Math.min(fetchSize * 2, maxFetchSize);
+                    nextBlock += fetchSize;
+                    resultSet.setFetchSize(fetchSize);
+                }
+                action.accept(row);
+                return true;
+            } catch (SQLException e) {
+                close();
+                throw translate(sql, e);
+            }
+        }
+
+        void close() {
+            if (!closed) {
+                closed = true;
+                JdbcUtils.closeResultSet(resultSet);
+                JdbcUtils.closeStatement(statement);
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+        }
+    }
+}
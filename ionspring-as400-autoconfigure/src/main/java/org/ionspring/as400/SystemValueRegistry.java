@@ -0,0 +1,202 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400;
+import com.ibm.as400.access.SystemValue;
+import com.ibm.as400.access.SystemValueGroup;
+import com.ibm.as400.access.SystemValueList;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of IBM i system values, so that reading a system value usually costs a map lookup instead of a host round
+ * trip.
+ * <p>Each value is kept for its own time to live, <code>defaultTtl</code> unless set in <code>ttls</code>. When a
+ * value must be retrieved, all the other expired values are retrieved with it, in a single host call.
+ * {@link #prefetch(Collection)} and {@link #prefetchGroup(int)} load several values at once ahead of their first use,
+ * {@link #refresh()} reloads all the cached values.</p>
+ */
+public class SystemValueRegistry {
+    private final AS400 as400;
+    private final Duration defaultTtl;
+    private final Map<String, Duration> ttls;
+    private final Map<String, Entry> values = new ConcurrentHashMap<>();
+    private final Object loadLock = new Object();
+
+    /**
+     * Creates a system value registry.
+     *
+     * @param as400      The system.
+     * @param defaultTtl The time to live of the values without specific time to live.
+     * @param ttls       The time to live of specific values, by system value name.
+     */
+    public SystemValueRegistry(AS400 as400, Duration defaultTtl, Map<String, Duration> ttls) {
+        this.as400 = as400;
+        this.defaultTtl = defaultTtl;
+        final Map<String, Duration> normalized = new ConcurrentHashMap<>();
+        ttls.forEach((name, ttl) -> normalized.put(name.toUpperCase(Locale.ROOT), ttl));
+        this.ttls = normalized;
+    }
+
+    /**
+     * Returns a system value, from the cache if it hasn't expired.
+     *
+     * @param name The system value name, for instance <code>QDATE</code>.
+     * @return The system value, typed as documented by <code>SystemValue.getValue()</code>.
+     * @throws SystemValueException if the value must be retrieved and can't be.
+     */
+    public Object getValue(String name) throws SystemValueException {
+        final String key = name.toUpperCase(Locale.ROOT);
+        final Entry entry = values.get(key);
+        if (entry != null && entry.expiresAt() - System.nanoTime() > 0) {
+            return entry.value();
+        }
+        synchronized (loadLock) {
+            // Another thread might have loaded the value while this one was waiting
+            final Entry loaded = values.get(key);
+            if (loaded != null && loaded.expiresAt() - System.nanoTime() > 0) {
+                return loaded.value();
+            }
+            final long now = System.nanoTime();
+            final Set<String> names = new TreeSet<>();
+            names.add(key);
+            values.forEach((cachedName, cached) -> {
+                if (cached.expiresAt() - now <= 0) {
+                    names.add(cachedName);
+                }
+            });
+            load(names);
+            return values.get(key).value();
+        }
+    }
+
+    /**
+     * Retrieves system values in a single host call and caches them.
+     *
+     * @param names The system value names.
+     * @throws SystemValueException if the values can't be retrieved.
+     */
+    public void prefetch(Collection<String> names) throws SystemValueException {
+        final Set<String> keys = new TreeSet<>();
+        names.forEach(name -> keys.add(name.toUpperCase(Locale.ROOT)));
+        synchronized (loadLock) {
+            load(keys);
+        }
+    }
+
+    /**
+     * Retrieves a group of system values in a single host call and caches them.
+     *
+     * @param group The group, one of the <code>SystemValueList.GROUP_*</code> constants.
+     * @throws SystemValueException if the values can't be retrieved.
+     */
+    public void prefetchGroup(int group) throws SystemValueException {
+        synchronized (loadLock) {
+            try {
+                final Vector<?> systemValues = new SystemValueList(as400).getGroup(group);
+                for (Object systemValue : systemValues) {
+                    cache(((SystemValue) systemValue).getName(), ((SystemValue) systemValue).getValue());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SystemValueException("Interrupted while retrieving system value group " + group, e);
+            } catch (Exception e) {
+                throw new SystemValueException("Unable to retrieve system value group " + group, e);
+            }
+        }
+    }
+
+    /**
+     * Reloads all the cached values in a single host call.
+     *
+     * @throws SystemValueException if the values can't be retrieved.
+     */
+    public void refresh() throws SystemValueException {
+        synchronized (loadLock) {
+            load(new TreeSet<>(values.keySet()));
+        }
+    }
+
+    /**
+     * Removes a value from the cache, so that it's retrieved on its next use.
+     *
+     * @param name The system value name.
+     */
+    public void evict(String name) {
+        values.remove(name.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * @return The names of the cached values.
+     */
+    public Set<String> getCachedNames() {
+        return new TreeSet<>(values.keySet());
+    }
+
+    private void load(Set<String> names) {
+        if (names.isEmpty()) {
+            return;
+        }
+        try {
+            retrieve(names).forEach(this::cache);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SystemValueException("Interrupted while retrieving system values " + names, e);
+        } catch (Exception e) {
+            throw new SystemValueException("Unable to retrieve system values " + names, e);
+        }
+    }
+
+    /**
+     * Retrieves system values in a single host call.
+     *
+     * @param names The system value names.
+     * @return The values by name.
+     * @throws Exception if the values can't be retrieved.
+     */
+    Map<String, Object> retrieve(Set<String> names) throws Exception {
+        final List<SystemValue> systemValues = new ArrayList<>(names.size());
+        for (String name : names) {
+            systemValues.add(new SystemValue(as400, name));
+        }
+        SystemValueGroup.refresh(new Vector<>(systemValues));
+        final Map<String, Object> retrieved = new HashMap<>();
+        for (SystemValue systemValue : systemValues) {
+            retrieved.put(systemValue.getName(), systemValue.getValue());
+        }
+        return retrieved;
+    }
+
+    private void cache(String name, Object value) {
+        final Duration ttl = ttls.getOrDefault(name, defaultTtl);
+        values.put(name, new Entry(value, System.nanoTime() + ttl.toNanos()));
+    }
+
+    private record Entry(Object value, long expiresAt) {
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400Text;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Converts between Java strings and IBM i text fields, reading and writing caller-supplied buffers.
+ * <p>Instances are cached per CCSID and thread safe. For single-byte CCSIDs known by the JVM (37, 273, 297, 500,
+ * 1140 to 1148...), conversions use lookup tables built once and don't allocate, except for the decoded
+ * <code>String</code>. Other CCSIDs fall back to <code>AS400Text</code> converters, cached per field length.</p>
+ */
+public final class TextCodec {
+    private static final Map<Integer, TextCodec> CODECS = new ConcurrentHashMap<>();
+    private static final byte EBCDIC_SUBSTITUTE = 0x3F;
+
+    private final int ccsid;
+    private final char[] decodeTable;
+    private final byte[] encodeTable;
+    private final byte blank;
+    private final Map<Integer, AS400Text> converters = new ConcurrentHashMap<>();
+
+    private TextCodec(int ccsid) {
+        this.ccsid = ccsid;
+        final Charset charset = singleByteCharset(ccsid);
+        if (charset != null) {
+            final byte[] bytes = new byte[256];
+            for (int i = 0; i < 256; i++) {
+                bytes[i] = (byte) i;
+            }
+            decodeTable = new String(bytes, charset).toCharArray();
+            encodeTable = new byte[65536];
+            Arrays.fill(encodeTable, EBCDIC_SUBSTITUTE);
+            // Iterating backwards keeps the lowest byte value when several bytes decode to the same character
+            for (int i = 255; i >= 0; i--) {
+                if (decodeTable[i] != '\uFFFD') {
+                    encodeTable[decodeTable[i]] = (byte) i;
+                }
+            }
+            blank = encodeTable[' '];
+        } else {
+            decodeTable = null;
+            encodeTable = null;
+            blank = 0x40;
+        }
+    }
+
+    /**
+     * Returns the codec of a CCSID.
+     *
+     * @param ccsid The CCSID.
+     * @return The shared codec.
+     */
+    public static TextCodec forCcsid(int ccsid) {
+        return CODECS.computeIfAbsent(ccsid, TextCodec::new);
+    }
+
+    /**
+     * Encodes a string into a fixed length field, padded with blanks.
+     *
+     * @param value  The string.
+     * @param buffer The destination buffer.
+     * @param offset The field offset in the buffer.
+     * @param length The field length, in bytes.
+     * @throws IllegalArgumentException if the string is longer than the field.
+     */
+    public void encode(CharSequence value, byte[] buffer, int offset, int length) {
+        if (encodeTable == null) {
+            converter(length).toBytes(value.toString(), buffer, offset);
+            return;
+        }
+        final int valueLength = value.length();
+        if (valueLength > length) {
+            throw new IllegalArgumentException("Value length " + valueLength + " exceeds field length " + length);
+        }
+        for (int i = 0; i < valueLength; i++) {
+            buffer[offset + i] = encodeTable[value.charAt(i)];
+        }
+        Arrays.fill(buffer, offset + valueLength, offset + length, blank);
+    }
+
+    /**
+     * Decodes a fixed length field.
+     *
+     * @param buffer The source buffer.
+     * @param offset The field offset in the buffer.
+     * @param length The field length, in bytes.
+     * @return The string, including trailing blanks.
+     */
+    public String decode(byte[] buffer, int offset, int length) {
+        if (decodeTable == null) {
+            return (String) converter(length).toObject(buffer, offset);
+        }
+        final char[] chars = new char[length];
+        decode(buffer, offset, length, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * Decodes a fixed length field, without its trailing blanks.
+     *
+     * @param buffer The source buffer.
+     * @param offset The field offset in the buffer.
+     * @param length The field length, in bytes.
+     * @return The string, without trailing blanks.
+     */
+    public String decodeTrimmed(byte[] buffer, int offset, int length) {
+        if (decodeTable == null) {
+            return decode(buffer, offset, length).stripTrailing();
+        }
+        int end = offset + length;
+        while (end > offset && buffer[end - 1] == blank) {
+            end--;
+        }
+        return decode(buffer, offset, end - offset);
+    }
+
+    /**
+     * Decodes a fixed length field into a caller-supplied character array, without allocating.
+     *
+     * @param buffer            The source buffer.
+     * @param offset            The field offset in the buffer.
+     * @param length            The field length, in bytes.
+     * @param destination       The destination array.
+     * @param destinationOffset The offset of the first character in the destination array.
+     * @return The number of characters written.
+     */
+    public int decode(byte[] buffer, int offset, int length, char[] destination, int destinationOffset) {
+        if (decodeTable == null) {
+            final String value = decode(buffer, offset, length);
+            value.getChars(0, value.length(), destination, destinationOffset);
+            return value.length();
+        }
+        for (int i = 0; i < length; i++) {
+            destination[destinationOffset + i] = decodeTable[buffer[offset + i] & 0xFF];
+        }
+        return length;
+    }
+
+    public int getCcsid() {
+        return ccsid;
+    }
+
+    /**
+     * @return <code>true</code> if the conversions use lookup tables, <code>false</code> if they use
+     * <code>AS400Text</code>.
+     */
+    public boolean isSingleByte() {
+        return decodeTable != null;
+    }
+
+    private AS400Text converter(int length) {
+        return converters.computeIfAbsent(length, l -> new AS400Text(l, ccsid));
+    }
+
+    private static Charset singleByteCharset(int ccsid) {
+        for (String name : new String[]{"IBM" + String.format("%03d", ccsid), "IBM0" + ccsid, "Cp" + String.format("%03d", ccsid)}) {
+            try {
+                final Charset charset = Charset.forName(name);
+                if (charset.newEncoder().maxBytesPerChar() == 1.0f) {
+                    return charset;
+                }
+            } catch (IllegalArgumentException e) {
+                // Unknown charset name, try the next one
+            }
+        }
+        return null;
+    }
+}
@@ -19,12 +19,49 @@ package org.ionspring.as400.autoconfigure;
 import com.ibm.as400.access.AS400;
 import com.ibm.as400.access.AS400JDBCDataSource;
 import com.ibm.as400.access.SecureAS400;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.ionspring.as400.AS400AsyncTemplate;
+import org.ionspring.as400.AS400AuthenticationMetrics;
 import org.ionspring.as400.AS400AuthenticationProvider;
+import org.ionspring.as400.AS400DataQueueEndpoint;
+import org.ionspring.as400.AS400Executors;
+import org.ionspring.as400.AS400LoginBulkhead;
+import org.ionspring.as400.AS400Pool;
+import org.ionspring.as400.AS400SignonCache;
+import org.ionspring.as400.AS400SpecialAuthorityCache;
+import org.ionspring.as400.AS400SystemRouter;
+import org.ionspring.as400.AS400WarmUp;
+import org.ionspring.as400.CommandExecutor;
+import org.ionspring.as400.DataQueueEndpointFactory;
+import org.ionspring.as400.DataQueueListenerAnnotationBeanPostProcessor;
+import org.ionspring.as400.DataQueueListenerContainer;
+import org.ionspring.as400.DataQueueListenerContainerCustomizer;
+import org.ionspring.as400.FailoverDataSource;
+import org.ionspring.as400.IfsFileCache;
+import org.ionspring.as400.IfsProtocolResolver;
+import org.ionspring.as400.IfsProtocolResolverRegistrar;
+import org.ionspring.as400.MicrometerAS400AuthenticationMetrics;
+import org.ionspring.as400.PcmlDocumentCache;
+import org.ionspring.as400.ProgramCallTemplate;
+import org.ionspring.as400.ReadOnlyRoutingDataSource;
+import org.ionspring.as400.RecordAccessTemplate;
+import org.ionspring.as400.StatementCacheStatistics;
+import org.ionspring.as400.StatementCachingDataSource;
+import org.ionspring.as400.StreamingQueryTemplate;
+import org.ionspring.as400.SystemValueRegistry;
 import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.context.properties.bind.Bindable;
@@ -34,25 +71,55 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.env.Environment;
 import org.springframework.core.env.PropertiesPropertySource;
+import org.springframework.core.io.ResourceLoader;
 import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.util.ClassUtils;
 
 import javax.sql.DataSource;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * AS400 and related bean autoconfiguration.
  */
-@AutoConfiguration
+@AutoConfiguration(afterName = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
 @ConditionalOnClass(AS400.class)
 @EnableConfigurationProperties(IonSpringProperties.class)
-public class AS400AutoConfiguration {
+public class AS400AutoConfiguration implements DisposableBean {
+    private AS400 replicaSystem;
 
     @Bean
     @Lazy
     @ConditionalOnMissingBean
-    public AS400 as400(IonSpringProperties properties) {
+    @ConditionalOnProperty(prefix = "ionspring.as400", name = "systems[0].system")
+    public AS400SystemRouter as400SystemRouter(IonSpringProperties properties) {
+        final List<AS400SystemRouter.Route> routes = new ArrayList<>();
+        for (IonSpringProperties.SystemProperties system : properties.getAs400().getSystems()) {
+            routes.add(new AS400SystemRouter.Route(system.getName(), system.getPriority(),
+                    createAS400(system.getSystem(), system.getUser(), system.getPassword(), system.isSecured())));
+        }
+        final IonSpringProperties.RoutingProperties routing = properties.getAs400().getRouting();
+        return new AS400SystemRouter(routes, routing.getFailureThreshold(), routing.getOpenDuration(),
+                routing.getLatencyThreshold(), routing.getProbeInterval(), routing.getProbeTimeout());
+    }
+
+    @Bean
+    @Lazy
+    @ConditionalOnMissingBean
+    public AS400 as400(IonSpringProperties properties, ObjectProvider<AS400SystemRouter> router) {
+        final AS400SystemRouter systemRouter = router.getIfAvailable();
+        if (systemRouter != null) {
+            return systemRouter.createProxy();
+        }
         if (!System.getProperty("os.name").equals("OS/400")) {
             if (properties.getAs400().getSystem().equals("localhost")) {
                 throw new BeanCreationException("ionspring.as400.system can't be set to \"localhost\" when not running on OS400");
@@ -65,15 +132,163 @@ public class AS400AutoConfiguration {
             }
         }
 
-        if (properties.getAs400().isSecured()) {
-            return new SecureAS400(properties.getAs400().getSystem(),
-                    properties.getAs400().getUser(),
-                    properties.getAs400().getPassword().toCharArray());
+        return createAS400(properties.getAs400().getSystem(), properties.getAs400().getUser(),
+                properties.getAs400().getPassword(), properties.getAs400().isSecured());
+    }
+
+    private static AS400 createAS400(String system, String user, String password, boolean secured) {
+        if (secured) {
+            return new SecureAS400(system, user, password.toCharArray());
         } else {
-            return new AS400(properties.getAs400().getSystem(),
-                    properties.getAs400().getUser(),
-                    properties.getAs400().getPassword().toCharArray());
+            return new AS400(system, user, password.toCharArray());
+        }
+    }
+
+    @Bean
+    @Lazy
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(AS400.class)
+    @ConditionalOnProperty(prefix = "ionspring.as400.pool", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public AS400Pool as400Pool(AS400 as400, IonSpringProperties properties, ObjectProvider<AS400SystemRouter> router) {
+        final IonSpringProperties.PoolProperties pool = properties.getAs400().getPool();
+        final int[] prestartServices = pool.getPrestartServices().stream()
+                .mapToInt(IonSpringProperties.As400Service::getService).toArray();
+        // Connections copy the selected system rather than the routing proxy, whose fields are not initialized
+        final AS400SystemRouter systemRouter = router.getIfAvailable();
+        if (systemRouter != null) {
+            return new AS400Pool(systemRouter, pool.getMinIdle(), pool.getMaxSize(), pool.getMaxIdleTime(),
+                    pool.getEvictionInterval(), pool.getMaxWait(), prestartServices);
+        }
+        return new AS400Pool(as400, pool.getMinIdle(), pool.getMaxSize(), pool.getMaxIdleTime(),
+                pool.getEvictionInterval(), pool.getMaxWait(), prestartServices);
+    }
+
+    @Bean
+    @Lazy
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(AS400.class)
+    public AS400AsyncTemplate as400AsyncTemplate(AS400 as400, ObjectProvider<AS400Pool> pool, IonSpringProperties properties) {
+        final IonSpringProperties.ExecutorProperties executor = properties.getAs400().getExecutor();
+        final AS400Pool as400Pool = pool.getIfAvailable();
+        // Calls above the pool size would only wait for a connection
+        int maxConcurrency = as400Pool != null ? as400Pool.getMaxSize() : 10;
+        if (executor.getMaxConcurrency() != null) {
+            maxConcurrency = executor.getMaxConcurrency();
+        }
+        return new AS400AsyncTemplate(as400, as400Pool, maxConcurrency, executor.getMaxWaiting(),
+                executor.getThreadNamePrefix());
+    }
+
+    @Bean
+    @Lazy
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(AS400.class)
+    public CommandExecutor commandExecutor(AS400 as400, ObjectProvider<AS400Pool> pool) {
+        return new CommandExecutor(as400, pool.getIfAvailable());
+    }
+
+    @Bean
+    @Lazy
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(AS400.class)
+    public ProgramCallTemplate programCallTemplate(AS400 as400, ObjectProvider<AS400Pool> pool) {
+        return new ProgramCallTemplate(as400, pool.getIfAvailable());
+    }
+
+    @Bean
+    @Lazy
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(AS400.class)
+    public RecordAccessTemplate recordAccessTemplate(AS400 as400, ObjectProvider<AS400Pool> pool, IonSpringProperties properties) {
+        final IonSpringProperties.RecordAccessProperties recordAccess = properties.getAs400().getRecordAccess();
+        return new RecordAccessTemplate(as400, pool.getIfAvailable(), recordAccess.getBlockingFactor(),
+                recordAccess.getWriteBufferSize());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public static IfsProtocolResolverRegistrar ifsProtocolResolverRegistrar() {
+        return new IfsProtocolResolverRegistrar();
+    }
+
+    @Bean
+    @Lazy
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(AS400.class)
+    public IfsProtocolResolver ifsProtocolResolver(ObjectProvider<AS400> as400, ObjectProvider<IfsFileCache> cache,
+                                                   IonSpringProperties properties) {
+        return new IfsProtocolResolver(as400::getObject, cache.getIfAvailable(),
+                (int) properties.getAs400().getIfs().getBufferSize().toBytes());
+    }
+
+    @Bean
+    @Lazy
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(AS400.class)
+    @ConditionalOnProperty(prefix = "ionspring.as400.ifs.cache", name = "enabled", havingValue = "true")
+    public IfsFileCache ifsFileCache(IonSpringProperties properties) throws IOException {
+        final IonSpringProperties.IfsCacheProperties cache = properties.getAs400().getIfs().getCache();
+        return new IfsFileCache(Path.of(cache.getDirectory()), cache.getMaxSize().toBytes(), cache.getMaxFileSize().toBytes());
+    }
+
+    @Bean
+    @Lazy
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(AS400.class)
+    public SystemValueRegistry systemValueRegistry(AS400 as400, IonSpringProperties properties) {
+        final IonSpringProperties.SystemValuesProperties systemValues = properties.getAs400().getSystemValues();
+        final SystemValueRegistry registry = new SystemValueRegistry(as400, systemValues.getDefaultTtl(), systemValues.getTtl());
+        if (!systemValues.getPrefetch().isEmpty()) {
+            registry.prefetch(systemValues.getPrefetch());
         }
+        return registry;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(AS400.class)
+    @ConditionalOnProperty(prefix = "ionspring.as400.warmup", name = "enabled", havingValue = "true")
+    public AS400WarmUp as400WarmUp(ObjectProvider<AS400> as400, ObjectProvider<AS400Pool> pool,
+                                   ObjectProvider<DataSource> dataSource, IonSpringProperties properties) {
+        final IonSpringProperties.WarmupProperties warmup = properties.getAs400().getWarmup();
+        final IonSpringProperties.DataSourcePoolProperties dataSourcePool = properties.getAs400().getDatasource().getPool();
+        // Without Hikari, connections are not pooled and a single one checks the database host server
+        int jdbcConnections = 1;
+        if (ClassUtils.isPresent("com.zaxxer.hikari.HikariDataSource", AS400AutoConfiguration.class.getClassLoader())) {
+            jdbcConnections = dataSourcePool.getMinimumIdle() != null ? dataSourcePool.getMinimumIdle() : dataSourcePool.getMaximumPoolSize();
+        }
+        return new AS400WarmUp(as400::getObject,
+                warmup.getServices().stream().mapToInt(IonSpringProperties.As400Service::getService).toArray(),
+                pool::getIfAvailable, dataSource::getIfAvailable, jdbcConnections, warmup.getTimeout());
+    }
+
+    @Bean
+    @Lazy
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(AS400.class)
+    public PcmlDocumentCache pcmlDocumentCache(AS400 as400, IonSpringProperties properties, ResourceLoader resourceLoader) {
+        return new PcmlDocumentCache(as400, resourceLoader.getClassLoader(), properties.getAs400().getPcml().getPaths());
+    }
+
+    @Bean
+    @Lazy
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(AS400.class)
+    public DataQueueEndpointFactory dataQueueEndpointFactory(AS400 as400, ObjectProvider<AS400Pool> pool) {
+        return (queue, key, searchType) -> new AS400DataQueueEndpoint(as400, pool.getIfAvailable(), queue, key, searchType);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public static DataQueueListenerAnnotationBeanPostProcessor dataQueueListenerAnnotationBeanPostProcessor() {
+        return new DataQueueListenerAnnotationBeanPostProcessor();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "ionspring.as400.datasource.statement-cache", name = "enabled", havingValue = "true")
+    public StatementCacheStatistics as400StatementCacheStatistics() {
+        return new StatementCacheStatistics();
     }
 
     @Bean
@@ -83,7 +298,10 @@ public class AS400AutoConfiguration {
     @ConfigurationProperties("ionspring.as400.datasource")
     public DataSource as400JDBCDataSource(ConfigurableEnvironment configurableEnvironment,
                                           AS400 as400,
-                                          Environment environment) {
+                                          Environment environment,
+                                          IonSpringProperties properties,
+                                          ObjectProvider<StatementCacheStatistics> statementCacheStatistics,
+                                          ObjectProvider<AS400SystemRouter> router) {
         // Hibernate dialect auto select is currently bugged with JTOpen driver and selects DB2Dialect instead of
         // DB2iDialect. Therefore, we force DB2iDialect, you can ignore the warning in the log saying it's
         // unnecessary.
@@ -91,32 +309,249 @@ public class AS400AutoConfiguration {
         props.put("spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.DB2iDialect");
         configurableEnvironment.getPropertySources().addLast(new PropertiesPropertySource("ionspring", props));
 
+        final AS400SystemRouter systemRouter = router.getIfAvailable();
+        DataSource physicalDataSource;
+        if (systemRouter != null) {
+            final Map<AS400SystemRouter.Route, DataSource> dataSources = new HashMap<>();
+            for (AS400SystemRouter.Route route : systemRouter.getRoutes()) {
+                dataSources.put(route, createJdbcDataSource(route.getSystem(), environment));
+            }
+            physicalDataSource = new FailoverDataSource(systemRouter, dataSources);
+        } else {
+            physicalDataSource = createJdbcDataSource(as400, environment);
+        }
+        final StatementCacheStatistics statistics = statementCacheStatistics.getIfAvailable();
+        final IonSpringProperties.DataSourceProperties datasource = properties.getAs400().getDatasource();
+        final DataSource primary = pooled(physicalDataSource, statistics, datasource, datasource.getPool());
+        final IonSpringProperties.ReplicaProperties replica = datasource.getReplica();
+        if (replica.getSystem() == null) {
+            return primary;
+        }
+        replicaSystem = createAS400(replica.getSystem(),
+                replica.getUser() != null ? replica.getUser() : properties.getAs400().getUser(),
+                replica.getPassword() != null ? replica.getPassword() : properties.getAs400().getPassword(),
+                replica.isSecured());
+        final DataSource replicaDataSource = pooled(createJdbcDataSource(replicaSystem, environment), statistics,
+                datasource, replica.getPool());
+        // The connection defaults are set so that the proxy doesn't open a connection to read them. The pools are
+        // closed with the routing DataSource, the replica system is disconnected when the context is closed.
+        final ReadOnlyRoutingDataSource routingDataSource = new ReadOnlyRoutingDataSource(primary, replicaDataSource);
+        routingDataSource.setDefaultAutoCommit(true);
+        routingDataSource.setDefaultTransactionIsolation(transactionIsolation(environment));
+        routingDataSource.afterPropertiesSet();
+        return routingDataSource;
+    }
+
+    @Bean
+    @Lazy
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(AS400.class)
+    @ConditionalOnClass(name = "org.springframework.jdbc.core.JdbcTemplate")
+    public StreamingQueryTemplate as400StreamingQueryTemplate(DataSource dataSource, IonSpringProperties properties,
+                                                              Environment environment) {
+        // JTOpen ignores the fetch size unless the block size is 0, blocks are then sized by the driver default of 32 KB
+        final int blockSize = Binder.get(environment)
+                .bind("ionspring.as400.datasource.block-size", Integer.class)
+                .orElse(32);
+        if (blockSize != 0) {
+            return new StreamingQueryTemplate(dataSource);
+        }
+        final IonSpringProperties.StreamingProperties streaming = properties.getAs400().getDatasource().getStreaming();
+        return new StreamingQueryTemplate(dataSource, streaming.getInitialFetchSize(), streaming.getMaxFetchSize());
+    }
+
+    /**
+     * Returns the JDBC isolation level of the <code>transaction isolation</code> JTOpen property, defaulting to
+     * <code>read uncommitted</code> like the driver.
+     */
+    private static int transactionIsolation(Environment environment) {
+        final String isolation = Binder.get(environment)
+                .bind("ionspring.as400.datasource.transaction-isolation", String.class)
+                .orElse("read uncommitted");
+        return switch (isolation.toLowerCase(Locale.ROOT)) {
+            case "none" -> Connection.TRANSACTION_NONE;
+            case "read committed" -> Connection.TRANSACTION_READ_COMMITTED;
+            case "repeatable read" -> Connection.TRANSACTION_REPEATABLE_READ;
+            case "serializable" -> Connection.TRANSACTION_SERIALIZABLE;
+            default -> Connection.TRANSACTION_READ_UNCOMMITTED;
+        };
+    }
+
+    private static DataSource pooled(DataSource physicalDataSource, StatementCacheStatistics statistics,
+                                     IonSpringProperties.DataSourceProperties datasource,
+                                     IonSpringProperties.DataSourcePoolProperties pool) {
+        if (statistics != null) {
+            physicalDataSource = new StatementCachingDataSource(physicalDataSource,
+                    datasource.getStatementCache().getSize(), statistics);
+        }
+        // AS400JDBCDataSource does not pool connections, it creates a new one each time.
+        // If Hikari is found on the classpath, we wrap the AS400JDBCDataSource in a Hikari datasource. Pool metrics
+        // are registered by Spring Boot actuator for Hikari datasources.
+        if (ClassUtils.isPresent("com.zaxxer.hikari.HikariDataSource", AS400AutoConfiguration.class.getClassLoader())) {
+            return HikariDataSourceFactory.create(physicalDataSource, pool);
+        }
+        return physicalDataSource;
+    }
+
+    private static AS400JDBCDataSource createJdbcDataSource(AS400 as400, Environment environment) {
         final AS400JDBCDataSource ds = new AS400JDBCDataSource(as400);
         Binder.get(environment).bindOrCreate("ionspring.as400.datasource", Bindable.ofInstance(ds));
-        // AS400JDBCDataSource does not pool connections, it creates a new one each time.
-        // If Hikari is found on the classpath, we wrap the AS400JDBCDataSource in a Hikari datasource
-        try {
-            final Class<?> configClass = Class.forName("com.zaxxer.hikari.HikariConfig");
-            final Object config = configClass.getDeclaredConstructor().newInstance();
-            final Method setDataSource = configClass.getDeclaredMethod("setDataSource", DataSource.class);
-            setDataSource.invoke(config, ds);
-            final Class<?> cpClass = Class.forName("com.zaxxer.hikari.HikariDataSource");
-            @SuppressWarnings("JavaReflectionInvocation") final Object cp = cpClass.getDeclaredConstructor(configClass).newInstance(config);
-            return (DataSource) cp;
-        } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException | IllegalAccessException |
-                 InvocationTargetException e) {
-            return ds;
+        return ds;
+    }
+
+    @Override
+    public void destroy() {
+        if (replicaSystem != null) {
+            replicaSystem.disconnectAllServices();
         }
     }
 
     @ConditionalOnClass(AuthenticationProvider.class)
     @Lazy
     static
-    class AS400AuthenticationManager {
+    class AS400AuthenticationManager implements DisposableBean {
+        private ExecutorService authorityExecutor;
+
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty(prefix = "ionspring.as400.authentication.signon-cache", name = "enabled", havingValue = "true")
+        public AS400SignonCache as400SignonCache(IonSpringProperties properties) {
+            final IonSpringProperties.SignonCacheProperties signonCache = properties.getAs400().getAuthentication().getSignonCache();
+            return new AS400SignonCache(signonCache.getTtl(), signonCache.getMaxSize());
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty(prefix = "ionspring.as400.authentication.special-authority-cache", name = "enabled", havingValue = "true")
+        public AS400SpecialAuthorityCache as400SpecialAuthorityCache(IonSpringProperties properties) {
+            final IonSpringProperties.SpecialAuthorityCacheProperties specialAuthorityCache = properties.getAs400().getAuthentication().getSpecialAuthorityCache();
+            return new AS400SpecialAuthorityCache(specialAuthorityCache.getTtl(), specialAuthorityCache.getRefreshAfter(),
+                    specialAuthorityCache.getMaxSize());
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty(prefix = "ionspring.as400.authentication.bulkhead", name = "enabled", havingValue = "true")
+        public AS400LoginBulkhead as400LoginBulkhead(IonSpringProperties properties) {
+            final IonSpringProperties.BulkheadProperties bulkhead = properties.getAs400().getAuthentication().getBulkhead();
+            return new AS400LoginBulkhead(bulkhead.getMaxConcurrent(), bulkhead.getMaxWaiting(), bulkhead.getMaxWait());
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        public AuthenticationProvider as400AuthenticationManager(AS400 as400, IonSpringProperties properties,
+                                                                 ObjectProvider<AS400SignonCache> signonCache,
+                                                                 ObjectProvider<AS400SpecialAuthorityCache> specialAuthorityCache,
+                                                                 ObjectProvider<AS400LoginBulkhead> loginBulkhead,
+                                                                 ObjectProvider<AS400AuthenticationMetrics> metrics) {
+            final AS400AuthenticationProvider provider = new AS400AuthenticationProvider(as400);
+            provider.setSingleConnection(properties.getAs400().getAuthentication().isSingleConnection());
+            if (properties.getAs400().getAuthentication().isAsyncAuthorities()) {
+                // Not exposed as a bean: an Executor bean would replace Spring Boot's application task executor
+                authorityExecutor = AS400Executors.newVirtualThreadExecutor("ionspring-authorities-");
+                provider.setAuthorityExecutor(authorityExecutor);
+            }
+            provider.setSignonCache(signonCache.getIfAvailable());
+            provider.setSpecialAuthorityCache(specialAuthorityCache.getIfAvailable());
+            provider.setLoginBulkhead(loginBulkhead.getIfAvailable());
+            provider.setMetrics(metrics.getIfAvailable());
+            return provider;
+        }
+
+        @Override
+        public void destroy() {
+            if (authorityExecutor != null) {
+                authorityExecutor.shutdown();
+            }
+        }
+    }
+
+    @ConditionalOnClass({AuthenticationProvider.class, MeterRegistry.class})
+    @Lazy
+    static
+    class AS400AuthenticationMetricsConfiguration {
         @Bean
         @ConditionalOnMissingBean
-        public AuthenticationProvider as400AuthenticationManager(AS400 as400) {
-            return new AS400AuthenticationProvider(as400);
+        @ConditionalOnBean(MeterRegistry.class)
+        public AS400AuthenticationMetrics as400AuthenticationMetrics(MeterRegistry meterRegistry, AS400 as400) {
+            return new MicrometerAS400AuthenticationMetrics(meterRegistry, as400);
+        }
+    }
+
+    @ConditionalOnClass(MeterRegistry.class)
+    @ConditionalOnProperty(prefix = "ionspring.as400.datasource.statement-cache", name = "enabled", havingValue = "true")
+    static
+    class StatementCacheMetricsConfiguration {
+        @Bean
+        public MeterBinder as400StatementCacheMetrics(StatementCacheStatistics statistics) {
+            return registry -> {
+                FunctionCounter.builder("ionspring.as400.datasource.statement.cache", statistics, StatementCacheStatistics::getHitCount)
+                        .description("Prepared statements taken from the statement cache or prepared on the server")
+                        .tag("result", "hit")
+                        .register(registry);
+                FunctionCounter.builder("ionspring.as400.datasource.statement.cache", statistics, StatementCacheStatistics::getMissCount)
+                        .description("Prepared statements taken from the statement cache or prepared on the server")
+                        .tag("result", "miss")
+                        .register(registry);
+                FunctionCounter.builder("ionspring.as400.datasource.statement.cache.evictions", statistics, StatementCacheStatistics::getEvictionCount)
+                        .description("Prepared statements closed because the statement cache was full")
+                        .register(registry);
+            };
+        }
+    }
+
+    @ConditionalOnClass(MeterRegistry.class)
+    @ConditionalOnProperty(prefix = "ionspring.as400.datasource.replica", name = "system")
+    static
+    class ReadOnlyRoutingMetricsConfiguration {
+        // Registered when the lazy DataSource is created, a MeterBinder would create it when the registry is bound
+        @Bean
+        public static BeanPostProcessor as400ReadOnlyRoutingMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof ReadOnlyRoutingDataSource routing) {
+                        meterRegistry.ifAvailable(registry -> {
+                            for (ReadOnlyRoutingDataSource.Route route : ReadOnlyRoutingDataSource.Route.values()) {
+                                FunctionTimer.builder("ionspring.as400.datasource.route.connections", routing,
+                                                r -> r.getConnectionCount(route), r -> r.getConnectionNanos(route), TimeUnit.NANOSECONDS)
+                                        .description("Connections obtained from the primary or the replica system, and the time spent obtaining them")
+                                        .tag("route", route.name().toLowerCase(Locale.ROOT))
+                                        .register(registry);
+                            }
+                        });
+                    }
+                    return bean;
+                }
+            };
+        }
+    }
+
+    @ConditionalOnClass(MeterRegistry.class)
+    static
+    class DataQueueListenerMetricsConfiguration {
+        @Bean
+        public DataQueueListenerContainerCustomizer dataQueueListenerMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+            return container -> meterRegistry.ifAvailable(registry -> {
+                FunctionCounter.builder("ionspring.as400.dataqueue.entries", container, DataQueueListenerContainer::getProcessedCount)
+                        .description("Data queue entries passed to the listener")
+                        .tag("listener", container.getName())
+                        .tag("result", "processed")
+                        .register(registry);
+                FunctionCounter.builder("ionspring.as400.dataqueue.entries", container, DataQueueListenerContainer::getFailedCount)
+                        .description("Data queue entries passed to the listener")
+                        .tag("listener", container.getName())
+                        .tag("result", "failed")
+                        .register(registry);
+                FunctionCounter.builder("ionspring.as400.dataqueue.receives", container, DataQueueListenerContainer::getReceiveCount)
+                        .description("Data queue receive requests")
+                        .tag("listener", container.getName())
+                        .register(registry);
+                TimeGauge.builder("ionspring.as400.dataqueue.lag", container, TimeUnit.MILLISECONDS, c -> c.getLag().toMillis())
+                        .description("Time since the listener consumers last received less than a full batch")
+                        .tag("listener", container.getName())
+                        .register(registry);
+            });
         }
     }
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400.autoconfigure;
+
+import com.ibm.as400.access.AS400;
+import org.ionspring.as400.AS400HealthIndicator;
+import org.ionspring.as400.AS400Pool;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Lazy;
+
+import javax.sql.DataSource;
+
+/**
+ * AS400 health indicator autoconfiguration, applied after {@link AS400AutoConfiguration} so that the AS400 bean is
+ * known when the indicator condition is evaluated.
+ */
+@AutoConfiguration(after = AS400AutoConfiguration.class)
+@ConditionalOnClass({AS400.class, HealthIndicator.class})
+@ConditionalOnProperty(prefix = "management.health.as400", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class AS400HealthContributorAutoConfiguration {
+
+    @Bean
+    @Lazy
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(AS400.class)
+    public AS400HealthIndicator as400HealthIndicator(ObjectProvider<AS400> as400, ObjectProvider<AS400Pool> pool,
+                                                     ObjectProvider<DataSource> dataSource, IonSpringProperties properties) {
+        final IonSpringProperties.HealthProperties health = properties.getAs400().getHealth();
+        return new AS400HealthIndicator(as400::getObject, pool::getIfAvailable, dataSource::getIfAvailable,
+                health.getCacheTtl(), health.getTimeout());
+    }
+}
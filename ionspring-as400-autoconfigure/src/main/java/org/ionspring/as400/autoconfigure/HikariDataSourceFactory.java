@@ -0,0 +1,65 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400.autoconfigure;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.function.LongConsumer;
+
+/**
+ * Creates the Hikari pool wrapping the IBM i JDBC data source. Only loaded when Hikari is on the classpath.
+ */
+final class HikariDataSourceFactory {
+
+    private HikariDataSourceFactory() {
+    }
+
+    /**
+     * Creates a Hikari pool. The pool is started on the first connection request.
+     *
+     * @param dataSource The data source creating the physical connections.
+     * @param pool       The pool configuration.
+     * @return The Hikari data source.
+     */
+    static HikariDataSource create(DataSource dataSource, IonSpringProperties.DataSourcePoolProperties pool) {
+        final HikariDataSource hikari = new HikariDataSource();
+        hikari.setDataSource(dataSource);
+        hikari.setPoolName(pool.getName());
+        hikari.setMaximumPoolSize(pool.getMaximumPoolSize());
+        if (pool.getMinimumIdle() != null) {
+            hikari.setMinimumIdle(pool.getMinimumIdle());
+        }
+        setMillis(pool.getMaxLifetime(), hikari::setMaxLifetime);
+        setMillis(pool.getIdleTimeout(), hikari::setIdleTimeout);
+        setMillis(pool.getConnectionTimeout(), hikari::setConnectionTimeout);
+        setMillis(pool.getKeepaliveTime(), hikari::setKeepaliveTime);
+        setMillis(pool.getLeakDetectionThreshold(), hikari::setLeakDetectionThreshold);
+        setMillis(pool.getValidationTimeout(), hikari::setValidationTimeout);
+        if (pool.getConnectionTestQuery() != null) {
+            hikari.setConnectionTestQuery(pool.getConnectionTestQuery());
+        }
+        return hikari;
+    }
+
+    private static void setMillis(Duration duration, LongConsumer setter) {
+        if (duration != null) {
+            setter.accept(duration.toMillis());
+        }
+    }
+}
@@ -16,7 +16,15 @@
 
 package org.ionspring.as400.autoconfigure;
 
+import com.ibm.as400.access.AS400;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @ConfigurationProperties("ionspring")
 public class IonSpringProperties {
@@ -44,6 +52,54 @@ public class IonSpringProperties {
          * User SSL connection to IBM i
          */
         private boolean secured = false;
+        /**
+         * AS400 connection pool configuration
+         */
+        private final PoolProperties pool = new PoolProperties();
+        /**
+         * IBM i authentication configuration
+         */
+        private final AuthenticationProperties authentication = new AuthenticationProperties();
+        /**
+         * Executor running asynchronous host calls
+         */
+        private final ExecutorProperties executor = new ExecutorProperties();
+        /**
+         * IBM i JDBC data source configuration
+         */
+        private final DataSourceProperties datasource = new DataSourceProperties();
+        /**
+         * PCML document cache configuration
+         */
+        private final PcmlProperties pcml = new PcmlProperties();
+        /**
+         * Record-level access configuration
+         */
+        private final RecordAccessProperties recordAccess = new RecordAccessProperties();
+        /**
+         * Integrated file system resources configuration
+         */
+        private final IfsProperties ifs = new IfsProperties();
+        /**
+         * System value cache configuration
+         */
+        private final SystemValuesProperties systemValues = new SystemValuesProperties();
+        /**
+         * Background warm-up of the connections
+         */
+        private final WarmupProperties warmup = new WarmupProperties();
+        /**
+         * Health indicator configuration
+         */
+        private final HealthProperties health = new HealthProperties();
+        /**
+         * Systems calls are routed to, by priority and latency, instead of the single system above
+         */
+        private List<SystemProperties> systems = new ArrayList<>();
+        /**
+         * Routing and failover between the systems
+         */
+        private final RoutingProperties routing = new RoutingProperties();
 
         public String getSystem() {
             return system;
@@ -61,6 +117,54 @@ public class IonSpringProperties {
             return secured;
         }
 
+        public PoolProperties getPool() {
+            return pool;
+        }
+
+        public AuthenticationProperties getAuthentication() {
+            return authentication;
+        }
+
+        public ExecutorProperties getExecutor() {
+            return executor;
+        }
+
+        public DataSourceProperties getDatasource() {
+            return datasource;
+        }
+
+        public PcmlProperties getPcml() {
+            return pcml;
+        }
+
+        public RecordAccessProperties getRecordAccess() {
+            return recordAccess;
+        }
+
+        public IfsProperties getIfs() {
+            return ifs;
+        }
+
+        public SystemValuesProperties getSystemValues() {
+            return systemValues;
+        }
+
+        public WarmupProperties getWarmup() {
+            return warmup;
+        }
+
+        public HealthProperties getHealth() {
+            return health;
+        }
+
+        public List<SystemProperties> getSystems() {
+            return systems;
+        }
+
+        public RoutingProperties getRouting() {
+            return routing;
+        }
+
         public void setSystem(String system) {
             this.system = system;
         }
@@ -77,5 +181,989 @@ public class IonSpringProperties {
             this.secured = secured;
         }
 
+        public void setSystems(List<SystemProperties> systems) {
+            this.systems = systems;
+        }
+
+    }
+
+    public static class PoolProperties {
+        /**
+         * Enable the AS400 connection pool
+         */
+        private boolean enabled = true;
+        /**
+         * Minimum number of idle connections kept in the pool
+         */
+        private int minIdle = 0;
+        /**
+         * Maximum number of connections (borrowed and idle) in the pool
+         */
+        private int maxSize = 10;
+        /**
+         * Maximum time a connection can stay idle before being evicted
+         */
+        private Duration maxIdleTime = Duration.ofMinutes(10);
+        /**
+         * Interval between two idle connection evictions
+         */
+        private Duration evictionInterval = Duration.ofMinutes(1);
+        /**
+         * Maximum time to wait for a connection when the pool is exhausted
+         */
+        private Duration maxWait = Duration.ofSeconds(30);
+        /**
+         * Host services connected when a connection is created
+         */
+        private List<As400Service> prestartServices = new ArrayList<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public int getMinIdle() {
+            return minIdle;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public Duration getMaxIdleTime() {
+            return maxIdleTime;
+        }
+
+        public Duration getEvictionInterval() {
+            return evictionInterval;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public List<As400Service> getPrestartServices() {
+            return prestartServices;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public void setMinIdle(int minIdle) {
+            this.minIdle = minIdle;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public void setMaxIdleTime(Duration maxIdleTime) {
+            this.maxIdleTime = maxIdleTime;
+        }
+
+        public void setEvictionInterval(Duration evictionInterval) {
+            this.evictionInterval = evictionInterval;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        public void setPrestartServices(List<As400Service> prestartServices) {
+            this.prestartServices = prestartServices;
+        }
+    }
+
+    public static class ExecutorProperties {
+        /**
+         * Maximum number of asynchronous host calls running at the same time, defaults to ionspring.as400.pool.max-size
+         * when the pool is enabled, 10 otherwise. Can't exceed the pool size
+         */
+        private Integer maxConcurrency;
+        /**
+         * Maximum number of asynchronous host calls waiting for a free slot, further calls are rejected
+         */
+        private int maxWaiting = 1000;
+        /**
+         * Name prefix of the threads running asynchronous host calls
+         */
+        private String threadNamePrefix = "ionspring-as400-";
+
+        public Integer getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public int getMaxWaiting() {
+            return maxWaiting;
+        }
+
+        public String getThreadNamePrefix() {
+            return threadNamePrefix;
+        }
+
+        public void setMaxConcurrency(Integer maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        public void setMaxWaiting(int maxWaiting) {
+            this.maxWaiting = maxWaiting;
+        }
+
+        public void setThreadNamePrefix(String threadNamePrefix) {
+            this.threadNamePrefix = threadNamePrefix;
+        }
+    }
+
+    public static class AuthenticationProperties {
+        /**
+         * Check the password and read special authorities on a single connection under the user profile
+         */
+        private boolean singleConnection = false;
+        /**
+         * Load granted authorities in the background, authentication returns right after the password check
+         */
+        private boolean asyncAuthorities = false;
+        /**
+         * Cache of successful sign-ons
+         */
+        private final SignonCacheProperties signonCache = new SignonCacheProperties();
+        /**
+         * Cache of user special authorities
+         */
+        private final SpecialAuthorityCacheProperties specialAuthorityCache = new SpecialAuthorityCacheProperties();
+        /**
+         * Limit of concurrent sign-ons
+         */
+        private final BulkheadProperties bulkhead = new BulkheadProperties();
+
+        public boolean isSingleConnection() {
+            return singleConnection;
+        }
+
+        public boolean isAsyncAuthorities() {
+            return asyncAuthorities;
+        }
+
+        public SignonCacheProperties getSignonCache() {
+            return signonCache;
+        }
+
+        public SpecialAuthorityCacheProperties getSpecialAuthorityCache() {
+            return specialAuthorityCache;
+        }
+
+        public BulkheadProperties getBulkhead() {
+            return bulkhead;
+        }
+
+        public void setSingleConnection(boolean singleConnection) {
+            this.singleConnection = singleConnection;
+        }
+
+        public void setAsyncAuthorities(boolean asyncAuthorities) {
+            this.asyncAuthorities = asyncAuthorities;
+        }
+    }
+
+    public static class SignonCacheProperties {
+        /**
+         * Enable the cache of successful sign-ons
+         */
+        private boolean enabled = false;
+        /**
+         * Time a successful sign-on is trusted without calling the IBM i
+         */
+        private Duration ttl = Duration.ofMinutes(5);
+        /**
+         * Maximum number of cached users
+         */
+        private int maxSize = 1000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+
+    public static class SpecialAuthorityCacheProperties {
+        /**
+         * Enable the cache of user special authorities
+         */
+        private boolean enabled = false;
+        /**
+         * Time cached special authorities are used
+         */
+        private Duration ttl = Duration.ofHours(1);
+        /**
+         * Age after which cached special authorities are reloaded in the background on login
+         */
+        private Duration refreshAfter = Duration.ofMinutes(30);
+        /**
+         * Maximum number of cached users
+         */
+        private int maxSize = 1000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public Duration getRefreshAfter() {
+            return refreshAfter;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public void setRefreshAfter(Duration refreshAfter) {
+            this.refreshAfter = refreshAfter;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+
+    public static class BulkheadProperties {
+        /**
+         * Enable the limit of concurrent sign-ons
+         */
+        private boolean enabled = false;
+        /**
+         * Maximum number of concurrent sign-ons
+         */
+        private int maxConcurrent = 20;
+        /**
+         * Maximum number of logins waiting for a sign-on slot
+         */
+        private int maxWaiting = 200;
+        /**
+         * Maximum time a login waits for a sign-on slot
+         */
+        private Duration maxWait = Duration.ofSeconds(5);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public int getMaxWaiting() {
+            return maxWaiting;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public void setMaxWaiting(int maxWaiting) {
+            this.maxWaiting = maxWaiting;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+    }
+
+    public static class DataSourceProperties {
+        /**
+         * Hikari connection pool configuration, used when Hikari is on the classpath
+         */
+        private final DataSourcePoolProperties pool = new DataSourcePoolProperties();
+        /**
+         * Prepared statement cache configuration
+         */
+        private final StatementCacheProperties statementCache = new StatementCacheProperties();
+        /**
+         * Streaming query configuration
+         */
+        private final StreamingProperties streaming = new StreamingProperties();
+        /**
+         * Replica system read-only transactions are routed to
+         */
+        private final ReplicaProperties replica = new ReplicaProperties();
+
+        public DataSourcePoolProperties getPool() {
+            return pool;
+        }
+
+        public StatementCacheProperties getStatementCache() {
+            return statementCache;
+        }
+
+        public StreamingProperties getStreaming() {
+            return streaming;
+        }
+
+        public ReplicaProperties getReplica() {
+            return replica;
+        }
+    }
+
+    public static class ReplicaProperties {
+        /**
+         * Host name of the replica system, read-only transactions are routed to it when set
+         */
+        private String system;
+        /**
+         * User profile, defaults to ionspring.as400.user
+         */
+        private String user;
+        /**
+         * Password, defaults to ionspring.as400.password
+         */
+        private String password;
+        /**
+         * Whether connections to the replica are secured with TLS
+         */
+        private boolean secured = false;
+        /**
+         * Hikari connection pool configuration of the replica
+         */
+        private final DataSourcePoolProperties pool = new DataSourcePoolProperties();
+
+        public ReplicaProperties() {
+            pool.setName("ionspring-as400-replica");
+        }
+
+        public String getSystem() {
+            return system;
+        }
+
+        public String getUser() {
+            return user;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public boolean isSecured() {
+            return secured;
+        }
+
+        public DataSourcePoolProperties getPool() {
+            return pool;
+        }
+
+        public void setSystem(String system) {
+            this.system = system;
+        }
+
+        public void setUser(String user) {
+            this.user = user;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public void setSecured(boolean secured) {
+            this.secured = secured;
+        }
+    }
+
+    public static class StatementCacheProperties {
+        /**
+         * Enable the per connection prepared statement cache
+         */
+        private boolean enabled = false;
+        /**
+         * Maximum number of cached prepared statements per connection
+         */
+        private int size = 100;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public void setSize(int size) {
+            this.size = size;
+        }
+    }
+
+    public static class DataSourcePoolProperties {
+        /**
+         * Pool name, used in logs and metrics
+         */
+        private String name = "ionspring-as400";
+        /**
+         * Maximum number of connections in the pool
+         */
+        private int maximumPoolSize = 10;
+        /**
+         * Minimum number of idle connections, defaults to the maximum pool size
+         */
+        private Integer minimumIdle;
+        /**
+         * Maximum lifetime of a connection in the pool
+         */
+        private Duration maxLifetime;
+        /**
+         * Maximum time a connection can stay idle in the pool
+         */
+        private Duration idleTimeout;
+        /**
+         * Maximum time to wait for a connection from the pool
+         */
+        private Duration connectionTimeout;
+        /**
+         * Interval between two keepalive checks of idle connections
+         */
+        private Duration keepaliveTime;
+        /**
+         * Time a connection can be out of the pool before a possible leak is logged
+         */
+        private Duration leakDetectionThreshold;
+        /**
+         * Maximum time to wait for a connection validation
+         */
+        private Duration validationTimeout;
+        /**
+         * Query used to validate connections. When not set, the cheaper JDBC <code>Connection.isValid()</code> is used
+         */
+        private String connectionTestQuery;
+
+        public String getName() {
+            return name;
+        }
+
+        public int getMaximumPoolSize() {
+            return maximumPoolSize;
+        }
+
+        public Integer getMinimumIdle() {
+            return minimumIdle;
+        }
+
+        public Duration getMaxLifetime() {
+            return maxLifetime;
+        }
+
+        public Duration getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public Duration getConnectionTimeout() {
+            return connectionTimeout;
+        }
+
+        public Duration getKeepaliveTime() {
+            return keepaliveTime;
+        }
+
+        public Duration getLeakDetectionThreshold() {
+            return leakDetectionThreshold;
+        }
+
+        public Duration getValidationTimeout() {
+            return validationTimeout;
+        }
+
+        public String getConnectionTestQuery() {
+            return connectionTestQuery;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public void setMaximumPoolSize(int maximumPoolSize) {
+            this.maximumPoolSize = maximumPoolSize;
+        }
+
+        public void setMinimumIdle(Integer minimumIdle) {
+            this.minimumIdle = minimumIdle;
+        }
+
+        public void setMaxLifetime(Duration maxLifetime) {
+            this.maxLifetime = maxLifetime;
+        }
+
+        public void setIdleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+
+        public void setConnectionTimeout(Duration connectionTimeout) {
+            this.connectionTimeout = connectionTimeout;
+        }
+
+        public void setKeepaliveTime(Duration keepaliveTime) {
+            this.keepaliveTime = keepaliveTime;
+        }
+
+        public void setLeakDetectionThreshold(Duration leakDetectionThreshold) {
+            this.leakDetectionThreshold = leakDetectionThreshold;
+        }
+
+        public void setValidationTimeout(Duration validationTimeout) {
+            this.validationTimeout = validationTimeout;
+        }
+
+        public void setConnectionTestQuery(String connectionTestQuery) {
+            this.connectionTestQuery = connectionTestQuery;
+        }
+    }
+
+    public static class StreamingProperties {
+        /**
+         * Number of rows of the first block fetched by streaming queries, only used when
+         * ionspring.as400.datasource.block-size is 0 as the driver ignores the fetch size otherwise
+         */
+        private int initialFetchSize = 100;
+        /**
+         * Maximum number of rows per block fetched by streaming queries, the fetch size doubles after each block. Only
+         * used when ionspring.as400.datasource.block-size is 0
+         */
+        private int maxFetchSize = 10000;
+
+        public int getInitialFetchSize() {
+            return initialFetchSize;
+        }
+
+        public int getMaxFetchSize() {
+            return maxFetchSize;
+        }
+
+        public void setInitialFetchSize(int initialFetchSize) {
+            this.initialFetchSize = initialFetchSize;
+        }
+
+        public void setMaxFetchSize(int maxFetchSize) {
+            this.maxFetchSize = maxFetchSize;
+        }
+    }
+
+    public static class PcmlProperties {
+        /**
+         * Classpath directories searched recursively for PCML documents (.pcml and .pcml.ser files)
+         */
+        private List<String> paths = new ArrayList<>(List.of("pcml"));
+
+        public List<String> getPaths() {
+            return paths;
+        }
+
+        public void setPaths(List<String> paths) {
+            this.paths = paths;
+        }
+    }
+
+    public static class RecordAccessProperties {
+        /**
+         * Number of records read per round trip
+         */
+        private int blockingFactor = 500;
+        /**
+         * Number of records written per round trip
+         */
+        private int writeBufferSize = 500;
+
+        public int getBlockingFactor() {
+            return blockingFactor;
+        }
+
+        public int getWriteBufferSize() {
+            return writeBufferSize;
+        }
+
+        public void setBlockingFactor(int blockingFactor) {
+            this.blockingFactor = blockingFactor;
+        }
+
+        public void setWriteBufferSize(int writeBufferSize) {
+            this.writeBufferSize = writeBufferSize;
+        }
+    }
+
+    public static class IfsProperties {
+        /**
+         * Read buffer size of ifs: resources
+         */
+        private DataSize bufferSize = DataSize.ofKilobytes(64);
+        /**
+         * Local disk cache of IFS files
+         */
+        private final IfsCacheProperties cache = new IfsCacheProperties();
+
+        public DataSize getBufferSize() {
+            return bufferSize;
+        }
+
+        public IfsCacheProperties getCache() {
+            return cache;
+        }
+
+        public void setBufferSize(DataSize bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+    }
+
+    public static class IfsCacheProperties {
+        /**
+         * Enable the local disk cache of IFS files
+         */
+        private boolean enabled = false;
+        /**
+         * Directory the cache directory is created in, each application instance uses its own subdirectory, deleted on shutdown
+         */
+        private String directory = System.getProperty("java.io.tmpdir") + "/ionspring-ifs-cache";
+        /**
+         * Maximum total size of the cached files
+         */
+        private DataSize maxSize = DataSize.ofMegabytes(512);
+        /**
+         * Maximum size of a cached file, bigger files are always read from the IFS
+         */
+        private DataSize maxFileSize = DataSize.ofMegabytes(32);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public DataSize getMaxSize() {
+            return maxSize;
+        }
+
+        public DataSize getMaxFileSize() {
+            return maxFileSize;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public void setMaxSize(DataSize maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public void setMaxFileSize(DataSize maxFileSize) {
+            this.maxFileSize = maxFileSize;
+        }
+    }
+
+    public static class SystemValuesProperties {
+        /**
+         * Time to live of cached system values
+         */
+        private Duration defaultTtl = Duration.ofHours(1);
+        /**
+         * Time to live of specific system values, QDATE: 1m for instance
+         */
+        private Map<String, Duration> ttl = new HashMap<>();
+        /**
+         * System values retrieved together when the cache is first used
+         */
+        private List<String> prefetch = new ArrayList<>();
+
+        public Duration getDefaultTtl() {
+            return defaultTtl;
+        }
+
+        public Map<String, Duration> getTtl() {
+            return ttl;
+        }
+
+        public List<String> getPrefetch() {
+            return prefetch;
+        }
+
+        public void setDefaultTtl(Duration defaultTtl) {
+            this.defaultTtl = defaultTtl;
+        }
+
+        public void setTtl(Map<String, Duration> ttl) {
+            this.ttl = ttl;
+        }
+
+        public void setPrefetch(List<String> prefetch) {
+            this.prefetch = prefetch;
+        }
+    }
+
+    public static class WarmupProperties {
+        /**
+         * Whether the AS400 services, the AS400 pool and the JDBC pool are connected in the background at startup,
+         * readiness being held until they are
+         */
+        private boolean enabled = false;
+        /**
+         * Services connected on the shared AS400 object
+         */
+        private List<As400Service> services = new ArrayList<>(List.of(As400Service.SIGNON, As400Service.COMMAND));
+        /**
+         * Time after which the application accepts traffic even if the warm-up didn't complete
+         */
+        private Duration timeout = Duration.ofMinutes(2);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public List<As400Service> getServices() {
+            return services;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public void setServices(List<As400Service> services) {
+            this.services = services;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+    }
+
+    public static class HealthProperties {
+        /**
+         * Time a health probe result is reused
+         */
+        private Duration cacheTtl = Duration.ofSeconds(10);
+        /**
+         * Maximum time the health endpoint waits for a probe, the system being reported down after it
+         */
+        private Duration timeout = Duration.ofSeconds(2);
+
+        public Duration getCacheTtl() {
+            return cacheTtl;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setCacheTtl(Duration cacheTtl) {
+            this.cacheTtl = cacheTtl;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+    }
+
+    public static class SystemProperties {
+        /**
+         * Name of the system in logs and metrics, defaults to the host name
+         */
+        private String name;
+        /**
+         * Host name of the system
+         */
+        private String system;
+        /**
+         * User profile
+         */
+        private String user;
+        /**
+         * Password
+         */
+        private String password;
+        /**
+         * Whether connections are secured with TLS, all the systems must use the same value
+         */
+        private boolean secured = false;
+        /**
+         * Priority, the lowest value being preferred
+         */
+        private int priority = 0;
+
+        public String getName() {
+            return name != null ? name : system;
+        }
+
+        public String getSystem() {
+            return system;
+        }
+
+        public String getUser() {
+            return user;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public boolean isSecured() {
+            return secured;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public void setSystem(String system) {
+            this.system = system;
+        }
+
+        public void setUser(String user) {
+            this.user = user;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public void setSecured(boolean secured) {
+            this.secured = secured;
+        }
+
+        public void setPriority(int priority) {
+            this.priority = priority;
+        }
+    }
+
+    public static class RoutingProperties {
+        /**
+         * Number of consecutive failures opening the circuit of a system
+         */
+        private int failureThreshold = 3;
+        /**
+         * Time the circuit of a failing system stays open before it's tried again
+         */
+        private Duration openDuration = Duration.ofSeconds(30);
+        /**
+         * Average probe latency above which a system is only used if no faster one is available
+         */
+        private Duration latencyThreshold = Duration.ofMillis(500);
+        /**
+         * Interval between two probes of each system
+         */
+        private Duration probeInterval = Duration.ofSeconds(5);
+        /**
+         * Connect timeout of the probes
+         */
+        private Duration probeTimeout = Duration.ofMillis(500);
+
+        public int getFailureThreshold() {
+            return failureThreshold;
+        }
+
+        public Duration getOpenDuration() {
+            return openDuration;
+        }
+
+        public Duration getLatencyThreshold() {
+            return latencyThreshold;
+        }
+
+        public Duration getProbeInterval() {
+            return probeInterval;
+        }
+
+        public Duration getProbeTimeout() {
+            return probeTimeout;
+        }
+
+        public void setFailureThreshold(int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+        }
+
+        public void setOpenDuration(Duration openDuration) {
+            this.openDuration = openDuration;
+        }
+
+        public void setLatencyThreshold(Duration latencyThreshold) {
+            this.latencyThreshold = latencyThreshold;
+        }
+
+        public void setProbeInterval(Duration probeInterval) {
+            this.probeInterval = probeInterval;
+        }
+
+        public void setProbeTimeout(Duration probeTimeout) {
+            this.probeTimeout = probeTimeout;
+        }
+    }
+
+    /**
+     * IBM i host services, mapped to the <code>AS400</code> service constants.
+     */
+    public enum As400Service {
+        FILE(AS400.FILE),
+        PRINT(AS400.PRINT),
+        COMMAND(AS400.COMMAND),
+        DATAQUEUE(AS400.DATAQUEUE),
+        DATABASE(AS400.DATABASE),
+        RECORDACCESS(AS400.RECORDACCESS),
+        CENTRAL(AS400.CENTRAL),
+        SIGNON(AS400.SIGNON);
+
+        private final int service;
+
+        As400Service(int service) {
+            this.service = service;
+        }
+
+        public int getService() {
+            return service;
+        }
     }
 }
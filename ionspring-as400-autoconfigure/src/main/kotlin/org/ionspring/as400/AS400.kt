@@ -20,9 +20,17 @@ package org.ionspring.kotlin
 
 import com.ibm.as400.access.AS400
 import com.ibm.as400.access.SystemValue
+import org.ionspring.as400.SystemValueRegistry
 
 /**
- * Creates a <code>SystemValue</code> object for the given system value.
+ * Creates a <code>SystemValue</code> object for the given system value. Each <code>getValue()</code> call on a new
+ * object is a host round trip, use the <code>SystemValueRegistry</code> bean to read system values from UI code.
  * @param name The system value name
  */
-fun AS400.systemValue(name: String): SystemValue = SystemValue(this, name.uppercase())
\ No newline at end of file
+fun AS400.systemValue(name: String): SystemValue = SystemValue(this, name.uppercase())
+
+/**
+ * Returns a cached system value, <code>registry["QDATE"]</code> for instance.
+ * @param name The system value name
+ */
+operator fun SystemValueRegistry.get(name: String): Any = getValue(name)
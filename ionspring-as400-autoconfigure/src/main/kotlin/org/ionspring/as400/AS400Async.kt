@@ -0,0 +1,37 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+@file:Suppress("unused")
+
+package org.ionspring.kotlin
+
+import com.ibm.as400.access.AS400
+import kotlinx.coroutines.future.await
+import org.ionspring.as400.AS400AsyncTemplate
+import org.ionspring.as400.AS400Callback
+
+/**
+ * Runs the block in the background with a pooled or the shared <code>AS400</code> and suspends until it completes.
+ * @param block The block to run
+ */
+suspend fun <T> AS400AsyncTemplate.execute(block: (AS400) -> T): T =
+    submit(AS400Callback<T, Exception> { block(it) }).await()
+
+/**
+ * Reads a system value in the background and suspends until it is read.
+ * @param name The system value name
+ */
+suspend fun AS400AsyncTemplate.systemValue(name: String): Any = getSystemValue(name).await()
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+@file:Suppress("unused")
+
+package org.ionspring.kotlin
+
+import org.ionspring.as400.StreamingQueryTemplate
+import org.springframework.jdbc.core.RowMapper
+import java.sql.ResultSet
+import kotlin.streams.asSequence
+
+/**
+ * Runs a query and passes its lazily fetched rows to the block as a <code>Sequence</code>. The connection is released
+ * when the block returns, the sequence must not be used after that.
+ * @param sql The SQL query
+ * @param args The query parameters
+ * @param mapper Maps the current row
+ * @param block Consumes the rows
+ */
+inline fun <T, R> StreamingQueryTemplate.useSequence(
+    sql: String,
+    vararg args: Any?,
+    noinline mapper: (ResultSet) -> T,
+    block: (Sequence<T>) -> R
+): R = stream(sql, RowMapper { rs, _ -> mapper(rs) }, *args).use { block(it.asSequence()) }
+
+/**
+ * Runs a query and calls the action for each row, fetched lazily.
+ * @param sql The SQL query
+ * @param args The query parameters
+ * @param action Called with the current row
+ */
+inline fun StreamingQueryTemplate.forEachRow(sql: String, vararg args: Any?, action: (ResultSet) -> Unit) =
+    stream(sql, RowMapper { rs, _ -> rs }, *args).use { stream -> stream.iterator().forEach(action) }
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AS400AsyncTemplateTests {
+
+    private final AS400 as400 = new AS400("as400", "user", "password".toCharArray());
+
+    @Test
+    void submitRunsWithSharedAS400() throws Exception {
+        try (AS400AsyncTemplate template = new AS400AsyncTemplate(as400, null, 2, "test-")) {
+            assertThat(template.submit(AS400::getSystemName).get(5, TimeUnit.SECONDS)).isEqualTo("as400");
+        }
+    }
+
+    @Test
+    void submitPropagatesException() {
+        try (AS400AsyncTemplate template = new AS400AsyncTemplate(as400, null, 2, "test-")) {
+            final CompletableFuture<Object> future = template.submit(system -> {
+                throw new IOException("host unavailable");
+            });
+            final ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertThat(e).hasCauseInstanceOf(IOException.class);
+        }
+    }
+
+    @Test
+    void concurrencyIsBounded() throws Exception {
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch finish = new CountDownLatch(1);
+        try (AS400AsyncTemplate template = new AS400AsyncTemplate(as400, null, 1, "test-")) {
+            final CompletableFuture<Boolean> first = template.submit(system -> {
+                running.countDown();
+                return finish.await(5, TimeUnit.SECONDS);
+            });
+            assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+            final CompletableFuture<String> second = template.submit(AS400::getSystemName);
+            assertThat(template.getActiveCount()).isEqualTo(1);
+            assertThat(second).isNotDone();
+            finish.countDown();
+            assertThat(first.get(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("as400");
+        }
+    }
+
+    @Test
+    void waitingCallsDoNotStartThreads() throws Exception {
+        final CountDownLatch finish = new CountDownLatch(1);
+        final CountDownLatch running = new CountDownLatch(2);
+        try (AS400AsyncTemplate template = new AS400AsyncTemplate(as400, null, 2, "queued-call-")) {
+            final List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(template.submit(system -> {
+                    running.countDown();
+                    return finish.await(5, TimeUnit.SECONDS);
+                }));
+            }
+            assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(template.getActiveCount()).isEqualTo(2);
+            assertThat(template.getWaitingCount()).isEqualTo(8);
+            assertThat(Thread.getAllStackTraces().keySet())
+                    .filteredOn(thread -> thread.getName().startsWith("queued-call-"))
+                    .hasSizeLessThanOrEqualTo(2);
+            finish.countDown();
+            for (CompletableFuture<Boolean> future : futures) {
+                assertThat(future.get(5, TimeUnit.SECONDS)).isTrue();
+            }
+            assertThat(template.getWaitingCount()).isZero();
+        }
+    }
+
+    @Test
+    void fullQueueRejectsCalls() throws Exception {
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch finish = new CountDownLatch(1);
+        try (AS400AsyncTemplate template = new AS400AsyncTemplate(as400, null, 1, 1, "test-")) {
+            final CompletableFuture<Boolean> first = template.submit(system -> {
+                running.countDown();
+                return finish.await(5, TimeUnit.SECONDS);
+            });
+            assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+            final CompletableFuture<String> queued = template.submit(AS400::getSystemName);
+            final CompletableFuture<String> rejected = template.submit(AS400::getSystemName);
+            final ExecutionException e = assertThrows(ExecutionException.class, () -> rejected.get(5, TimeUnit.SECONDS));
+            assertThat(e).hasCauseInstanceOf(RejectedExecutionException.class);
+            assertThat(template.getWaitingCount()).isEqualTo(1);
+            finish.countDown();
+            assertThat(first.get(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("as400");
+        }
+    }
+
+    @Test
+    void maxConcurrencyCannotExceedPoolSize() {
+        try (AS400Pool pool = new AS400Pool(as400, 0, 2, Duration.ofMinutes(10), Duration.ofHours(1), Duration.ofMillis(50))) {
+            assertThrows(IllegalArgumentException.class, () -> new AS400AsyncTemplate(as400, pool, 3, 10, "test-"));
+            try (AS400AsyncTemplate template = new AS400AsyncTemplate(as400, pool, 2, 10, "test-")) {
+                assertThat(template.getMaxConcurrency()).isEqualTo(2);
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400;
+import com.ibm.as400.access.AS400SecurityException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.Mockito.mock;
+
+public class AS400AuthenticationProviderTests {
+
+    private static final List<GrantedAuthority> SPECIAL_AUTHORITIES = List.of(
+            new SimpleGrantedAuthority("ROLE_SPECIAL_AUTHORITY_JOB_CONTROL"));
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    /**
+     * An <code>AS400</code> object accepting any user/password without connecting.
+     */
+    static class FakeHost extends AS400 {
+        FakeHost() {
+            super("fakehost", "APP", "APP".toCharArray());
+        }
+
+        @Override
+        public boolean validateSignon(String userId, char[] password) {
+            return true;
+        }
+    }
+
+    /**
+     * An <code>AS400</code> object under the user profile, whose connection succeeds or is refused.
+     */
+    static class UserHost extends AS400 {
+        private final boolean validPassword;
+        private final AtomicInteger connections = new AtomicInteger();
+        private final AtomicInteger closes = new AtomicInteger();
+
+        UserHost(boolean validPassword) {
+            super("fakehost", "USER", "secret".toCharArray());
+            this.validPassword = validPassword;
+        }
+
+        @Override
+        public void connectService(int service) throws AS400SecurityException {
+            connections.incrementAndGet();
+            if (!validPassword) {
+                throw mock(AS400SecurityException.class);
+            }
+        }
+
+        @Override
+        public void close() {
+            closes.incrementAndGet();
+        }
+    }
+
+    /**
+     * A provider in single connection mode, failing if the sign-on server is called.
+     */
+    static class UserConnectionProvider extends AS400AuthenticationProvider {
+        private final UserHost userHost;
+        private AS400 readWith;
+
+        UserConnectionProvider(UserHost userHost) {
+            super(new FakeHost());
+            this.userHost = userHost;
+            setSingleConnection(true);
+        }
+
+        @Override
+        protected void validateSignon(String username, char[] password) {
+            throw new AssertionError("The sign-on server must not be called in single connection mode");
+        }
+
+        @Override
+        protected AS400 getUserAs400(String username, char[] password) {
+            return userHost;
+        }
+
+        @Override
+        protected List<GrantedAuthority> readSpecialAuthorities(AS400 userAs400, String username) {
+            readWith = userAs400;
+            return SPECIAL_AUTHORITIES;
+        }
+    }
+
+    @AfterEach
+    void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void asyncAuthoritiesOnSingleThreadExecutor() {
+        final AS400AuthenticationProvider provider = new AS400AuthenticationProvider(new FakeHost()) {
+            @Override
+            public List<GrantedAuthority> getSpecialAuthorities(String username, char[] password) {
+                return SPECIAL_AUTHORITIES;
+            }
+        };
+        provider.setAuthorityExecutor(executor);
+        final Authentication authentication = provider.authenticate(new UsernamePasswordAuthenticationToken("USER", "secret"));
+        assertThat(authentication).isInstanceOf(AS400AuthenticationToken.class);
+        assertThat(authentication.isAuthenticated()).isTrue();
+        // The special authorities are loaded in the thread mapping them, not in a task waited for on the single thread
+        assertThat(assertTimeoutPreemptively(Duration.ofSeconds(5), authentication::getAuthorities))
+                .containsExactlyElementsOf(SPECIAL_AUTHORITIES);
+    }
+
+    @Test
+    void asyncAuthoritiesIgnoringSpecialAuthoritiesOpenNoConnection() {
+        final UserHost userHost = new UserHost(true);
+        final List<GrantedAuthority> roles = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+        final AS400AuthenticationProvider provider = new AS400AuthenticationProvider(new FakeHost()) {
+            @Override
+            protected AS400 getUserAs400(String username, char[] password) {
+                return userHost;
+            }
+
+            @Override
+            public List<GrantedAuthority> getGrantedAuthorities(String username, char[] password,
+                                                                SpecialAuthorityLoader specialAuthorityLoader) {
+                return roles;
+            }
+        };
+        provider.setAuthorityExecutor(executor);
+        final Authentication authentication = provider.authenticate(new UsernamePasswordAuthenticationToken("USER", "secret"));
+        assertThat(assertTimeoutPreemptively(Duration.ofSeconds(5), authentication::getAuthorities))
+                .containsExactlyElementsOf(roles);
+        assertThat(userHost.connections).hasValue(0);
+    }
+
+    @Test
+    void bulkheadRejectionIsRecordedAsRejected() {
+        final FakeHost host = new FakeHost();
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        final AS400LoginBulkhead bulkhead = new AS400LoginBulkhead(1, 0, Duration.ZERO);
+        final AS400AuthenticationProvider provider = new AS400AuthenticationProvider(host);
+        provider.setLoginBulkhead(bulkhead);
+        provider.setMetrics(new MicrometerAS400AuthenticationMetrics(registry, host));
+        bulkhead.acquire();
+        try {
+            assertThrows(LoginRejectedException.class,
+                    () -> provider.authenticate(new UsernamePasswordAuthenticationToken("USER", "secret")));
+        } finally {
+            bulkhead.release();
+        }
+        assertThat(registry.get("ionspring.as400.authentication").tag("outcome", "rejected").counter().count()).isEqualTo(1);
+        assertThat(registry.get("ionspring.as400.authentication").tag("outcome", "error").counter().count()).isZero();
+    }
+
+    @Test
+    void singleConnectionReadsAuthoritiesWithUserConnection() {
+        final UserHost userHost = new UserHost(true);
+        final UserConnectionProvider provider = new UserConnectionProvider(userHost);
+        final Authentication authentication = provider.authenticate(new UsernamePasswordAuthenticationToken("USER", "secret"));
+        assertThat(authentication.isAuthenticated()).isTrue();
+        assertThat(authentication.getAuthorities()).containsExactlyElementsOf(SPECIAL_AUTHORITIES);
+        assertThat(provider.readWith).isSameAs(userHost);
+        assertThat(userHost.connections).hasValue(1);
+        assertThat(userHost.closes).hasValue(1);
+    }
+
+    @Test
+    void singleConnectionRefusedIsBadCredentials() {
+        final UserHost userHost = new UserHost(false);
+        final UserConnectionProvider provider = new UserConnectionProvider(userHost);
+        assertThrows(BadCredentialsException.class,
+                () -> provider.authenticate(new UsernamePasswordAuthenticationToken("USER", "secret")));
+        assertThat(provider.readWith).isNull();
+        assertThat(userHost.connections).hasValue(1);
+        assertThat(userHost.closes).hasValue(1);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AS400AuthenticationTokenTests {
+
+    private static final List<GrantedAuthority> AUTHORITIES = List.of(new SimpleGrantedAuthority("ROLE_SPECIAL_AUTHORITY_AUDIT"));
+
+    @Test
+    void authoritiesAreLoadedOnFirstAccess() {
+        final CompletableFuture<List<GrantedAuthority>> future = new CompletableFuture<>();
+        final AS400AuthenticationToken token = new AS400AuthenticationToken("user", "password", future);
+        assertThat(token.isAuthenticated()).isTrue();
+        assertThat(token.isAuthoritiesLoaded()).isFalse();
+        future.complete(AUTHORITIES);
+        assertThat(token.getAuthorities()).containsExactlyElementsOf(AUTHORITIES);
+        assertThat(token.isAuthoritiesLoaded()).isTrue();
+    }
+
+    @Test
+    void failedLoadGivesNoAuthority() {
+        final AS400AuthenticationToken token = new AS400AuthenticationToken("user", "password",
+                CompletableFuture.failedFuture(new IllegalStateException("host unavailable")));
+        assertThat(token.getAuthorities()).isEmpty();
+    }
+
+    @Test
+    void serializationKeepsAuthorities() throws Exception {
+        final AS400AuthenticationToken token = new AS400AuthenticationToken("user", "password",
+                CompletableFuture.completedFuture(AUTHORITIES));
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(token);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            final AS400AuthenticationToken read = (AS400AuthenticationToken) in.readObject();
+            assertThat(read.getAuthorities()).containsExactlyElementsOf(AUTHORITIES);
+        }
+    }
+
+    @Test
+    void equalityUsesLoadedAuthorities() {
+        final AS400AuthenticationToken token = new AS400AuthenticationToken("user", "password",
+                CompletableFuture.completedFuture(AUTHORITIES));
+        final AS400AuthenticationToken same = new AS400AuthenticationToken("user", "password",
+                CompletableFuture.completedFuture(AUTHORITIES));
+        final AS400AuthenticationToken other = new AS400AuthenticationToken("user", "password",
+                CompletableFuture.completedFuture(List.of()));
+        assertThat(token).isEqualTo(same).hasSameHashCodeAs(same).isNotEqualTo(other);
+        assertThat(token.toString()).contains("ROLE_SPECIAL_AUTHORITY_AUDIT");
+    }
+
+    @Test
+    void toStringDoesNotWaitForAuthorities() {
+        final AS400AuthenticationToken token = new AS400AuthenticationToken("user", "password", new CompletableFuture<>());
+        assertThat(token.toString()).contains("Granted Authorities=[loading]");
+        assertThat(token.isAuthoritiesLoaded()).isFalse();
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AS400HealthIndicatorTests {
+
+    private JdbcConnectionPool pool;
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private volatile CountDownLatch gate = new CountDownLatch(0);
+
+    private DelegatingDataSource dataSource;
+
+    private AS400HealthIndicator indicator;
+
+    @BeforeEach
+    void createDataSource() {
+        pool = JdbcConnectionPool.create("jdbc:h2:mem:health;DB_CLOSE_DELAY=-1", "sa", "");
+        dataSource = new DelegatingDataSource(pool) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                connections.incrementAndGet();
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    throw new SQLException(e);
+                }
+                return super.getConnection();
+            }
+        };
+    }
+
+    @AfterEach
+    void disposeDataSource() {
+        indicator.close();
+        pool.dispose();
+    }
+
+    @Test
+    void databaseUp() {
+        indicator = new AS400HealthIndicator(null, null, () -> dataSource, Duration.ofMinutes(1), Duration.ofSeconds(5));
+        final Health health = indicator.health();
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(health.getDetails()).containsOnlyKeys("database");
+        assertThat((Map<?, ?>) health.getDetails().get("database")).containsEntry("status", "UP").containsKey("latency");
+        assertThat(pool.getActiveConnections()).isZero();
+    }
+
+    @Test
+    void resultIsCached() {
+        indicator = new AS400HealthIndicator(null, null, () -> dataSource, Duration.ofMinutes(1), Duration.ofSeconds(5));
+        final Health health = indicator.health();
+        assertThat(indicator.health()).isSameAs(health);
+        assertThat(connections).hasValue(1);
+    }
+
+    @Test
+    void expiredResultIsRefreshed() {
+        indicator = new AS400HealthIndicator(null, null, () -> dataSource, Duration.ZERO, Duration.ofSeconds(5));
+        indicator.health();
+        indicator.health();
+        assertThat(connections).hasValue(2);
+    }
+
+    @Test
+    void slowProbeReportsDownAndIsCachedWhenComplete() throws InterruptedException {
+        gate = new CountDownLatch(1);
+        indicator = new AS400HealthIndicator(null, null, () -> dataSource, Duration.ofMinutes(1), Duration.ofMillis(100));
+        assertThat(indicator.health().getStatus()).isEqualTo(Status.DOWN);
+        // The probe still running is shared
+        assertThat(indicator.health().getStatus()).isEqualTo(Status.DOWN);
+        assertThat(connections).hasValue(1);
+
+        gate.countDown();
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (indicator.health().getStatus() != Status.UP && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(indicator.health().getStatus()).isEqualTo(Status.UP);
+        assertThat(connections).hasValue(1);
+    }
+
+    @Test
+    void failedProbeInvalidatesPooledConnection() {
+        final AS400 template = new AS400("as400", "user", "password".toCharArray());
+        try (AS400Pool as400Pool = probedPool(template, false)) {
+            indicator = new AS400HealthIndicator(() -> template, () -> as400Pool, null, Duration.ofMinutes(1), Duration.ofSeconds(5));
+            final Health health = indicator.health();
+            assertThat(health.getStatus()).isEqualTo(Status.DOWN);
+            assertThat((Map<?, ?>) health.getDetails().get("signon")).containsEntry("status", "DOWN").containsKey("error");
+            assertThat(as400Pool.getIdleCount()).isZero();
+            assertThat(as400Pool.getDestroyedCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void successfulProbeReleasesPooledConnection() {
+        final AS400 template = new AS400("as400", "user", "password".toCharArray());
+        try (AS400Pool as400Pool = probedPool(template, true)) {
+            indicator = new AS400HealthIndicator(() -> template, () -> as400Pool, null, Duration.ofMinutes(1), Duration.ofSeconds(5));
+            assertThat(indicator.health().getStatus()).isEqualTo(Status.UP);
+            assertThat(as400Pool.getIdleCount()).isEqualTo(1);
+            assertThat(as400Pool.getDestroyedCount()).isZero();
+        }
+    }
+
+    /**
+     * Creates a pool whose connections report their services alive or fail to connect them.
+     */
+    private static AS400Pool probedPool(AS400 template, boolean alive) {
+        return new AS400Pool(template, 0, 1, Duration.ofMinutes(10), Duration.ofHours(1), Duration.ofMillis(50)) {
+            @Override
+            protected AS400 create() {
+                return new AS400("as400", "user", "password".toCharArray()) {
+                    @Override
+                    public boolean isConnected(int service) {
+                        return alive;
+                    }
+
+                    @Override
+                    public boolean isConnectionAlive(int service) {
+                        return alive;
+                    }
+
+                    @Override
+                    public void connectService(int service) throws IOException {
+                        throw new IOException("Connection refused");
+                    }
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AS400LoginBulkheadTests {
+
+    @Test
+    void waitingLoginTimesOut() {
+        final AS400LoginBulkhead bulkhead = new AS400LoginBulkhead(1, 10, Duration.ofMillis(50));
+        bulkhead.acquire();
+        assertThat(bulkhead.getActiveCount()).isEqualTo(1);
+        assertThrows(AuthenticationServiceException.class, bulkhead::acquire);
+        assertThat(bulkhead.getQueuedCount()).isEqualTo(1);
+        assertThat(bulkhead.getTimeoutCount()).isEqualTo(1);
+        assertThat(bulkhead.getRejectedCount()).isEqualTo(1);
+        assertThat(bulkhead.getWaitingCount()).isZero();
+    }
+
+    @Test
+    void fullQueueRejectsImmediately() {
+        final AS400LoginBulkhead bulkhead = new AS400LoginBulkhead(1, 0, Duration.ofHours(1));
+        bulkhead.acquire();
+        assertThrows(AuthenticationServiceException.class, bulkhead::acquire);
+        assertThat(bulkhead.getQueuedCount()).isZero();
+        assertThat(bulkhead.getRejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void releasedSlotIsGivenToWaitingLogin() throws InterruptedException {
+        final AS400LoginBulkhead bulkhead = new AS400LoginBulkhead(1, 10, Duration.ofSeconds(10));
+        bulkhead.acquire();
+        final CountDownLatch acquired = new CountDownLatch(1);
+        final Thread waiter = new Thread(() -> {
+            bulkhead.acquire();
+            acquired.countDown();
+        });
+        waiter.start();
+        bulkhead.release();
+        assertThat(acquired.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(bulkhead.getActiveCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400;
+import com.ibm.as400.access.SecureAS400;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AS400PoolTests {
+
+    private AS400Pool pool(AS400 template, int minIdle, int maxSize, Duration maxIdleTime) {
+        return new AS400Pool(template, minIdle, maxSize, maxIdleTime, Duration.ofHours(1), Duration.ofMillis(50));
+    }
+
+    private AS400 template() {
+        return new AS400("as400", "user", "password".toCharArray());
+    }
+
+    @Test
+    void borrowReusesReleasedConnection() {
+        try (AS400Pool pool = pool(template(), 0, 2, Duration.ofMinutes(10))) {
+            final AS400 first = pool.borrow();
+            assertThat(pool.getActiveCount()).isEqualTo(1);
+            pool.release(first);
+            assertThat(pool.getIdleCount()).isEqualTo(1);
+            assertThat(pool.borrow()).isSameAs(first);
+            assertThat(pool.getCreatedCount()).isEqualTo(1);
+            assertThat(pool.getBorrowCount()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void borrowCopiesTemplate() {
+        try (AS400Pool pool = pool(new SecureAS400("as400", "user", "password".toCharArray()), 0, 1, Duration.ofMinutes(10))) {
+            final AS400 system = pool.borrow();
+            assertThat(system).isInstanceOf(SecureAS400.class);
+            assertThat(system.getSystemName()).isEqualTo("as400");
+        }
+    }
+
+    @Test
+    void exhaustedPoolTimesOut() {
+        try (AS400Pool pool = pool(template(), 0, 1, Duration.ofMinutes(10))) {
+            pool.borrow();
+            assertThrows(AS400PoolException.class, pool::borrow);
+            assertThat(pool.getWaitCount()).isEqualTo(1);
+            assertThat(pool.getTimeoutCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void releaseForeignConnectionFails() {
+        try (AS400Pool pool = pool(template(), 0, 1, Duration.ofMinutes(10))) {
+            assertThrows(IllegalArgumentException.class, () -> pool.release(template()));
+        }
+    }
+
+    @Test
+    void invalidateFreesSlot() {
+        try (AS400Pool pool = pool(template(), 0, 1, Duration.ofMinutes(10))) {
+            final AS400 system = pool.borrow();
+            pool.invalidate(system);
+            assertThat(pool.borrow()).isNotSameAs(system);
+            assertThat(pool.getDestroyedCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void maintainEvictsIdleConnectionsAboveMinIdle() {
+        try (AS400Pool pool = pool(template(), 1, 3, Duration.ZERO)) {
+            final AS400 first = pool.borrow();
+            final AS400 second = pool.borrow();
+            pool.release(first);
+            pool.release(second);
+            pool.maintain();
+            assertThat(pool.getIdleCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void maintainDoesNotExceedMaxSizeWhileBorrowersCreate() throws Exception {
+        final CountDownLatch creating = new CountDownLatch(2);
+        final CountDownLatch gate = new CountDownLatch(1);
+        final AtomicInteger creations = new AtomicInteger();
+        try (AS400Pool pool = new AS400Pool(template(), 2, 2, Duration.ofMinutes(10), Duration.ofHours(1), Duration.ofSeconds(5)) {
+            @Override
+            protected AS400 create() {
+                creations.incrementAndGet();
+                creating.countDown();
+                try {
+                    gate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.create();
+            }
+        }) {
+            // The first maintenance, run when the pool is created, and a borrower both create a connection
+            final CompletableFuture<AS400> borrower = CompletableFuture.supplyAsync(pool::borrow);
+            assertThat(creating.await(5, TimeUnit.SECONDS)).isTrue();
+            pool.maintain();
+            assertThat(creations).hasValue(2);
+            gate.countDown();
+            pool.release(borrower.get(5, TimeUnit.SECONDS));
+            pool.maintain();
+            assertThat(pool.getIdleCount() + pool.getActiveCount()).isLessThanOrEqualTo(2);
+            assertThat(creations).hasValue(2);
+        }
+    }
+
+    @Test
+    void executeInvalidatesConnectionOnIOException() {
+        try (AS400Pool pool = pool(template(), 0, 1, Duration.ofMinutes(10))) {
+            assertThrows(IOException.class, () -> pool.execute(system -> {
+                throw new IOException("Connection dropped");
+            }));
+            assertThat(pool.getIdleCount()).isZero();
+            assertThat(pool.getActiveCount()).isZero();
+            assertThat(pool.getDestroyedCount()).isEqualTo(1);
+            pool.execute(system -> null);
+            assertThat(pool.getIdleCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void releaseAfterCloseDisconnects() {
+        final AS400Pool pool = pool(template(), 0, 1, Duration.ofMinutes(10));
+        final AS400 system = pool.borrow();
+        pool.close();
+        pool.release(system);
+        assertThat(pool.getIdleCount()).isZero();
+        assertThat(pool.getDestroyedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void routedPoolDropsConnectionsToOpenCircuit() {
+        final AS400SystemRouter.Route primary = new AS400SystemRouter.Route("primary", 0,
+                new AS400("primary", "user", "password".toCharArray()));
+        final AS400SystemRouter.Route replica = new AS400SystemRouter.Route("replica", 1,
+                new AS400("replica", "user", "password".toCharArray()));
+        try (AS400SystemRouter router = new AS400SystemRouter(List.of(primary, replica), 1, Duration.ofHours(1),
+                Duration.ofSeconds(1), Duration.ZERO, system -> {
+        });
+             AS400Pool pool = new AS400Pool(router, 0, 2, Duration.ofMinutes(10), Duration.ofHours(1), Duration.ofMillis(50))) {
+            final AS400 first = pool.borrow();
+            assertThat(first.getSystemName()).isEqualTo("primary");
+            pool.release(first);
+            router.recordFailure(primary);
+            final AS400 second = pool.borrow();
+            assertThat(second.getSystemName()).isEqualTo("replica");
+            assertThat(pool.getDestroyedCount()).isEqualTo(1);
+            assertThat(pool.getIdleCount()).isZero();
+        }
+    }
+
+    @Test
+    void routedPoolRecordsIOExceptionsAsFailures() {
+        final AS400SystemRouter.Route primary = new AS400SystemRouter.Route("primary", 0,
+                new AS400("primary", "user", "password".toCharArray()));
+        final AS400SystemRouter.Route replica = new AS400SystemRouter.Route("replica", 1,
+                new AS400("replica", "user", "password".toCharArray()));
+        try (AS400SystemRouter router = new AS400SystemRouter(List.of(primary, replica), 1, Duration.ofHours(1),
+                Duration.ofSeconds(1), Duration.ZERO, system -> {
+        });
+             AS400Pool pool = new AS400Pool(router, 0, 2, Duration.ofMinutes(10), Duration.ofHours(1), Duration.ofMillis(50))) {
+            assertThrows(IOException.class, () -> pool.execute(system -> {
+                throw new IOException("Connection dropped");
+            }));
+            assertThat(primary.isOpen()).isTrue();
+            assertThat(pool.execute(AS400::getSystemName)).isEqualTo("replica");
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.event.LogoutSuccessEvent;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AS400SignonCacheTests {
+
+    @Test
+    void cachedSignonIsValid() {
+        final AS400SignonCache cache = new AS400SignonCache(Duration.ofMinutes(5), 10);
+        cache.put("user", "password".toCharArray());
+        assertThat(cache.isValid("user", "password".toCharArray())).isTrue();
+        assertThat(cache.isValid("USER", "password".toCharArray())).isTrue();
+    }
+
+    @Test
+    void wrongPasswordIsNotValid() {
+        final AS400SignonCache cache = new AS400SignonCache(Duration.ofMinutes(5), 10);
+        cache.put("user", "password".toCharArray());
+        assertThat(cache.isValid("user", "PASSWORD".toCharArray())).isFalse();
+        assertThat(cache.isValid("other", "password".toCharArray())).isFalse();
+    }
+
+    @Test
+    void expiredSignonIsNotValid() {
+        final AS400SignonCache cache = new AS400SignonCache(Duration.ZERO, 10);
+        cache.put("user", "password".toCharArray());
+        assertThat(cache.isValid("user", "password".toCharArray())).isFalse();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void leastRecentlyUsedIsEvicted() {
+        final AS400SignonCache cache = new AS400SignonCache(Duration.ofMinutes(5), 2);
+        cache.put("user1", "password".toCharArray());
+        cache.put("user2", "password".toCharArray());
+        cache.isValid("user1", "password".toCharArray());
+        cache.put("user3", "password".toCharArray());
+        assertThat(cache.isValid("user1", "password".toCharArray())).isTrue();
+        assertThat(cache.isValid("user2", "password".toCharArray())).isFalse();
+        assertThat(cache.isValid("user3", "password".toCharArray())).isTrue();
+    }
+
+    @Test
+    void logoutEvicts() {
+        final AS400SignonCache cache = new AS400SignonCache(Duration.ofMinutes(5), 10);
+        cache.put("user", "password".toCharArray());
+        cache.onApplicationEvent(new LogoutSuccessEvent(new UsernamePasswordAuthenticationToken("user", "password")));
+        assertThat(cache.isValid("user", "password".toCharArray())).isFalse();
+    }
+}
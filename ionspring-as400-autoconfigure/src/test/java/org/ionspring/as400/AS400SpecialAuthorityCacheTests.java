@@ -0,0 +1,83 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AS400SpecialAuthorityCacheTests {
+
+    private static final List<GrantedAuthority> AUTHORITIES = List.of(new SimpleGrantedAuthority("ROLE_SPECIAL_AUTHORITY_AUDIT"));
+
+    @Test
+    void cachedAuthoritiesAreNotReloaded() {
+        final AtomicInteger loads = new AtomicInteger();
+        try (AS400SpecialAuthorityCache cache = new AS400SpecialAuthorityCache(Duration.ofHours(1), Duration.ofHours(1), 10)) {
+            assertThat(cache.get("user", () -> {
+                loads.incrementAndGet();
+                return AUTHORITIES;
+            })).isEqualTo(AUTHORITIES);
+            assertThat(cache.get("USER", () -> {
+                loads.incrementAndGet();
+                return List.of();
+            })).isEqualTo(AUTHORITIES);
+            assertThat(loads).hasValue(1);
+        }
+    }
+
+    @Test
+    void failedLoadIsNotCached() {
+        try (AS400SpecialAuthorityCache cache = new AS400SpecialAuthorityCache(Duration.ofHours(1), Duration.ofHours(1), 10)) {
+            assertThat(cache.get("user", () -> {
+                throw new IOException("host unavailable");
+            })).isEmpty();
+            assertThat(cache.size()).isZero();
+        }
+    }
+
+    @Test
+    void invalidateForcesReload() {
+        try (AS400SpecialAuthorityCache cache = new AS400SpecialAuthorityCache(Duration.ofHours(1), Duration.ofHours(1), 10)) {
+            cache.get("user", () -> List.of());
+            cache.invalidate("user");
+            assertThat(cache.get("user", () -> AUTHORITIES)).isEqualTo(AUTHORITIES);
+        }
+    }
+
+    @Test
+    void staleEntryIsRefreshedInBackground() throws InterruptedException {
+        final CountDownLatch refreshed = new CountDownLatch(1);
+        try (AS400SpecialAuthorityCache cache = new AS400SpecialAuthorityCache(Duration.ofHours(1), Duration.ZERO, 10)) {
+            cache.get("user", () -> List.of());
+            assertThat(cache.get("user", () -> {
+                refreshed.countDown();
+                return AUTHORITIES;
+            })).isEmpty();
+            assertThat(refreshed.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400;
+import com.ibm.as400.access.SecureAS400;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AS400SystemRouterTests {
+
+    private final AS400SystemRouter.Route primary = new AS400SystemRouter.Route("primary", 0, new AS400());
+
+    private final AS400SystemRouter.Route replica = new AS400SystemRouter.Route("replica", 1, new AS400());
+
+    private final Set<AS400> down = ConcurrentHashMap.newKeySet();
+
+    private final Map<AS400, Long> delays = new ConcurrentHashMap<>();
+
+    private AS400SystemRouter createRouter(Duration openDuration) {
+        return new AS400SystemRouter(List.of(replica, primary), 2, openDuration, Duration.ofMillis(20), Duration.ZERO, system -> {
+            if (down.contains(system)) {
+                throw new IOException("Connection refused");
+            }
+            Thread.sleep(delays.getOrDefault(system, 0L));
+        });
+    }
+
+    @Test
+    void lowestPriorityPreferred() {
+        try (AS400SystemRouter router = createRouter(Duration.ofMinutes(1))) {
+            router.probeAll();
+            assertThat(router.select()).isSameAs(primary);
+            assertThat(router.getAvailableRoutes()).containsExactly(primary, replica);
+        }
+    }
+
+    @Test
+    void circuitOpensAfterConsecutiveFailures() {
+        try (AS400SystemRouter router = createRouter(Duration.ofMinutes(1))) {
+            down.add(primary.getSystem());
+            router.probeAll();
+            assertThat(router.select()).isSameAs(primary);
+            router.probeAll();
+            assertThat(primary.isOpen()).isTrue();
+            assertThat(router.select()).isSameAs(replica);
+        }
+    }
+
+    @Test
+    void halfOpenCircuitClosesOnSuccess() {
+        try (AS400SystemRouter router = createRouter(Duration.ZERO)) {
+            router.recordFailure(primary);
+            router.recordFailure(primary);
+            assertThat(primary.isOpen()).isTrue();
+            // Half-open once openDuration elapsed, a single failure opens it again
+            assertThat(router.select()).isSameAs(primary);
+            router.recordFailure(primary);
+            assertThat(primary.isOpen()).isTrue();
+            router.recordSuccess(primary);
+            assertThat(primary.isOpen()).isFalse();
+        }
+    }
+
+    @Test
+    void slowSystemAvoided() {
+        try (AS400SystemRouter router = createRouter(Duration.ofMinutes(1))) {
+            delays.put(primary.getSystem(), 50L);
+            router.probeAll();
+            assertThat(primary.getLatency()).isGreaterThan(Duration.ofMillis(20));
+            assertThat(router.select()).isSameAs(replica);
+        }
+    }
+
+    @Test
+    void noSystemAvailable() {
+        try (AS400SystemRouter router = createRouter(Duration.ofMinutes(1))) {
+            down.add(primary.getSystem());
+            down.add(replica.getSystem());
+            router.probeAll();
+            router.probeAll();
+            assertThrows(AS400RoutingException.class, router::select);
+        }
+    }
+
+    @Test
+    void dataSourceFailsOver() throws SQLException {
+        final JdbcConnectionPool replicaPool = JdbcConnectionPool.create("jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1", "sa", "");
+        final DataSource failingPrimary = new DelegatingDataSource(replicaPool) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                throw new SQLException("Connection refused", "08001");
+            }
+        };
+        try (AS400SystemRouter router = createRouter(Duration.ofMinutes(1))) {
+            final FailoverDataSource dataSource = new FailoverDataSource(router, Map.of(primary, failingPrimary, replica, replicaPool));
+            try (Connection connection = dataSource.getConnection()) {
+                assertThat(connection.getMetaData().getURL()).contains("replica");
+            }
+            try (Connection ignored = dataSource.getConnection()) {
+                assertThat(primary.isOpen()).isTrue();
+            }
+        } finally {
+            replicaPool.dispose();
+        }
+    }
+
+    @Test
+    void proxyPinnedUntilCircuitOpens() throws Exception {
+        final Host primaryHost = new Host("primary");
+        final AS400SystemRouter.Route primaryRoute = new AS400SystemRouter.Route("primary", 0, primaryHost);
+        final AS400SystemRouter.Route replicaRoute = new AS400SystemRouter.Route("replica", 1, new Host("replica"));
+        try (AS400SystemRouter router = new AS400SystemRouter(List.of(primaryRoute, replicaRoute), 2, Duration.ofMinutes(1),
+                Duration.ofSeconds(1), Duration.ZERO, system -> {
+        })) {
+            final AS400 proxy = router.createProxy();
+            assertThat(proxy).isInstanceOf(Host.class);
+            assertThat(proxy.getSystemName()).isEqualTo("primary");
+            primaryHost.down = true;
+            assertThrows(IOException.class, proxy::getVRM);
+            assertThat(proxy.getSystemName()).isEqualTo("primary");
+            assertThrows(IOException.class, proxy::getVRM);
+            assertThat(primaryRoute.isOpen()).isTrue();
+            assertThat(proxy.getSystemName()).isEqualTo("replica");
+            assertThat(proxy.getVRM()).isEqualTo(Host.VRM);
+            // The proxy doesn't fail back in the middle of operations when the preferred system recovers
+            router.recordSuccess(primaryRoute);
+            assertThat(router.select()).isSameAs(primaryRoute);
+            assertThat(proxy.getSystemName()).isEqualTo("replica");
+        }
+    }
+
+    @Test
+    void proxyRecordsSuccesses() throws Exception {
+        final Host primaryHost = new Host("primary");
+        final AS400SystemRouter.Route primaryRoute = new AS400SystemRouter.Route("primary", 0, primaryHost);
+        try (AS400SystemRouter router = new AS400SystemRouter(List.of(primaryRoute), 2, Duration.ofMinutes(1),
+                Duration.ofSeconds(1), Duration.ZERO, system -> {
+        })) {
+            final AS400 proxy = router.createProxy();
+            primaryHost.down = true;
+            assertThrows(IOException.class, proxy::getVRM);
+            primaryHost.down = false;
+            assertThat(proxy.getVRM()).isEqualTo(Host.VRM);
+            primaryHost.down = true;
+            assertThrows(IOException.class, proxy::getVRM);
+            assertThat(primaryRoute.isOpen()).isFalse();
+        }
+    }
+
+    @Test
+    void mixedSecurityRejected() {
+        final List<AS400SystemRouter.Route> routes = List.of(primary,
+                new AS400SystemRouter.Route("secure", 1, new SecureAS400("secure", "user", "password".toCharArray())));
+        assertThrows(IllegalArgumentException.class, () -> new AS400SystemRouter(routes, 2, Duration.ofMinutes(1),
+                Duration.ofSeconds(1), Duration.ZERO, system -> {
+        }));
+    }
+
+    public static class Host extends AS400 {
+        static final int VRM = 0x00070500;
+
+        volatile boolean down = false;
+
+        Host(String name) {
+            super(name, "user", "password".toCharArray());
+        }
+
+        @Override
+        public int getVRM() throws IOException {
+            if (down) {
+                throw new IOException("Connection refused");
+            }
+            return VRM;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ApplicationAvailabilityBean;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AS400WarmUpTests {
+
+    private JdbcConnectionPool pool;
+
+    private final CountDownLatch gate = new CountDownLatch(1);
+
+    private final AtomicInteger opened = new AtomicInteger();
+
+    private final CompletableFuture<ConfigurableApplicationContext> started = new CompletableFuture<>();
+
+    private AS400WarmUp warmUp;
+
+    @BeforeEach
+    void createDataSource() {
+        pool = JdbcConnectionPool.create("jdbc:h2:mem:warmup;DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    @AfterEach
+    void disposeDataSource() throws Exception {
+        gate.countDown();
+        if (started.isDone()) {
+            started.get().close();
+        }
+        warmUp.stop();
+        pool.dispose();
+    }
+
+    private AS400WarmUp createWarmUp(Duration timeout) {
+        final DelegatingDataSource dataSource = new DelegatingDataSource(pool) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    throw new SQLException(e);
+                }
+                opened.incrementAndGet();
+                return super.getConnection();
+            }
+        };
+        return new AS400WarmUp(null, new int[0], null, () -> dataSource, 3, timeout);
+    }
+
+    /**
+     * Runs a Spring application holding the warm-up, the returned future completes when the application is ready.
+     */
+    private CompletableFuture<ConfigurableApplicationContext> runApplication() {
+        final SpringApplication application = new SpringApplication(AvailabilityConfiguration.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        application.setBannerMode(Banner.Mode.OFF);
+        application.setLogStartupInfo(false);
+        application.addInitializers(context -> context.getBeanFactory().registerSingleton("as400WarmUp", warmUp));
+        application.addListeners((ApplicationListener<ApplicationEvent>) event -> {
+            if (event instanceof ApplicationStartedEvent startedEvent) {
+                started.complete(startedEvent.getApplicationContext());
+            }
+        });
+        return CompletableFuture.supplyAsync(() -> application.run());
+    }
+
+    private static ReadinessState readiness(ConfigurableApplicationContext context) {
+        return context.getBean(ApplicationAvailability.class).getReadinessState();
+    }
+
+    @Test
+    void readinessHeldUntilWarmUpCompletes() throws Exception {
+        warmUp = createWarmUp(Duration.ofMinutes(1));
+        final CompletableFuture<ConfigurableApplicationContext> ready = runApplication();
+        final ConfigurableApplicationContext context = started.get(10, TimeUnit.SECONDS);
+        assertThat(warmUp.isComplete()).isFalse();
+        assertThat(readiness(context)).isEqualTo(ReadinessState.REFUSING_TRAFFIC);
+        assertThat(ready).isNotDone();
+
+        gate.countDown();
+        assertThat(ready.get(10, TimeUnit.SECONDS)).isSameAs(context);
+        assertThat(warmUp.isComplete()).isTrue();
+        assertThat(readiness(context)).isEqualTo(ReadinessState.ACCEPTING_TRAFFIC);
+        assertThat(opened).hasValue(3);
+        assertThat(pool.getActiveConnections()).isZero();
+    }
+
+    @Test
+    void readinessNotHeldAfterWarmUp() throws Exception {
+        warmUp = createWarmUp(Duration.ofMinutes(1));
+        gate.countDown();
+        final ConfigurableApplicationContext context = runApplication().get(10, TimeUnit.SECONDS);
+        assertThat(warmUp.isComplete()).isTrue();
+        assertThat(readiness(context)).isEqualTo(ReadinessState.ACCEPTING_TRAFFIC);
+    }
+
+    @Test
+    void readinessReleasedOnTimeout() throws Exception {
+        warmUp = createWarmUp(Duration.ofMillis(100));
+        final ConfigurableApplicationContext context = runApplication().get(10, TimeUnit.SECONDS);
+        assertThat(warmUp.isComplete()).isTrue();
+        assertThat(readiness(context)).isEqualTo(ReadinessState.ACCEPTING_TRAFFIC);
+        assertThat(opened).hasValue(0);
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class AvailabilityConfiguration {
+        @Bean
+        ApplicationAvailabilityBean applicationAvailability() {
+            return new ApplicationAvailabilityBean();
+        }
+    }
+}
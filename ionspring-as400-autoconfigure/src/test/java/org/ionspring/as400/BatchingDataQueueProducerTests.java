@@ -0,0 +1,63 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BatchingDataQueueProducerTests {
+
+    @Test
+    void fullBatchIsWrittenImmediately() {
+        final InMemoryDataQueueEndpoint endpoint = new InMemoryDataQueueEndpoint();
+        try (BatchingDataQueueProducer producer = new BatchingDataQueueProducer(endpoint, 5, Duration.ofHours(1))) {
+            final List<CompletableFuture<Void>> futures = IntStream.range(0, 5)
+                    .mapToObj(i -> producer.send(new byte[]{(byte) i}))
+                    .toList();
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+            assertThat(endpoint.size()).isEqualTo(5);
+            assertThat(producer.getBatchCount()).isOne();
+        }
+    }
+
+    @Test
+    void partialBatchIsWrittenAfterLinger() {
+        final InMemoryDataQueueEndpoint endpoint = new InMemoryDataQueueEndpoint();
+        try (BatchingDataQueueProducer producer = new BatchingDataQueueProducer(endpoint, 100, Duration.ofMillis(20))) {
+            producer.send(new byte[]{1}).join();
+            assertThat(endpoint.size()).isOne();
+            assertThat(producer.getSentCount()).isOne();
+        }
+    }
+
+    @Test
+    void closeWritesWaitingEntries() throws Exception {
+        final InMemoryDataQueueEndpoint endpoint = new InMemoryDataQueueEndpoint();
+        final BatchingDataQueueProducer producer = new BatchingDataQueueProducer(endpoint, 100, Duration.ofHours(1));
+        producer.send(new byte[]{1});
+        producer.send(new byte[]{2});
+        producer.close();
+        assertThat(endpoint.receive(10, Duration.ZERO)).extracting(m -> m.data()[0]).containsExactly((byte) 1, (byte) 2);
+        assertThat(producer.send(new byte[]{3})).isCompletedExceptionally();
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.Record;
+import com.ibm.as400.access.SequentialFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BufferedRecordWriterTests {
+
+    private final RecordingFile file = new RecordingFile();
+    private final AtomicInteger closeCount = new AtomicInteger();
+    private final BufferedRecordWriter writer = new BufferedRecordWriter("/QSYS.LIB/MYLIB.LIB/ORDERS.FILE", file, 3,
+            closeCount::incrementAndGet);
+
+    /**
+     * A file recording the size of each block written, without connecting.
+     */
+    static class RecordingFile extends SequentialFile {
+        private final List<Integer> blocks = new ArrayList<>();
+        private boolean failing = false;
+
+        @Override
+        public void write(Record[] records) throws IOException {
+            if (failing) {
+                throw new IOException("Connection dropped");
+            }
+            blocks.add(records.length);
+        }
+    }
+
+    @Test
+    void writesFullBlocks() {
+        for (int i = 0; i < 7; i++) {
+            writer.write(new Record());
+        }
+        assertThat(file.blocks).containsExactly(3, 3);
+        assertThat(writer.getWrittenCount()).isEqualTo(6);
+    }
+
+    @Test
+    void flushWritesPartialBlock() {
+        writer.write(new Record());
+        writer.write(new Record());
+        writer.flush();
+        writer.flush();
+        assertThat(file.blocks).containsExactly(2);
+        assertThat(writer.getWrittenCount()).isEqualTo(2);
+        writer.write(new Record());
+        writer.write(new Record());
+        writer.write(new Record());
+        assertThat(file.blocks).containsExactly(2, 3);
+        assertThat(writer.getWrittenCount()).isEqualTo(5);
+    }
+
+    @Test
+    void closeWritesLastRecordsOnce() {
+        for (int i = 0; i < 4; i++) {
+            writer.write(new Record());
+        }
+        writer.close();
+        writer.close();
+        assertThat(file.blocks).containsExactly(3, 1);
+        assertThat(writer.getWrittenCount()).isEqualTo(4);
+        assertThat(closeCount).hasValue(1);
+        assertThrows(IllegalStateException.class, () -> writer.write(new Record()));
+    }
+
+    @Test
+    void failedFlushMakesWriterUnusable() {
+        writer.write(new Record());
+        file.failing = true;
+        assertThrows(RecordAccessException.class, writer::flush);
+        assertThat(writer.getWrittenCount()).isZero();
+        assertThrows(RecordAccessException.class, writer::flush);
+        assertThrows(RecordAccessException.class, () -> writer.write(new Record()));
+        writer.close();
+        assertThat(closeCount).hasValue(1);
+        assertThat(file.blocks).isEmpty();
+    }
+
+    @Test
+    void failedFullBlockRejectsFollowingWrites() {
+        writer.write(new Record());
+        writer.write(new Record());
+        file.failing = true;
+        assertThrows(RecordAccessException.class, () -> writer.write(new Record()));
+        // Part of the failed block might have been written, it's not retried
+        file.failing = false;
+        assertThrows(RecordAccessException.class, () -> writer.write(new Record()));
+        writer.close();
+        assertThat(file.blocks).isEmpty();
+        assertThat(closeCount).hasValue(1);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400;
+import com.ibm.as400.access.CommandCall;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CommandExecutorTests {
+
+    private final AS400Pool pool = new AS400Pool(new AS400("fakehost", "APP", "APP".toCharArray()), 0, 4,
+            Duration.ofMinutes(1), Duration.ofMinutes(1), Duration.ofSeconds(5));
+
+    /**
+     * An executor recording the commands of each batch instead of running them.
+     */
+    static class RecordingExecutor extends CommandExecutor {
+        private final Map<CommandCall, List<String>> batches = new ConcurrentHashMap<>();
+
+        RecordingExecutor(AS400Pool pool) {
+            super(null, pool);
+        }
+
+        @Override
+        CommandResult run(CommandCall commandCall, String command) throws Exception {
+            batches.computeIfAbsent(commandCall, key -> new ArrayList<>()).add(command);
+            return new CommandResult(command, true, List.of());
+        }
+
+        Collection<List<String>> getBatches() {
+            return batches.values();
+        }
+    }
+
+    private static List<String> commands(int count) {
+        return IntStream.range(0, count).mapToObj(i -> "CMD" + i).toList();
+    }
+
+    @AfterEach
+    void closePool() {
+        pool.close();
+    }
+
+    @Test
+    void parallelCommandsAreSplitInConsecutiveBatches() {
+        try (RecordingExecutor executor = new RecordingExecutor(pool)) {
+            final List<CommandResult> results = executor.executeParallel(commands(7), 3);
+            assertThat(results).extracting(CommandResult::command).containsExactlyElementsOf(commands(7));
+            assertThat(executor.getBatches()).containsExactlyInAnyOrder(
+                    List.of("CMD0", "CMD1", "CMD2"), List.of("CMD3", "CMD4", "CMD5"), List.of("CMD6"));
+        }
+    }
+
+    @Test
+    void parallelResultsKeepCommandOrder() {
+        try (RecordingExecutor executor = new RecordingExecutor(pool) {
+            @Override
+            CommandResult run(CommandCall commandCall, String command) throws Exception {
+                // The first batch finishes last
+                if (command.equals("CMD0")) {
+                    Thread.sleep(200);
+                }
+                return super.run(commandCall, command);
+            }
+        }) {
+            assertThat(executor.executeParallel(commands(4), 4)).extracting(CommandResult::command)
+                    .containsExactlyElementsOf(commands(4));
+        }
+    }
+
+    @Test
+    void failedBatchStopsOtherBatches() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch failed = new CountDownLatch(1);
+        final CountDownLatch firstBatchDone = new CountDownLatch(1);
+        try (RecordingExecutor executor = new RecordingExecutor(pool) {
+            @Override
+            List<CommandResult> executeBatch(List<String> commands, boolean stopOnError, BooleanSupplier cancelled) {
+                try {
+                    return super.executeBatch(commands, stopOnError, cancelled);
+                } finally {
+                    if (commands.get(0).equals("CMD0")) {
+                        firstBatchDone.countDown();
+                    }
+                }
+            }
+
+            @Override
+            CommandResult run(CommandCall commandCall, String command) throws Exception {
+                if (command.equals("CMD0")) {
+                    // Still running when the other batch fails
+                    started.countDown();
+                    assertThat(failed.await(5, TimeUnit.SECONDS)).isTrue();
+                } else if (command.equals("CMD3")) {
+                    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+                    throw new IOException("Connection dropped");
+                }
+                return super.run(commandCall, command);
+            }
+        }) {
+            final CommandCallException e = assertThrows(CommandCallException.class,
+                    () -> executor.executeParallel(commands(6), 2));
+            assertThat(e).hasRootCauseInstanceOf(IOException.class);
+            failed.countDown();
+            assertThat(firstBatchDone.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(executor.getBatches()).containsExactly(List.of("CMD0"));
+            assertThat(pool.getActiveCount()).isZero();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400Message;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CommandResultTests {
+
+    private final CommandResult result = new CommandResult("DLTF FILE(MYLIB/NOFILE)", false, List.of(
+            new CommandMessage("CPF2105", 40, AS400Message.DIAGNOSTIC, "Object NOFILE in MYLIB type *FILE not found."),
+            new CommandMessage("CPF2117", 40, AS400Message.ESCAPE, "1 objects not deleted.")));
+
+    @Test
+    void maxSeverity() {
+        assertThat(result.maxSeverity()).isEqualTo(40);
+        assertThat(new CommandResult("CHKOBJ", true, List.of()).maxSeverity()).isZero();
+    }
+
+    @Test
+    void messagesById() {
+        assertThat(result.hasMessage("CPF2105")).isTrue();
+        assertThat(result.hasMessage("CPF9801")).isFalse();
+    }
+
+    @Test
+    void escapeMessage() {
+        assertThat(result.escapeMessage()).get().extracting(CommandMessage::id).isEqualTo("CPF2117");
+    }
+}
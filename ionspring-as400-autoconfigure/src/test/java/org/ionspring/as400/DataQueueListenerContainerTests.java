@@ -0,0 +1,160 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DataQueueListenerContainerTests {
+
+    private static DataQueueMessage message(String data) {
+        return new DataQueueMessage(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void entriesAreReceivedInBatches() throws InterruptedException {
+        final InMemoryDataQueueEndpoint endpoint = new InMemoryDataQueueEndpoint();
+        endpoint.send(IntStream.range(0, 25).mapToObj(i -> message("entry" + i)).toList());
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        final CountDownLatch latch = new CountDownLatch(25);
+        try (DataQueueListenerContainer container = new DataQueueListenerContainer("test", endpoint, messages -> {
+            batchSizes.add(messages.size());
+            messages.forEach(m -> latch.countDown());
+        }, 1, 10, Duration.ofMillis(100))) {
+            container.start();
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(batchSizes).containsExactly(10, 10, 5);
+            assertThat(container.getReceivedCount()).isEqualTo(25);
+        }
+        assertThat(endpoint.size()).isZero();
+    }
+
+    @Test
+    void failedEntriesAreCounted() throws InterruptedException {
+        final InMemoryDataQueueEndpoint endpoint = new InMemoryDataQueueEndpoint();
+        final CountDownLatch latch = new CountDownLatch(1);
+        try (DataQueueListenerContainer container = new DataQueueListenerContainer("failing", endpoint, messages -> {
+            latch.countDown();
+            throw new IllegalStateException("Failure");
+        }, 2, 10, Duration.ofMillis(100))) {
+            container.start();
+            endpoint.send(List.of(message("first"), message("second")));
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+            container.stop();
+            assertThat(container.getFailedCount()).isEqualTo(2);
+            assertThat(container.getProcessedCount()).isZero();
+            assertThat(container.isRunning()).isFalse();
+        }
+    }
+
+    @Test
+    void keyedEndpointSearchesKeys() throws InterruptedException {
+        final InMemoryDataQueueEndpoint endpoint = new InMemoryDataQueueEndpoint("B", "GE");
+        endpoint.send(List.of(new DataQueueMessage("a".getBytes(), "A".getBytes()),
+                new DataQueueMessage("c".getBytes(), "C".getBytes()),
+                message("b")));
+        final List<DataQueueMessage> received = endpoint.receive(10, Duration.ZERO);
+        assertThat(received).extracting(m -> new String(m.data())).containsExactly("c", "b");
+        assertThat(endpoint.size()).isOne();
+    }
+
+    @Test
+    void annotatedMethodsAreListeners() throws InterruptedException {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(ListenerConfiguration.class)) {
+            context.getBean(InMemoryDataQueueEndpoint.class).send(List.of(message("first"), message("second")));
+            final Listener listener = context.getBean(Listener.class);
+            assertThat(listener.latch.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(listener.received).containsExactly("first", "second");
+            assertThat(context.getBean(DataQueueListenerAnnotationBeanPostProcessor.class).getContainers())
+                    .singleElement()
+                    .extracting(DataQueueListenerContainer::getName)
+                    .isEqualTo("listener.onEntry");
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class ListenerConfiguration {
+        @Bean
+        static DataQueueListenerAnnotationBeanPostProcessor dataQueueListenerAnnotationBeanPostProcessor() {
+            return new DataQueueListenerAnnotationBeanPostProcessor();
+        }
+
+        @Bean
+        InMemoryDataQueueEndpoint endpoint() {
+            return new InMemoryDataQueueEndpoint();
+        }
+
+        @Bean
+        DataQueueEndpointFactory dataQueueEndpointFactory(InMemoryDataQueueEndpoint endpoint) {
+            return (queue, key, searchType) -> endpoint;
+        }
+
+        @Bean
+        Listener listener() {
+            return new Listener();
+        }
+    }
+
+    static class Listener {
+        final List<String> received = new CopyOnWriteArrayList<>();
+        final CountDownLatch latch = new CountDownLatch(2);
+
+        @DataQueueListener(queue = "/QSYS.LIB/TEST.LIB/ORDERS.DTAQ", receiveTimeout = "100ms")
+        public void onEntry(byte[] data) {
+            received.add(new String(data, StandardCharsets.UTF_8));
+            latch.countDown();
+        }
+    }
+
+    @Test
+    void closeClosesEndpoint() {
+        final List<String> closed = new CopyOnWriteArrayList<>();
+        final ClosableEndpoint endpoint = new ClosableEndpoint(closed);
+        try (DataQueueListenerContainer container = new DataQueueListenerContainer("closing", endpoint, messages -> {
+        }, 1, 10, Duration.ofMillis(100))) {
+            container.start();
+            container.stop();
+            assertThat(closed).isEmpty();
+        }
+        assertThat(closed).containsExactly("closing");
+    }
+
+    static class ClosableEndpoint extends InMemoryDataQueueEndpoint implements AutoCloseable {
+        private final List<String> closed;
+
+        ClosableEndpoint(List<String> closed) {
+            this.closed = closed;
+        }
+
+        @Override
+        public void close() {
+            closed.add("closing");
+        }
+    }
+}
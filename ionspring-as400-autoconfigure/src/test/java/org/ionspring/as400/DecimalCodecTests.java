@@ -0,0 +1,81 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400PackedDecimal;
+import com.ibm.as400.access.AS400ZonedDecimal;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DecimalCodecTests {
+
+    @Test
+    void packedMatchesJt400() {
+        for (String value : new String[]{"0.00", "123.45", "-123.45", "99999999.99", "-0.01"}) {
+            final byte[] expected = new AS400PackedDecimal(10, 2).toBytes(new BigDecimal(value));
+            final byte[] actual = new byte[DecimalCodec.packedLength(10)];
+            DecimalCodec.encodePacked(new BigDecimal(value), actual, 0, 10, 2);
+            assertThat(actual).isEqualTo(expected);
+            assertThat(DecimalCodec.decodePacked(expected, 0, 10, 2)).isEqualTo(new BigDecimal(value));
+        }
+    }
+
+    @Test
+    void zonedMatchesJt400() {
+        for (String value : new String[]{"0.00", "123.45", "-123.45", "-0.01"}) {
+            final byte[] expected = new AS400ZonedDecimal(7, 2).toBytes(new BigDecimal(value));
+            final byte[] actual = new byte[7];
+            DecimalCodec.encodeZoned(new BigDecimal(value), actual, 0, 7, 2);
+            assertThat(actual).isEqualTo(expected);
+            assertThat(DecimalCodec.decodeZoned(expected, 0, 7, 2)).isEqualTo(new BigDecimal(value));
+        }
+    }
+
+    @Test
+    void longFastPathUsesBufferOffset() {
+        final byte[] buffer = new byte[8];
+        DecimalCodec.encodePacked(-12345L, buffer, 2, 5);
+        assertThat(buffer).containsExactly(0, 0, 0x12, 0x34, 0x5D, 0, 0, 0);
+        assertThat(DecimalCodec.decodePackedLong(buffer, 2, 5)).isEqualTo(-12345L);
+        DecimalCodec.encodeZoned(42L, buffer, 4, 3);
+        assertThat(DecimalCodec.decodeZonedLong(buffer, 4, 3)).isEqualTo(42L);
+    }
+
+    @Test
+    void moreThanEighteenDigits() {
+        final BigDecimal value = new BigDecimal("-1234567890123456789012.345");
+        final byte[] buffer = new byte[DecimalCodec.packedLength(25)];
+        DecimalCodec.encodePacked(value, buffer, 0, 25, 3);
+        assertThat(buffer).isEqualTo(new AS400PackedDecimal(25, 3).toBytes(value));
+        assertThat(DecimalCodec.decodePacked(buffer, 0, 25, 3)).isEqualTo(value);
+    }
+
+    @Test
+    void overflowIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> DecimalCodec.encodePacked(100000L, new byte[3], 0, 5));
+        assertThrows(ArithmeticException.class, () -> DecimalCodec.encodeZoned(new BigDecimal("1.234"), new byte[5], 0, 5, 2));
+    }
+
+    @Test
+    void invalidSignIsRejected() {
+        assertThrows(NumberFormatException.class, () -> DecimalCodec.decodePackedLong(new byte[]{0x12, 0x34}, 0, 3));
+    }
+}
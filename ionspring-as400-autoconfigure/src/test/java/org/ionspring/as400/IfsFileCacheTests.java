@@ -0,0 +1,143 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IfsFileCacheTests {
+
+    @TempDir
+    Path directory;
+
+    private final AtomicInteger downloads = new AtomicInteger();
+
+    private IfsFileCache.Loader loader(int size) {
+        return () -> {
+            downloads.incrementAndGet();
+            return new ByteArrayInputStream(new byte[size]);
+        };
+    }
+
+    @Test
+    void unmodifiedFileIsServedFromCache() throws IOException {
+        final IfsFileCache cache = new IfsFileCache(directory, 1000, 1000);
+        final Path first = cache.get("/home/file.pdf", 1, 10, loader(10));
+        final Path second = cache.get("/home/file.pdf", 1, 10, loader(10));
+        assertThat(second).isEqualTo(first);
+        assertThat(Files.size(second)).isEqualTo(10);
+        assertThat(downloads).hasValue(1);
+        assertThat(cache.getHitCount()).isOne();
+    }
+
+    @Test
+    void modifiedFileIsDownloadedAgain() throws IOException {
+        final IfsFileCache cache = new IfsFileCache(directory, 1000, 1000);
+        final Path first = cache.get("/home/file.pdf", 1, 10, loader(10));
+        final Path second = cache.get("/home/file.pdf", 2, 20, loader(20));
+        assertThat(downloads).hasValue(2);
+        assertThat(first).doesNotExist();
+        assertThat(cache.getSize()).isEqualTo(20);
+        assertThat(Files.size(second)).isEqualTo(20);
+    }
+
+    @Test
+    void leastRecentlyUsedFilesAreEvicted() throws IOException {
+        final IfsFileCache cache = new IfsFileCache(directory, 25, 25);
+        final Path first = cache.get("/home/first.pdf", 1, 10, loader(10));
+        cache.get("/home/second.pdf", 1, 10, loader(10));
+        cache.get("/home/first.pdf", 1, 10, loader(10));
+        cache.get("/home/third.pdf", 1, 10, loader(10));
+        assertThat(first).exists();
+        assertThat(cache.getSize()).isEqualTo(20);
+        assertThat(cache.get("/home/second.pdf", 1, 10, loader(10))).exists();
+        assertThat(downloads).hasValue(4);
+    }
+
+    @Test
+    void bigFilesAreNotCached() throws IOException {
+        final IfsFileCache cache = new IfsFileCache(directory, 1000, 100);
+        assertThat(cache.get("/home/big.pdf", 1, 101, loader(101))).isNull();
+        assertThat(downloads).hasValue(0);
+    }
+
+    @Test
+    void getIfCachedDoesNotDownload() throws IOException {
+        final IfsFileCache cache = new IfsFileCache(directory, 1000, 1000);
+        assertThat(cache.getIfCached("/home/file.pdf", 1)).isNull();
+        final Path cached = cache.get("/home/file.pdf", 1, 10, loader(10));
+        assertThat(cache.getIfCached("/home/file.pdf", 1)).isEqualTo(cached);
+        assertThat(cache.getIfCached("/home/file.pdf", 2)).isNull();
+        assertThat(downloads).hasValue(1);
+    }
+
+    @Test
+    void prefetchDownloadsOnceInBackground() throws Exception {
+        final IfsFileCache cache = new IfsFileCache(directory, 1000, 1000);
+        final CountDownLatch gate = new CountDownLatch(1);
+        final IfsFileCache.Loader slowLoader = () -> {
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return loader(10).open();
+        };
+        cache.prefetch("/home/file.pdf", 1, 10, slowLoader);
+        cache.prefetch("/home/file.pdf", 1, 10, slowLoader);
+        assertThat(cache.getIfCached("/home/file.pdf", 1)).isNull();
+        gate.countDown();
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (cache.getIfCached("/home/file.pdf", 1) == null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(cache.getIfCached("/home/file.pdf", 1)).exists();
+        assertThat(downloads).hasValue(1);
+    }
+
+    @Test
+    void cachesSharingDirectoryDoNotInterfere() throws IOException {
+        final IfsFileCache first = new IfsFileCache(directory, 1000, 1000);
+        final Path cached = first.get("/home/file.pdf", 1, 10, loader(10));
+        final IfsFileCache second = new IfsFileCache(directory, 1000, 1000);
+        assertThat(second.getDirectory()).isNotEqualTo(first.getDirectory());
+        assertThat(first.getIfCached("/home/file.pdf", 1)).isEqualTo(cached).exists();
+        second.close();
+        assertThat(cached).exists();
+    }
+
+    @Test
+    void closeDeletesCacheDirectory() throws IOException {
+        final IfsFileCache cache = new IfsFileCache(directory, 1000, 1000);
+        cache.get("/home/file.pdf", 1, 10, loader(10));
+        cache.close();
+        assertThat(cache.getDirectory()).doesNotExist();
+        assertThat(cache.getSize()).isZero();
+        cache.prefetch("/home/other.pdf", 1, 10, loader(10));
+        assertThat(downloads).hasValue(1);
+    }
+}
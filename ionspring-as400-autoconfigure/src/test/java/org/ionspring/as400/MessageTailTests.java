@@ -0,0 +1,120 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.QueuedMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MessageTailTests {
+
+    private final List<QueuedMessage> queue = new ArrayList<>();
+    private final AtomicInteger openLists = new AtomicInteger();
+    private final MessageTail tail = new MessageTail(this::open);
+
+    /**
+     * Lists the queue like the IBM i list APIs: newest first from the newest message, or oldest first from the
+     * message with the starting key, included.
+     */
+    private MessageTail.MessageList open(byte[] startingKey, boolean forward) {
+        final List<QueuedMessage> messages = new ArrayList<>(queue);
+        if (forward) {
+            int start = 0;
+            while (start < messages.size() && messages.get(start).getKey()[0] < startingKey[0]) {
+                start++;
+            }
+            messages.subList(0, start).clear();
+        } else {
+            Collections.reverse(messages);
+        }
+        openLists.incrementAndGet();
+        return new MessageTail.MessageList() {
+            @Override
+            public int length() {
+                return messages.size();
+            }
+
+            @Override
+            public QueuedMessage[] messages(int offset, int number) {
+                return messages.subList(offset, offset + number).toArray(new QueuedMessage[0]);
+            }
+
+            @Override
+            public void close() {
+                openLists.decrementAndGet();
+            }
+        };
+    }
+
+    private void addMessages(int from, int to) {
+        for (int key = from; key <= to; key++) {
+            final QueuedMessage message = mock(QueuedMessage.class);
+            when(message.getKey()).thenReturn(new byte[]{(byte) key});
+            queue.add(message);
+        }
+    }
+
+    private static List<Integer> keys(List<QueuedMessage> messages) {
+        return messages.stream().map(message -> (int) message.getKey()[0]).toList();
+    }
+
+    @Test
+    void firstPollReturnsNewestMessagesOldestFirst() {
+        addMessages(1, 5);
+        assertThat(keys(tail.poll(3))).containsExactly(3, 4, 5);
+        assertThat(tail.getLastMessageKey()).containsExactly(5);
+        assertThat(openLists).hasValue(0);
+    }
+
+    @Test
+    void pollDropsTheRepeatedStartingMessage() {
+        addMessages(1, 3);
+        assertThat(keys(tail.poll(10))).containsExactly(1, 2, 3);
+        assertThat(tail.poll(10)).isEmpty();
+        addMessages(4, 5);
+        assertThat(keys(tail.poll(10))).containsExactly(4, 5);
+        assertThat(tail.getLastMessageKey()).containsExactly(5);
+        assertThat(openLists).hasValue(0);
+    }
+
+    @Test
+    void pollReturnsAtMostMaxMessages() {
+        addMessages(1, 2);
+        tail.poll(10);
+        addMessages(3, 7);
+        assertThat(keys(tail.poll(2))).containsExactly(3, 4);
+        assertThat(keys(tail.poll(2))).containsExactly(5, 6);
+        assertThat(keys(tail.poll(2))).containsExactly(7);
+        assertThat(tail.poll(2)).isEmpty();
+    }
+
+    @Test
+    void resetReturnsNewestMessagesAgain() {
+        addMessages(1, 4);
+        tail.poll(10);
+        tail.reset();
+        assertThat(keys(tail.poll(2))).containsExactly(3, 4);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400;
+import com.ibm.as400.access.SecureAS400;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MicrometerAS400AuthenticationMetricsTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void metersAreTaggedWithSystem() {
+        final MicrometerAS400AuthenticationMetrics metrics = new MicrometerAS400AuthenticationMetrics(registry,
+                new SecureAS400("as400", "user", "password".toCharArray()));
+        metrics.recordSignon(TimeUnit.MILLISECONDS.toNanos(20));
+        metrics.recordUserConnection(TimeUnit.MILLISECONDS.toNanos(30));
+        metrics.recordSpecialAuthorities(TimeUnit.MILLISECONDS.toNanos(40));
+        assertThat(registry.get("ionspring.as400.authentication.signon").tag("system", "as400").tag("secure", "true")
+                .timer().totalTime(TimeUnit.MILLISECONDS)).isEqualTo(20);
+        assertThat(registry.get("ionspring.as400.authentication.user.connection").tag("system", "as400")
+                .timer().totalTime(TimeUnit.MILLISECONDS)).isEqualTo(30);
+        assertThat(registry.get("ionspring.as400.authentication.special.authorities").tag("system", "as400")
+                .timer().totalTime(TimeUnit.MILLISECONDS)).isEqualTo(40);
+    }
+
+    @Test
+    void outcomesAreCountedSeparately() {
+        final MicrometerAS400AuthenticationMetrics metrics = new MicrometerAS400AuthenticationMetrics(registry,
+                new AS400("as400", "user", "password".toCharArray()));
+        metrics.recordOutcome(AS400AuthenticationMetrics.Outcome.SUCCESS);
+        metrics.recordOutcome(AS400AuthenticationMetrics.Outcome.SUCCESS);
+        metrics.recordOutcome(AS400AuthenticationMetrics.Outcome.REJECTED);
+        assertThat(registry.get("ionspring.as400.authentication").tag("secure", "false").tag("outcome", "success")
+                .counter().count()).isEqualTo(2);
+        assertThat(registry.get("ionspring.as400.authentication").tag("outcome", "rejected").counter().count()).isEqualTo(1);
+        assertThat(registry.get("ionspring.as400.authentication").tag("outcome", "error").counter().count()).isZero();
+        assertThat(registry.get("ionspring.as400.authentication").counters()).hasSize(AS400AuthenticationMetrics.Outcome.values().length);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400;
+import com.ibm.as400.data.ProgramCallDocument;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PcmlDocumentCacheTests {
+
+    private final AS400 as400 = new AS400("as400", "user", "password".toCharArray());
+
+    private PcmlDocumentCache cache() {
+        return new PcmlDocumentCache(as400, getClass().getClassLoader(), List.of("pcml"));
+    }
+
+    @Test
+    void documentsAreDiscovered() {
+        assertThat(cache().getDocumentNames()).containsExactly("pcml.test.getprice");
+    }
+
+    @Test
+    void documentsAreCopied() {
+        final PcmlDocumentCache cache = cache();
+        final ProgramCallDocument first = cache.getDocument("pcml.test.getprice");
+        final ProgramCallDocument second = cache.getDocument("pcml.test.getprice", new AS400("other", "user", "password".toCharArray()));
+        assertThat(first).isNotSameAs(second);
+        assertThat(first.getSystem()).isSameAs(as400);
+        assertThat(second.getSystem().getSystemName()).isEqualTo("other");
+    }
+
+    @Test
+    void unknownDocument() {
+        assertThrows(IllegalArgumentException.class, () -> cache().getDocument("pcml.test.unknown"));
+    }
+
+    @Test
+    void missingDirectory() {
+        assertThat(new PcmlDocumentCache(as400, getClass().getClassLoader(), List.of("nopcml")).getDocumentNames()).isEmpty();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400;
+import com.ibm.as400.access.AS400Bin4;
+import com.ibm.as400.access.AS400PackedDecimal;
+import com.ibm.as400.access.AS400Text;
+import com.ibm.as400.access.ProgramParameter;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ProgramCallTemplateTests {
+
+    private static final ProgramCallDescriptor DESCRIPTOR = new ProgramCallDescriptor("MYLIB", "MYPGM", true,
+            ProgramCallDescriptor.Parameter.input(new AS400Text(10, 37)),
+            ProgramCallDescriptor.Parameter.output(new AS400PackedDecimal(11, 2)),
+            ProgramCallDescriptor.Parameter.inputOutput(new AS400Bin4()));
+
+    @Test
+    void descriptorBuildsProgramPath() {
+        assertThat(DESCRIPTOR.getProgramPath()).isEqualTo("/QSYS.LIB/MYLIB.LIB/MYPGM.PGM");
+        assertThat(DESCRIPTOR.isThreadSafe()).isTrue();
+    }
+
+    @Test
+    void descriptorCountsInputs() {
+        assertThat(DESCRIPTOR.getParameters()).hasSize(3);
+        assertThat(DESCRIPTOR.getInputCount()).isEqualTo(2);
+        assertThat(DESCRIPTOR.getParameters().get(1).isInput()).isFalse();
+        assertThat(DESCRIPTOR.getParameters().get(2).isOutput()).isTrue();
+    }
+
+    @Test
+    void callRejectsWrongInputCount() {
+        final ProgramCallTemplate template = new ProgramCallTemplate(new AS400("as400", "user", "password".toCharArray()), null);
+        assertThrows(IllegalArgumentException.class, () -> template.call(DESCRIPTOR, "ITEM"));
+    }
+
+    @Test
+    void inputsAreConvertedToParameters() {
+        final ProgramParameter[] parameters = ProgramCallTemplate.toParameters(DESCRIPTOR, new Object[]{"ITEM", 5});
+        assertThat(parameters).hasSize(3);
+        assertThat(parameters[0].getInputData())
+                .containsExactly(0xC9, 0xE3, 0xC5, 0xD4, 0x40, 0x40, 0x40, 0x40, 0x40, 0x40);
+        assertThat(parameters[1].getOutputDataLength()).isEqualTo(6);
+        assertThat(parameters[2].getInputData()).containsExactly(0, 0, 0, 5);
+        assertThat(parameters[2].getOutputDataLength()).isEqualTo(4);
+    }
+
+    @Test
+    void outputsAreConvertedFromParameters() {
+        final Object[] outputs = ProgramCallTemplate.toOutputs(DESCRIPTOR, new byte[][]{
+                null, {0x00, 0x00, 0x00, 0x12, 0x34, 0x5F}, {0x00, 0x00, 0x00, 0x2A}});
+        assertThat(outputs).containsExactly(null, new BigDecimal("123.45"), 42);
+    }
+
+    @Test
+    void sharedDescriptorConvertsConcurrently() throws Exception {
+        final ProgramCallDescriptor.Parameter parameter = DESCRIPTOR.getParameters().get(0);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Boolean>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                final int offset = thread * 1000;
+                futures.add(executor.submit(() -> {
+                    for (int i = offset; i < offset + 1000; i++) {
+                        final String value = "ITEM" + i;
+                        if (!parameter.toObject(parameter.toBytes(value)).toString().trim().equals(value)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertThat(future.get()).isTrue();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReadOnlyRoutingDataSourceTests {
+
+    private JdbcConnectionPool primary;
+
+    private JdbcConnectionPool replica;
+
+    private ReadOnlyRoutingDataSource routing;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+
+    private static JdbcConnectionPool createPartition(String name) throws SQLException {
+        final JdbcConnectionPool pool = JdbcConnectionPool.create("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS PARTITION_NAME (NAME VARCHAR(10))");
+            statement.execute("DELETE FROM PARTITION_NAME");
+            statement.execute("INSERT INTO PARTITION_NAME VALUES ('" + name + "')");
+        }
+        return pool;
+    }
+
+    @BeforeEach
+    void createDataSources() throws SQLException {
+        primary = createPartition("primary");
+        replica = createPartition("replica");
+        routing = new ReadOnlyRoutingDataSource(primary, replica);
+        // Known defaults, otherwise the proxy opens a connection to read them
+        routing.setDefaultAutoCommit(true);
+        routing.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        routing.afterPropertiesSet();
+        jdbcTemplate = new JdbcTemplate(routing);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(routing));
+    }
+
+    @AfterEach
+    void disposeDataSources() {
+        primary.dispose();
+        replica.dispose();
+    }
+
+    private String partitionName() {
+        return jdbcTemplate.queryForObject("SELECT NAME FROM PARTITION_NAME", String.class);
+    }
+
+    @Test
+    void readOnlyTransactionUsesReplica() {
+        transactionTemplate.setReadOnly(true);
+        assertThat(transactionTemplate.execute(status -> partitionName())).isEqualTo("replica");
+        assertThat(routing.getConnectionCount(ReadOnlyRoutingDataSource.Route.REPLICA)).isEqualTo(1);
+        assertThat(routing.getConnectionCount(ReadOnlyRoutingDataSource.Route.PRIMARY)).isZero();
+    }
+
+    @Test
+    void readWriteTransactionUsesPrimary() {
+        assertThat(transactionTemplate.execute(status -> partitionName())).isEqualTo("primary");
+        assertThat(routing.getConnectionCount(ReadOnlyRoutingDataSource.Route.PRIMARY)).isEqualTo(1);
+        assertThat(routing.getConnectionCount(ReadOnlyRoutingDataSource.Route.REPLICA)).isZero();
+    }
+
+    @Test
+    void noTransactionUsesPrimary() {
+        assertThat(partitionName()).isEqualTo("primary");
+        assertThat(routing.getConnectionCount(ReadOnlyRoutingDataSource.Route.PRIMARY)).isEqualTo(1);
+    }
+
+    @Test
+    void transactionWithoutStatementOpensNoConnection() {
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.executeWithoutResult(status -> {
+        });
+        assertThat(routing.getConnectionCount(ReadOnlyRoutingDataSource.Route.REPLICA)).isZero();
+        assertThat(primary.getActiveConnections()).isZero();
+        assertThat(replica.getActiveConnections()).isZero();
+    }
+
+    @Test
+    void closeClosesCloseableDataSources() throws Exception {
+        final AtomicInteger closed = new AtomicInteger();
+        final DataSource closeable = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{DataSource.class, AutoCloseable.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("close")) {
+                        closed.incrementAndGet();
+                    }
+                    return null;
+                });
+        try (ReadOnlyRoutingDataSource dataSource = new ReadOnlyRoutingDataSource(primary, closeable)) {
+            assertThat(dataSource.getDataSource(ReadOnlyRoutingDataSource.Route.REPLICA)).isSameAs(closeable);
+        }
+        assertThat(closed).hasValue(1);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400PackedDecimal;
+import com.ibm.as400.access.AS400Text;
+import com.ibm.as400.access.CharacterFieldDescription;
+import com.ibm.as400.access.PackedDecimalFieldDescription;
+import com.ibm.as400.access.Record;
+import com.ibm.as400.access.RecordFormat;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RecordAccessTemplateTests {
+
+    private final RecordFormat format = format();
+
+    private static RecordFormat format() {
+        final RecordFormat format = new RecordFormat("ORDERR");
+        format.addFieldDescription(new CharacterFieldDescription(new AS400Text(1, 37), "CODE"));
+        format.addFieldDescription(new PackedDecimalFieldDescription(new AS400PackedDecimal(5, 0), "AMOUNT"));
+        format.addFieldDescription(new CharacterFieldDescription(new AS400Text(10, 37), "LABEL"));
+        format.addKeyFieldDescription("CODE");
+        format.addKeyFieldDescription("AMOUNT");
+        return format;
+    }
+
+    private Record record(String code, int amount) throws Exception {
+        final Record record = format.getNewRecord();
+        record.setField("CODE", code);
+        record.setField("AMOUNT", BigDecimal.valueOf(amount));
+        record.setField("LABEL", "ORDER");
+        return record;
+    }
+
+    private RecordAccessTemplate.KeyBound bound(Object... key) throws Exception {
+        return RecordAccessTemplate.KeyBound.of(format, key);
+    }
+
+    @Test
+    void characterKeysAreComparedInEbcdicOrder() throws Exception {
+        // EBCDIC 'A' is 0xC1, '.' is 0x4B: a signed byte comparison would put 'A' before '.'
+        final RecordAccessTemplate.KeyBound lastKey = bound(".");
+        assertThat(lastKey.isBefore(record("A", 1))).isTrue();
+        assertThat(lastKey.isBefore(record(" ", 1))).isFalse();
+        // Java would put '9' before 'A', EBCDIC puts digits after letters
+        assertThat(bound("9").isBefore(record("A", 1))).isFalse();
+    }
+
+    @Test
+    void numericKeysAreComparedByValue() throws Exception {
+        final RecordAccessTemplate.KeyBound lastKey = bound("B", BigDecimal.valueOf(-3));
+        assertThat(lastKey.isBefore(record("B", -5))).isFalse();
+        assertThat(lastKey.isBefore(record("B", -3))).isFalse();
+        assertThat(lastKey.isBefore(record("B", -1))).isTrue();
+        assertThat(lastKey.isBefore(record("B", 1))).isTrue();
+        assertThat(bound("B", BigDecimal.valueOf(1)).isBefore(record("B", -1))).isFalse();
+    }
+
+    @Test
+    void lastKeyIsInclusive() throws Exception {
+        final RecordAccessTemplate.KeyBound lastKey = bound("B", BigDecimal.valueOf(10));
+        assertThat(lastKey.isBefore(record("B", 10))).isFalse();
+        assertThat(lastKey.isBefore(record("B", 11))).isTrue();
+        assertThat(lastKey.isBefore(record("C", -99999))).isTrue();
+    }
+
+    @Test
+    void partialLastKeyComparesFirstFieldsOnly() throws Exception {
+        final RecordAccessTemplate.KeyBound lastKey = bound("B");
+        assertThat(lastKey.isBefore(record("B", 99999))).isFalse();
+        assertThat(lastKey.isBefore(record("C", -99999))).isTrue();
+    }
+}
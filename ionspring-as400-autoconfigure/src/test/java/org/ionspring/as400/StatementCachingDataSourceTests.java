@@ -0,0 +1,117 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StatementCachingDataSourceTests {
+
+    private final StatementCacheStatistics statistics = new StatementCacheStatistics();
+
+    private StatementCachingDataSource dataSource;
+
+    @BeforeEach
+    void createDataSource() throws SQLException {
+        final JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:statementcache;DB_CLOSE_DELAY=-1");
+        try (Connection connection = h2.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS ITEM (ID INT PRIMARY KEY)");
+            statement.execute("MERGE INTO ITEM KEY (ID) VALUES (1), (2), (3)");
+        }
+        dataSource = new StatementCachingDataSource(h2, 2, statistics);
+    }
+
+    @Test
+    void closedStatementIsReused() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT ID FROM ITEM WHERE ID = ?")) {
+                statement.setInt(1, 1);
+                statement.setMaxRows(1);
+                statement.executeQuery().close();
+            }
+            try (PreparedStatement statement = connection.prepareStatement("SELECT ID FROM ITEM WHERE ID = ?")) {
+                assertThat(statement.getMaxRows()).isZero();
+                statement.setInt(1, 2);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    assertThat(resultSet.next()).isTrue();
+                    assertThat(resultSet.getInt(1)).isEqualTo(2);
+                }
+                assertThat(statement.getConnection()).isSameAs(connection);
+            }
+        }
+        assertThat(statistics.getMissCount()).isEqualTo(1);
+        assertThat(statistics.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void statementInUseIsNotShared() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement first = connection.prepareStatement("SELECT ID FROM ITEM");
+             PreparedStatement second = connection.prepareStatement("SELECT ID FROM ITEM")) {
+            assertThat(first).isNotSameAs(second);
+        }
+        assertThat(statistics.getMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    void leastRecentlyUsedStatementIsEvicted() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.prepareStatement("SELECT ID FROM ITEM WHERE ID = 1").close();
+            connection.prepareStatement("SELECT ID FROM ITEM WHERE ID = 2").close();
+            connection.prepareStatement("SELECT ID FROM ITEM WHERE ID = 3").close();
+            connection.prepareStatement("SELECT ID FROM ITEM WHERE ID = 1").close();
+        }
+        assertThat(statistics.getEvictionCount()).isEqualTo(2);
+        assertThat(statistics.getHitCount()).isZero();
+    }
+
+    @Test
+    void closedStatementCantBeUsed() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            final PreparedStatement statement = connection.prepareStatement("SELECT ID FROM ITEM");
+            statement.close();
+            assertThat(statement.isClosed()).isTrue();
+            assertThrows(SQLException.class, statement::executeQuery);
+        }
+    }
+
+    @Test
+    void resultSetGivesStatementProxy() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT ID FROM ITEM")) {
+            try (ResultSet resultSet = statement.executeQuery()) {
+                assertThat(resultSet.getStatement()).isSameAs(statement);
+                assertThat(resultSet.getStatement().getConnection()).isSameAs(connection);
+            }
+            assertThat(statement.execute()).isTrue();
+            try (ResultSet resultSet = statement.getResultSet()) {
+                assertThat(resultSet.getStatement()).isSameAs(statement);
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.BadSqlGrammarException;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StreamingQueryTemplateTests {
+
+    private JdbcConnectionPool dataSource;
+
+    private StreamingQueryTemplate template;
+
+    @BeforeEach
+    void createDataSource() throws SQLException {
+        dataSource = JdbcConnectionPool.create("jdbc:h2:mem:streaming;DB_CLOSE_DELAY=-1", "sa", "");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS ROW_ITEM (ID INT PRIMARY KEY)");
+            statement.execute("MERGE INTO ROW_ITEM KEY (ID) SELECT X FROM SYSTEM_RANGE(1, 1000)");
+        }
+        template = new StreamingQueryTemplate(dataSource, 10, 100);
+    }
+
+    @AfterEach
+    void disposeDataSource() {
+        dataSource.dispose();
+    }
+
+    @Test
+    void exhaustedStreamReleasesConnection() {
+        final long sum = template.stream("SELECT ID FROM ROW_ITEM WHERE ID > ? ORDER BY ID", (rs, rowNum) -> rs.getLong(1), 500)
+                .mapToLong(Long::longValue)
+                .sum();
+        assertThat(sum).isEqualTo(375250L);
+        assertThat(dataSource.getActiveConnections()).isZero();
+    }
+
+    @Test
+    void closedStreamReleasesConnection() {
+        try (Stream<Integer> stream = template.stream("SELECT ID FROM ROW_ITEM ORDER BY ID", (rs, rowNum) -> rs.getInt(1))) {
+            assertThat(stream.limit(3).toList()).isEqualTo(List.of(1, 2, 3));
+            assertThat(dataSource.getActiveConnections()).isOne();
+        }
+        assertThat(dataSource.getActiveConnections()).isZero();
+    }
+
+    @Test
+    void invalidQueryIsTranslated() {
+        assertThrows(BadSqlGrammarException.class, () -> template.stream("SELECT NOPE FROM ROW_ITEM", (rs, rowNum) -> rs.getInt(1)));
+        assertThat(dataSource.getActiveConnections()).isZero();
+    }
+
+    @Test
+    void invalidFetchSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new StreamingQueryTemplate(dataSource, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new StreamingQueryTemplate(dataSource, 20, 10));
+    }
+
+    @Test
+    void fetchSizeDoublesAfterEachBlock() {
+        final List<Integer> fetchSizes = new ArrayList<>();
+        final StreamingQueryTemplate growing = new StreamingQueryTemplate(recording(dataSource, DataSource.class, fetchSizes), 10, 100);
+        try (Stream<Integer> stream = growing.stream("SELECT ID FROM ROW_ITEM ORDER BY ID", (rs, rowNum) -> rs.getInt(1))) {
+            assertThat(stream.count()).isEqualTo(1000);
+        }
+        assertThat(fetchSizes).containsExactly(10, 20, 40, 80, 100);
+    }
+
+    @Test
+    void blockFetchLeavesFetchSizeToDataSource() {
+        final List<Integer> fetchSizes = new ArrayList<>();
+        final StreamingQueryTemplate blocks = new StreamingQueryTemplate(recording(dataSource, DataSource.class, fetchSizes));
+        try (Stream<Integer> stream = blocks.stream("SELECT ID FROM ROW_ITEM ORDER BY ID", (rs, rowNum) -> rs.getInt(1))) {
+            assertThat(stream.count()).isEqualTo(1000);
+        }
+        assertThat(fetchSizes).isEmpty();
+        assertThat(blocks.getInitialFetchSize()).isZero();
+    }
+
+    /**
+     * Wraps a JDBC object so that the fetch sizes set on its statements and result sets are recorded.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T recording(Object target, Class<T> type, List<Integer> fetchSizes) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getName().equals("setFetchSize")) {
+                fetchSizes.add((Integer) args[0]);
+            }
+            final Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Connection connection) {
+                return recording(connection, Connection.class, fetchSizes);
+            }
+            if (result instanceof PreparedStatement statement) {
+                return recording(statement, PreparedStatement.class, fetchSizes);
+            }
+            if (result instanceof ResultSet resultSet) {
+                return recording(resultSet, ResultSet.class, fetchSizes);
+            }
+            return result;
+        });
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SystemValueRegistryTests {
+
+    /**
+     * A registry recording its host calls instead of retrieving the values.
+     */
+    static class RecordingRegistry extends SystemValueRegistry {
+        private final List<Set<String>> calls = new ArrayList<>();
+        private boolean failing = false;
+
+        RecordingRegistry(Duration defaultTtl, Map<String, Duration> ttls) {
+            super(null, defaultTtl, ttls);
+        }
+
+        @Override
+        Map<String, Object> retrieve(Set<String> names) throws Exception {
+            if (failing) {
+                throw new Exception("Host unavailable");
+            }
+            calls.add(Set.copyOf(names));
+            final Map<String, Object> values = new HashMap<>();
+            names.forEach(name -> values.put(name, name + calls.size()));
+            return values;
+        }
+    }
+
+    @Test
+    void valuesAreCachedUntilTheyExpire() {
+        final RecordingRegistry registry = new RecordingRegistry(Duration.ofHours(1), Map.of("QTIME", Duration.ZERO));
+        assertThat(registry.getValue("qdate")).isEqualTo("QDATE1");
+        assertThat(registry.getValue("QDATE")).isEqualTo("QDATE1");
+        assertThat(registry.getValue("QTIME")).isEqualTo("QTIME2");
+        assertThat(registry.getValue("QTIME")).isEqualTo("QTIME3");
+        assertThat(registry.calls).containsExactly(Set.of("QDATE"), Set.of("QTIME"), Set.of("QTIME"));
+    }
+
+    @Test
+    void expiredValuesAreRetrievedTogether() {
+        final RecordingRegistry registry = new RecordingRegistry(Duration.ZERO, Map.of("QCCSID", Duration.ofHours(1)));
+        registry.prefetch(List.of("QDATE", "QTIME", "QCCSID"));
+        assertThat(registry.getValue("QUSRLIBL")).isEqualTo("QUSRLIBL2");
+        assertThat(registry.getValue("QCCSID")).isEqualTo("QCCSID1");
+        assertThat(registry.calls).containsExactly(Set.of("QCCSID", "QDATE", "QTIME"), Set.of("QDATE", "QTIME", "QUSRLIBL"));
+    }
+
+    @Test
+    void ttlOverridesIgnoreCase() {
+        final RecordingRegistry registry = new RecordingRegistry(Duration.ZERO, Map.of("qdate", Duration.ofHours(1)));
+        registry.getValue("QDATE");
+        registry.getValue("QDATE");
+        assertThat(registry.calls).hasSize(1);
+    }
+
+    @Test
+    void refreshReloadsCachedValues() {
+        final RecordingRegistry registry = new RecordingRegistry(Duration.ofHours(1), Map.of());
+        registry.prefetch(List.of("QDATE", "QTIME"));
+        registry.evict("QTIME");
+        registry.refresh();
+        assertThat(registry.getValue("QDATE")).isEqualTo("QDATE2");
+        assertThat(registry.calls).containsExactly(Set.of("QDATE", "QTIME"), Set.of("QDATE"));
+    }
+
+    @Test
+    void failureIsSystemValueException() {
+        final RecordingRegistry registry = new RecordingRegistry(Duration.ofHours(1), Map.of());
+        registry.failing = true;
+        assertThrows(SystemValueException.class, () -> registry.getValue("QDATE"));
+        assertThat(registry.getCachedNames()).isEmpty();
+    }
+}
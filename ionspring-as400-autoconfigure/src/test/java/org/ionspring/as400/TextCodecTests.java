@@ -0,0 +1,58 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400Text;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TextCodecTests {
+
+    @Test
+    void codecsAreSharedPerCcsid() {
+        assertThat(TextCodec.forCcsid(37)).isSameAs(TextCodec.forCcsid(37));
+        assertThat(TextCodec.forCcsid(37).isSingleByte()).isTrue();
+    }
+
+    @Test
+    void encodeMatchesJt400() {
+        for (int ccsid : new int[]{37, 297, 1140, 1147}) {
+            final byte[] expected = new AS400Text(12, ccsid).toBytes("Caf\u00e9 \u00e0 10\u20ac");
+            final byte[] actual = new byte[14];
+            TextCodec.forCcsid(ccsid).encode("Caf\u00e9 \u00e0 10\u20ac", actual, 2, 12);
+            assertThat(actual).endsWith(expected);
+        }
+    }
+
+    @Test
+    void decodeIntoBuffers() {
+        final TextCodec codec = TextCodec.forCcsid(297);
+        final byte[] field = new AS400Text(8, 297).toBytes("\u00c9t\u00e9");
+        assertThat(codec.decode(field, 0, 8)).isEqualTo("\u00c9t\u00e9     ");
+        assertThat(codec.decodeTrimmed(field, 0, 8)).isEqualTo("\u00c9t\u00e9");
+        final char[] chars = new char[10];
+        assertThat(codec.decode(field, 0, 3, chars, 1)).isEqualTo(3);
+        assertThat(new String(chars, 1, 3)).isEqualTo("\u00c9t\u00e9");
+    }
+
+    @Test
+    void tooLongValueIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> TextCodec.forCcsid(37).encode("Too long", new byte[4], 0, 4));
+    }
+}
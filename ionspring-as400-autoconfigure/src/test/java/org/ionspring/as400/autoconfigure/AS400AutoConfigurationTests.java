@@ -19,12 +19,33 @@ package org.ionspring.as400.autoconfigure;
 import com.ibm.as400.access.AS400;
 import com.ibm.as400.access.AS400JDBCDataSource;
 import com.ibm.as400.access.SecureAS400;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.ionspring.as400.AS400AsyncTemplate;
+import org.ionspring.as400.AS400AuthenticationMetrics;
+import org.ionspring.as400.AS400AuthenticationProvider;
+import org.ionspring.as400.AS400HealthIndicator;
+import org.ionspring.as400.AS400Pool;
+import org.ionspring.as400.IfsFileCache;
+import org.ionspring.as400.IfsResource;
+import org.ionspring.as400.MicrometerAS400AuthenticationMetrics;
+import org.ionspring.as400.ReadOnlyRoutingDataSource;
+import org.ionspring.as400.RecordAccessTemplate;
+import org.ionspring.as400.SystemValueRegistry;
+import org.ionspring.as400.StatementCacheStatistics;
+import org.ionspring.as400.StatementCachingDataSource;
+import org.ionspring.as400.StreamingQueryTemplate;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.export.simple.SimpleMetricsExportAutoConfiguration;
+import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.boot.autoconfigure.AutoConfigurations;
 import org.springframework.boot.test.context.FilteredClassLoader;
 import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 
 import javax.sql.DataSource;
 
@@ -104,7 +125,159 @@ public class AS400AutoConfigurationTests {
         System.setProperty("os.name", "OS/400");
         this.contextRunner.run((context) -> {
             assertThat(context).hasSingleBean(DataSource.class);
-            assertThat(context).getBean(DataSource.class).isInstanceOf(AS400JDBCDataSource.class);
+            assertThat(context).getBean(DataSource.class).isInstanceOf(HikariDataSource.class);
+            assertThat(context.getBean(HikariDataSource.class).getDataSource()).isInstanceOf(AS400JDBCDataSource.class);
+        });
+    }
+
+    @Test
+    void dataSourcePool() {
+        System.setProperty("os.name", "OS/400");
+        this.contextRunner.withPropertyValues("ionspring.as400.datasource.pool.name=db2",
+                "ionspring.as400.datasource.pool.maximum-pool-size=25",
+                "ionspring.as400.datasource.pool.minimum-idle=5",
+                "ionspring.as400.datasource.pool.leak-detection-threshold=30s").run((context) -> {
+            final HikariDataSource hikari = context.getBean(HikariDataSource.class);
+            assertThat(hikari.getPoolName()).isEqualTo("db2");
+            assertThat(hikari.getMaximumPoolSize()).isEqualTo(25);
+            assertThat(hikari.getMinimumIdle()).isEqualTo(5);
+            assertThat(hikari.getLeakDetectionThreshold()).isEqualTo(30000);
+        });
+    }
+
+    @Test
+    void as400Pool() {
+        System.setProperty("os.name", "OS/400");
+        this.contextRunner.withPropertyValues("ionspring.as400.pool.max-size=5").run((context) -> {
+            assertThat(context).hasSingleBean(AS400Pool.class);
+            assertThat(context).getBean(AS400Pool.class).extracting(AS400Pool::getMaxSize).isEqualTo(5);
+        });
+    }
+
+    @Test
+    void as400PoolDisabled() {
+        System.setProperty("os.name", "OS/400");
+        this.contextRunner.withPropertyValues("ionspring.as400.pool.enabled=false").run((context) -> assertThat(context).doesNotHaveBean(AS400Pool.class));
+    }
+
+    @Test
+    void dataSourceStatementCache() {
+        System.setProperty("os.name", "OS/400");
+        this.contextRunner.withPropertyValues("ionspring.as400.datasource.statement-cache.enabled=true",
+                "ionspring.as400.datasource.statement-cache.size=50").run((context) -> {
+            assertThat(context).hasSingleBean(StatementCacheStatistics.class);
+            assertThat(context.getBean(HikariDataSource.class).getDataSource()).isInstanceOf(StatementCachingDataSource.class)
+                    .extracting("cacheSize").isEqualTo(50);
+        });
+    }
+
+    @Test
+    void readOnlyRoutingDataSource() {
+        System.setProperty("os.name", "OS/400");
+        this.contextRunner.withPropertyValues("ionspring.as400.datasource.replica.system=replica",
+                "ionspring.as400.datasource.replica.pool.maximum-pool-size=20").run((context) -> {
+            final DataSource dataSource = context.getBean(DataSource.class);
+            assertThat(dataSource).isInstanceOf(LazyConnectionDataSourceProxy.class);
+            assertThat(dataSource.isWrapperFor(ReadOnlyRoutingDataSource.class)).isTrue();
+            assertThat(dataSource.unwrap(ReadOnlyRoutingDataSource.class).getDataSource(ReadOnlyRoutingDataSource.Route.REPLICA))
+                    .isInstanceOfSatisfying(HikariDataSource.class, hikari -> {
+                        assertThat(hikari.getPoolName()).isEqualTo("ionspring-as400-replica");
+                        assertThat(hikari.getMaximumPoolSize()).isEqualTo(20);
+                    });
+        });
+    }
+
+    @Test
+    void readOnlyRoutingMetricsAreRegisteredWhenDataSourceIsCreated() {
+        System.setProperty("os.name", "OS/400");
+        this.contextRunner.withPropertyValues("ionspring.as400.datasource.replica.system=replica")
+                .withConfiguration(AutoConfigurations.of(MetricsAutoConfiguration.class,
+                        SimpleMetricsExportAutoConfiguration.class, CompositeMeterRegistryAutoConfiguration.class)).run((context) -> {
+                    assertThat(context.getBeanFactory().containsSingleton("as400JDBCDataSource")).isFalse();
+                    assertThat(context.getBeanFactory().containsSingleton("as400")).isFalse();
+                    context.getBean(DataSource.class);
+                    assertThat(context.getBean(MeterRegistry.class).find("ionspring.as400.datasource.route.connections")
+                            .functionTimers()).hasSize(2);
+                });
+    }
+
+    @Test
+    void asyncTemplateConcurrencyDefaultsToPoolSize() {
+        System.setProperty("os.name", "OS/400");
+        this.contextRunner.withPropertyValues("ionspring.as400.pool.max-size=4").run((context) -> {
+            assertThat(context.getBean(AS400AsyncTemplate.class).getMaxConcurrency()).isEqualTo(4);
+            assertThat(context.getBean(AS400AsyncTemplate.class).getMaxWaiting()).isEqualTo(1000);
+        });
+    }
+
+    @Test
+    void streamingQueryTemplate() {
+        System.setProperty("os.name", "OS/400");
+        this.contextRunner.run((context) -> assertThat(context).hasSingleBean(StreamingQueryTemplate.class));
+    }
+
+    @Test
+    void healthIndicator() {
+        System.setProperty("os.name", "OS/400");
+        this.contextRunner.withConfiguration(AutoConfigurations.of(AS400HealthContributorAutoConfiguration.class)).run((context) -> {
+            assertThat(context).hasSingleBean(AS400HealthIndicator.class);
+            assertThat(context).getBean("as400HealthIndicator").isInstanceOf(HealthIndicator.class);
+        });
+    }
+
+    @Test
+    void healthIndicatorDisabled() {
+        System.setProperty("os.name", "OS/400");
+        this.contextRunner.withConfiguration(AutoConfigurations.of(AS400HealthContributorAutoConfiguration.class))
+                .withPropertyValues("management.health.as400.enabled=false")
+                .run((context) -> assertThat(context).doesNotHaveBean(AS400HealthIndicator.class));
+    }
+
+    @Test
+    void recordAccessTemplate() {
+        System.setProperty("os.name", "OS/400");
+        this.contextRunner.withPropertyValues("ionspring.as400.record-access.blocking-factor=1000").run((context) -> {
+            assertThat(context).hasSingleBean(RecordAccessTemplate.class);
+            assertThat(context).getBean(RecordAccessTemplate.class).extracting(RecordAccessTemplate::getBlockingFactor).isEqualTo(1000);
+        });
+    }
+
+    @Test
+    void ifsResource() {
+        System.setProperty("os.name", "OS/400");
+        this.contextRunner.run((context) -> assertThat(context.getResource("ifs:/home/reports/daily.pdf"))
+                .isInstanceOf(IfsResource.class)
+                .extracting("filename").isEqualTo("daily.pdf"));
+    }
+
+    @Test
+    void systemValueRegistry() {
+        System.setProperty("os.name", "OS/400");
+        this.contextRunner.withPropertyValues("ionspring.as400.system-values.ttl.QDATE=1m").run((context) -> {
+            assertThat(context).hasSingleBean(SystemValueRegistry.class);
+            assertThat(context.getBean(SystemValueRegistry.class).getCachedNames()).isEmpty();
+        });
+    }
+
+    @Test
+    void authenticationMetrics() {
+        System.setProperty("os.name", "OS/400");
+        this.contextRunner.withConfiguration(AutoConfigurations.of(MetricsAutoConfiguration.class,
+                SimpleMetricsExportAutoConfiguration.class, CompositeMeterRegistryAutoConfiguration.class)).run((context) -> {
+            assertThat(context).hasSingleBean(AS400AuthenticationMetrics.class);
+            assertThat(context).getBean(AS400AuthenticationMetrics.class).isInstanceOf(MicrometerAS400AuthenticationMetrics.class);
+            assertThat(context).getBean("as400AuthenticationManager", AS400AuthenticationProvider.class)
+                    .extracting(AS400AuthenticationProvider::getMetrics)
+                    .isSameAs(context.getBean(AS400AuthenticationMetrics.class));
+        });
+    }
+
+    @Test
+    void ifsFileCache() {
+        System.setProperty("os.name", "OS/400");
+        this.contextRunner.withPropertyValues("ionspring.as400.ifs.cache.enabled=true").run((context) -> {
+            assertThat(context).hasSingleBean(IfsFileCache.class);
+            assertThat(context.getBean(IfsFileCache.class).getDirectory()).exists();
         });
     }
 }
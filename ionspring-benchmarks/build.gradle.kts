@@ -0,0 +1,50 @@
+import org.jetbrains.kotlin.gradle.dsl.JvmTarget
+import org.jetbrains.kotlin.gradle.tasks.KotlinCompile
+
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+plugins {
+    kotlin("jvm") version ("2.1.0")
+    id("me.champeau.jmh") version ("0.7.2")
+}
+
+tasks.withType<KotlinCompile> {
+    compilerOptions {
+        jvmTarget = JvmTarget.JVM_17
+    }
+}
+
+dependencies {
+    jmh(project(":ionspring-as400-autoconfigure"))
+    jmh(project(":ionspring-vaadin-autoconfigure"))
+    jmh("net.sf.jt400:jt400:${project.extra["jt400Version"]}")
+    jmh("org.springframework.boot:spring-boot-starter-security:${project.extra["springBootVersion"]}")
+    jmh("com.vaadin:vaadin:${project.extra["vaadinVersion"]}")
+    jmh("com.vaadin:vaadin-spring-boot-starter:${project.extra["vaadinVersion"]}")
+    jmh("com.github.mvysny.karibudsl:karibu-dsl:${project.extra["karibuVersion"]}")
+    jmh("com.github.mvysny.karibudsl:karibu-dsl-v23:${project.extra["karibuVersion"]}")
+    jmh("org.jetbrains.kotlin:kotlin-stdlib:2.1.0")
+}
+
+// Results are written as JSON, one file per version, so that releases can be compared with any JSON diff tool or
+// https://jmh.morethan.io
+jmh {
+    jmhVersion = "1.37"
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("reports/jmh/results-${project.version}.json")
+    humanOutputFile = layout.buildDirectory.file("reports/jmh/human-${project.version}.txt")
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of {@link AS400AuthenticationProvider#authenticate} around the host calls, which are replaced
+ * by a fake host answering immediately.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthenticationBenchmarks {
+    private static final List<GrantedAuthority> SPECIAL_AUTHORITIES = List.of(
+            new SimpleGrantedAuthority("ROLE_SPECIAL_AUTHORITY_JOB_CONTROL"),
+            new SimpleGrantedAuthority("ROLE_SPECIAL_AUTHORITY_SPOOL_CONTROL"));
+
+    @Param({"false", "true"})
+    public boolean signonCache;
+
+    private AS400AuthenticationProvider provider;
+    private Authentication request;
+
+    /**
+     * An <code>AS400</code> object accepting any user/password without connecting.
+     */
+    static class FakeHost extends AS400 {
+        FakeHost() {
+            super("fakehost", "BENCH", "BENCH".toCharArray());
+        }
+
+        @Override
+        public boolean validateSignon(String userId, char[] password) {
+            return true;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        provider = new AS400AuthenticationProvider(new FakeHost()) {
+            @Override
+            public List<GrantedAuthority> getSpecialAuthorities(String username, char[] password) {
+                return SPECIAL_AUTHORITIES;
+            }
+        };
+        if (signonCache) {
+            provider.setSignonCache(new AS400SignonCache(Duration.ofMinutes(5), 1000));
+        }
+        request = new UsernamePasswordAuthenticationToken("BENCH", "secret");
+    }
+
+    @Benchmark
+    public Authentication authenticate() {
+        return provider.authenticate(request);
+    }
+}
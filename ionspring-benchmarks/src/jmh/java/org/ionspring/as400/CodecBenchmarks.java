@@ -0,0 +1,137 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ionspring.as400;
+
+import com.ibm.as400.access.AS400PackedDecimal;
+import com.ibm.as400.access.AS400Text;
+import com.ibm.as400.access.AS400ZonedDecimal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link TextCodec} and {@link DecimalCodec} with the jt400 converters. Run with
+ * <code>./gradlew :ionspring-benchmarks:jmh</code>, add <code>-prof gc</code> to the JMH arguments to
+ * compare allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmarks {
+    private static final int CCSID = 37;
+    private static final String TEXT = "IONSPRING CUSTOMER NAME";
+    private static final BigDecimal AMOUNT = new BigDecimal("-1234567.89");
+
+    private final AS400Text as400Text = new AS400Text(30, CCSID);
+    private final AS400PackedDecimal as400Packed = new AS400PackedDecimal(11, 2);
+    private final AS400ZonedDecimal as400Zoned = new AS400ZonedDecimal(11, 2);
+    private final TextCodec textCodec = TextCodec.forCcsid(CCSID);
+    private final byte[] buffer = new byte[64];
+    private final char[] chars = new char[30];
+    private byte[] textField;
+    private byte[] packedField;
+    private byte[] zonedField;
+
+    @Setup
+    public void setup() {
+        textField = as400Text.toBytes(TEXT);
+        packedField = as400Packed.toBytes(AMOUNT);
+        zonedField = as400Zoned.toBytes(AMOUNT);
+    }
+
+    @Benchmark
+    public byte[] textEncodeJt400() {
+        return as400Text.toBytes(TEXT);
+    }
+
+    @Benchmark
+    public byte[] textEncodeCodec() {
+        textCodec.encode(TEXT, buffer, 0, 30);
+        return buffer;
+    }
+
+    @Benchmark
+    public Object textDecodeJt400() {
+        return as400Text.toObject(textField);
+    }
+
+    @Benchmark
+    public String textDecodeCodec() {
+        return textCodec.decode(textField, 0, 30);
+    }
+
+    @Benchmark
+    public char[] textDecodeCodecIntoBuffer() {
+        textCodec.decode(textField, 0, 30, chars, 0);
+        return chars;
+    }
+
+    @Benchmark
+    public byte[] packedEncodeJt400() {
+        return as400Packed.toBytes(AMOUNT);
+    }
+
+    @Benchmark
+    public byte[] packedEncodeCodec() {
+        DecimalCodec.encodePacked(AMOUNT, buffer, 0, 11, 2);
+        return buffer;
+    }
+
+    @Benchmark
+    public byte[] packedEncodeCodecLong() {
+        DecimalCodec.encodePacked(-123456789L, buffer, 0, 11);
+        return buffer;
+    }
+
+    @Benchmark
+    public Object packedDecodeJt400() {
+        return as400Packed.toObject(packedField);
+    }
+
+    @Benchmark
+    public BigDecimal packedDecodeCodec() {
+        return DecimalCodec.decodePacked(packedField, 0, 11, 2);
+    }
+
+    @Benchmark
+    public long packedDecodeCodecLong() {
+        return DecimalCodec.decodePackedLong(packedField, 0, 11);
+    }
+
+    @Benchmark
+    public Object zonedDecodeJt400() {
+        return as400Zoned.toObject(zonedField);
+    }
+
+    @Benchmark
+    public long zonedDecodeCodecLong() {
+        return DecimalCodec.decodeZonedLong(zonedField, 0, 11);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+@file:Suppress("unused")
+package org.ionspring.vaadin
+
+import com.vaadin.flow.component.UI
+import org.openjdk.jmh.annotations.*
+import java.math.BigDecimal
+import java.util.Locale
+import java.util.concurrent.TimeUnit
+
+/**
+ * Measures the [Number.format] extension with the locale of the current UI.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class FormatBenchmarks {
+    private val amount = BigDecimal("-1234567.89")
+
+    @Setup
+    fun setUp() {
+        UI.setCurrent(UI().apply { locale = Locale.FRENCH })
+    }
+
+    @TearDown
+    fun tearDown() {
+        UI.setCurrent(null)
+    }
+
+    @Benchmark
+    fun formatInt(): String = 1234567.format()
+
+    @Benchmark
+    fun formatDouble(): String = 1234567.891.format(2)
+
+    @Benchmark
+    fun formatBigDecimal(): String = amount.format(2, 4)
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+@file:Suppress("unused")
+package org.ionspring.vaadin
+
+import org.ionspring.vaadin.autoconfigure.I18nAutoconfiguration
+import org.openjdk.jmh.annotations.*
+import java.util.Locale
+import java.util.concurrent.TimeUnit
+
+/**
+ * Measures [SpringI18nProvider.getTranslation] with the message sources of the auto-configuration: the application
+ * bundle is missing, so that the keys are resolved by the ionspring parent bundle.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class I18nBenchmarks {
+    private lateinit var provider: SpringI18nProvider
+
+    @Setup
+    fun setUp() {
+        provider = SpringI18nProvider(I18nAutoconfiguration.I18nConfiguration().messageSource())
+    }
+
+    @Benchmark
+    fun getTranslation(): String = provider.getTranslation("ionspring.login.form.title", Locale.FRENCH)
+
+    @Benchmark
+    fun getTranslationWithParameters(): String =
+        provider.getTranslation("ionspring.validateInRange.errorMessage", Locale.FRENCH, 1, 10)
+}
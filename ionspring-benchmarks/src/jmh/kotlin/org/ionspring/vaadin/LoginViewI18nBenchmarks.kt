@@ -0,0 +1,72 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+@file:Suppress("unused")
+package org.ionspring.vaadin
+
+import com.vaadin.flow.component.UI
+import org.ionspring.vaadin.autoconfigure.I18nAutoconfiguration
+import org.openjdk.jmh.annotations.*
+import org.openjdk.jmh.infra.Blackhole
+import java.util.Locale
+import java.util.concurrent.TimeUnit
+
+/**
+ * Measures the [LoginViewI18n] getters called when the login view is rendered, with and without a current UI. Without
+ * one, the locale is the first locale provided by the I18NProvider.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class LoginViewI18nBenchmarks {
+    @Param("true", "false")
+    @JvmField
+    var currentUi = true
+
+    private lateinit var loginI18n: LoginViewI18n
+
+    @Setup
+    fun setUp() {
+        loginI18n = LoginViewI18n(SpringI18nProvider(I18nAutoconfiguration.I18nConfiguration().messageSource()))
+        UI.setCurrent(if (currentUi) UI().apply { locale = Locale.FRENCH } else null)
+    }
+
+    @TearDown
+    fun tearDown() {
+        UI.setCurrent(null)
+    }
+
+    @Benchmark
+    fun formTitle(): String = loginI18n.form.title
+
+    @Benchmark
+    fun allGetters(blackhole: Blackhole) {
+        blackhole.consume(loginI18n.header.title)
+        blackhole.consume(loginI18n.header.description)
+        blackhole.consume(loginI18n.form.title)
+        blackhole.consume(loginI18n.form.username)
+        blackhole.consume(loginI18n.form.password)
+        blackhole.consume(loginI18n.form.submit)
+        blackhole.consume(loginI18n.form.forgotPassword)
+        blackhole.consume(loginI18n.errorMessage.title)
+        blackhole.consume(loginI18n.errorMessage.message)
+        blackhole.consume(loginI18n.errorMessage.username)
+        blackhole.consume(loginI18n.errorMessage.password)
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2024 Damien Ferrand
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+@file:Suppress("unused")
+package org.ionspring.vaadin
+
+import com.vaadin.flow.component.Component
+import com.vaadin.flow.component.html.Div
+import com.vaadin.flow.component.sidenav.SideNav
+import com.vaadin.flow.component.sidenav.SideNavItem
+import com.vaadin.flow.spring.security.AuthenticationContext
+import jakarta.annotation.security.PermitAll
+import jakarta.annotation.security.RolesAllowed
+import org.openjdk.jmh.annotations.*
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken
+import org.springframework.security.core.authority.SimpleGrantedAuthority
+import org.springframework.security.core.context.SecurityContextHolder
+import java.util.concurrent.TimeUnit
+import kotlin.reflect.KClass
+
+@RolesAllowed("ADMIN", "AUDITOR")
+class AdminView : Div()
+
+@PermitAll
+class HomeView : Div()
+
+/**
+ * Measures the authorization check of [securedRoute] for routes the user can't see: an authenticated user lacking the
+ * roles of the route, or an anonymous user. Authorized routes also create the SideNavItem through the Vaadin router,
+ * which needs a running Vaadin service.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class SecuredRouteBenchmarks {
+    @Param("true", "false")
+    @JvmField
+    var authenticated = true
+
+    private val sideNav = SideNav()
+    private lateinit var routeClass: KClass<out Component>
+
+    @Setup
+    fun setUp() {
+        SideNavUtils.authenticationContext = AuthenticationContext()
+        if (authenticated) {
+            SecurityContextHolder.getContext().authentication = UsernamePasswordAuthenticationToken(
+                "BENCH", null,
+                listOf(SimpleGrantedAuthority("ROLE_USER"), SimpleGrantedAuthority("ROLE_SPECIAL_AUTHORITY_JOB_CONTROL"))
+            )
+            routeClass = AdminView::class
+        } else {
+            SecurityContextHolder.clearContext()
+            routeClass = HomeView::class
+        }
+    }
+
+    @TearDown
+    fun tearDown() {
+        SecurityContextHolder.clearContext()
+        SideNavUtils.authenticationContext = null
+    }
+
+    @Benchmark
+    fun securedRoute(): SideNavItem? = sideNav.securedRoute(routeClass)
+}
@@ -18,4 +18,5 @@
 rootProject.name = "ionspring"
 include("ionspring-as400-autoconfigure")
 include("ionspring-vaadin-autoconfigure")
-include("ionspring-starter")
\ No newline at end of file
+include("ionspring-starter")
+include("ionspring-benchmarks")
\ No newline at end of file